@@ -0,0 +1,60 @@
+package be.thebeehive.htf.benchmarks;
+
+import be.thebeehive.htf.client.ActionTable;
+import be.thebeehive.htf.client.ClientUtils;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Scoring the actions of a round one {@link Action} at a time against the columns of an {@link ActionTable}.
+ * On Java 21, add {@code --add-modules jdk.incubator.vector} to the JVM arguments to score with the Vector API.
+ */
+@State(Scope.Thread)
+public class ActionTableBenchmark {
+
+    @Param({"5x10x4", "100x200x64", "100x5000x4"})
+    public String payload;
+
+    private GameRoundServerMessage msg;
+    private List<Action> actions;
+    private ActionTable table;
+    private double[] scores;
+
+    @Setup
+    public void setUp() {
+        msg = RoundPayloads.message(payload);
+        actions = msg.getActions();
+        table = ActionTable.of(msg);
+        scores = new double[table.getActionCount()];
+    }
+
+    @Benchmark
+    public void scoreActions(Blackhole blackhole) {
+        for (Action action : actions) {
+            blackhole.consume(ClientUtils.scoreAction(action, 40, 20));
+        }
+    }
+
+    @Benchmark
+    public ActionTable fill() {
+        return table.fill(msg);
+    }
+
+    @Benchmark
+    public double[] score() {
+        return table.score(40, 20, scores);
+    }
+
+    @Benchmark
+    public int[] scoreAndOrder() {
+        return table.orderByScore(table.score(40, 20, scores));
+    }
+}
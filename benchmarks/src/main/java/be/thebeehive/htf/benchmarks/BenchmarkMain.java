@@ -0,0 +1,56 @@
+package be.thebeehive.htf.benchmarks;
+
+import be.thebeehive.htf.library.TaskExecutors;
+import be.thebeehive.htf.library.ThreadMode;
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the benchmarks in throughput and average time mode with the GC profiler, which reports
+ * the allocations per operation ({@code gc.alloc.rate.norm}), and {@link ThreadModeBenchmark} in every thread mode
+ * this JVM supports.
+ * When arguments are given, they are passed to the regular JMH command line instead,
+ * e.g. {@code DecodeBenchmark -p payload=recorded -prof gc}.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            Main.main(args);
+            return;
+        }
+        Options options = new OptionsBuilder()
+                .include("be\\.thebeehive\\.htf\\.benchmarks\\..*")
+                .mode(Mode.Throughput)
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .forks(1)
+                .addProfiler(GCProfiler.class)
+                .param("mode", supportedThreadModes())
+                .build();
+        new Runner(options).run();
+    }
+
+    private static String[] supportedThreadModes() {
+        List<String> modes = new ArrayList<>();
+        for (ThreadMode mode : ThreadMode.values()) {
+            if (TaskExecutors.isSupported(mode)) {
+                modes.add(mode.name());
+            }
+        }
+        return modes.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,136 @@
+package be.thebeehive.htf.benchmarks;
+
+import be.thebeehive.htf.client.ActionSubsetOptimizer;
+import be.thebeehive.htf.client.ClientUtils;
+import be.thebeehive.htf.client.ExhaustiveStrategy;
+import be.thebeehive.htf.client.FixedValues;
+import be.thebeehive.htf.client.GreedyStrategy;
+import be.thebeehive.htf.client.MyClient;
+import be.thebeehive.htf.client.PortfolioRunner;
+import be.thebeehive.htf.client.RolloutStrategy;
+import be.thebeehive.htf.client.ShipEvaluator;
+import be.thebeehive.htf.library.RoundDeadline;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+import be.thebeehive.htf.simulation.LoopbackHtfClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Scoring, simulating and selecting the actions of a round.
+ * The selection benchmarks do a fixed amount of work, {@value #MAX_NODES} search nodes and {@value #MAX_ROLLOUTS}
+ * rollouts per candidate, against a deadline that is never reached, so the largest payloads measure the search
+ * instead of the round deadline.
+ */
+@State(Scope.Thread)
+public class DecideBenchmark {
+
+    static final long MAX_NODES = 1 << 16;
+    static final int MAX_ROLLOUTS = 64;
+    private static final long DEADLINE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Param({RoundPayloads.RECORDED, "5x10x4", "20x40x16", "100x200x64"})
+    public String payload;
+
+    private GameRoundServerMessage msg;
+    private List<Action> actions;
+    private Values ship;
+    private FixedValues fixedShip;
+    private FixedValues[] fixedActions;
+    private FixedValues scratch;
+    private MyClient myClient;
+    private LoopbackHtfClient client;
+    private ActionSubsetOptimizer optimizer;
+    private PortfolioRunner portfolio;
+    private PrintStream stdout;
+
+    @Setup
+    public void setUp() throws Exception {
+        msg = RoundPayloads.message(payload);
+        actions = msg.getActions();
+        ship = msg.getOurSpaceship().getValues();
+        fixedShip = FixedValues.of(ship);
+        fixedActions = new FixedValues[actions.size()];
+        for (int i = 0; i < fixedActions.length; i++) {
+            fixedActions[i] = FixedValues.of(actions.get(i).getValues());
+        }
+        scratch = new FixedValues();
+        optimizer = new ActionSubsetOptimizer(new ShipEvaluator(), MAX_NODES);
+        portfolio = new PortfolioRunner(
+                Arrays.asList(new GreedyStrategy(), new ExhaustiveStrategy(optimizer, new ShipEvaluator(), new GreedyStrategy()),
+                        new RolloutStrategy(ForkJoinPool.commonPool(), RolloutStrategy.DEFAULT_HORIZON, MAX_ROLLOUTS, new ShipEvaluator())),
+                ForkJoinPool.commonPool(),
+                new ShipEvaluator()
+        );
+        myClient = new MyClient(portfolio);
+        AtomicReference<SelectActionsClientMessage> reply = new AtomicReference<>();
+        client = new LoopbackHtfClient(myClient, reply::set);
+
+        stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void scoreAction(Blackhole blackhole) {
+        for (Action action : actions) {
+            blackhole.consume(ClientUtils.scoreAction(action, 40, 20));
+        }
+    }
+
+    @Benchmark
+    public Values sumValues() {
+        Values values = ship;
+        for (Action action : actions) {
+            values = ClientUtils.sumValues(values, action.getValues());
+        }
+        return values;
+    }
+
+    @Benchmark
+    public FixedValues sumFixedValues() {
+        FixedValues values = scratch.set(fixedShip);
+        for (FixedValues action : fixedActions) {
+            values.add(action);
+        }
+        return values;
+    }
+
+    @Benchmark
+    public ActionSubsetOptimizer.Result optimizer() {
+        return optimizer.optimize(msg, Collections.<Long>emptyList(), System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DEADLINE_MILLIS));
+    }
+
+    @Benchmark
+    public void myClientRound() throws Exception {
+        myClient.onGameRoundServerMessage(client, msg, RoundDeadline.startingNow(msg.getRoundId(), msg.getRound(), DEADLINE_MILLIS, TimeUnit.MILLISECONDS));
+    }
+}
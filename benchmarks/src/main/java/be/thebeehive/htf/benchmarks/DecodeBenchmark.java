@@ -0,0 +1,67 @@
+package be.thebeehive.htf.benchmarks;
+
+import be.thebeehive.htf.library.protocol.server.ServerMessage;
+import be.thebeehive.htf.library.protocol.server.ServerMessageDecoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decoding a round as {@code HtfClient.onMessage} receives it.
+ */
+@State(Scope.Thread)
+public class DecodeBenchmark {
+
+    @Param({RoundPayloads.RECORDED, "5x10x4", "20x40x16", "100x200x64"})
+    public String payload;
+
+    private String json;
+    private ByteBuffer utf8;
+    private ObjectMapper objectMapper;
+    private ServerMessageDecoder pooledDecoder;
+    private ServerMessageDecoder decoder;
+
+    @Setup
+    public void setUp() {
+        json = RoundPayloads.json(payload);
+        utf8 = ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
+        objectMapper = new ObjectMapper();
+        pooledDecoder = new ServerMessageDecoder(objectMapper, true);
+        decoder = new ServerMessageDecoder(objectMapper, false);
+    }
+
+    @Benchmark
+    public ServerMessage objectMapper() throws IOException {
+        return objectMapper.readValue(json, ServerMessage.class);
+    }
+
+    @Benchmark
+    public ServerMessage streamingDecoder() throws IOException {
+        return decoder.decode(json);
+    }
+
+    @Benchmark
+    public ServerMessage pooledStreamingDecoder() throws IOException {
+        return pooledDecoder.decode(json);
+    }
+
+    /**
+     * The frame payload decoded to a String first, as {@code onMessage(String)} receives it.
+     */
+    @Benchmark
+    public ServerMessage pooledStreamingDecoderFromFrameString() throws IOException {
+        return pooledDecoder.decode(StandardCharsets.UTF_8.decode(utf8.duplicate()).toString());
+    }
+
+    @Benchmark
+    public ServerMessage pooledStreamingDecoderFromFrameBytes() throws IOException {
+        return pooledDecoder.decode(utf8);
+    }
+}
@@ -0,0 +1,68 @@
+package be.thebeehive.htf.benchmarks;
+
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.client.SelectActionsEncoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encoding the reply with the {@code ObjectMapper}, followed by the UTF-8 encoding of the WebSocket layer,
+ * against the {@link SelectActionsEncoder} {@code HtfClient.send} uses, from boxed and from primitive ids.
+ */
+@State(Scope.Thread)
+public class EncodeBenchmark {
+
+    @Param({"0", "5", "20", "100"})
+    public int actionCount;
+
+    private ObjectMapper objectMapper;
+    private SelectActionsClientMessage msg;
+    private long[] actionIdArray;
+    private SelectActionsEncoder encoder;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        List<Long> actionIds = new ArrayList<>();
+        for (int i = 0; i < actionCount; i++) {
+            actionIds.add(1000L + i);
+        }
+        msg = new SelectActionsClientMessage(UUID.randomUUID(), actionIds);
+        actionIdArray = new long[actionCount];
+        for (int i = 0; i < actionCount; i++) {
+            actionIdArray[i] = actionIds.get(i);
+        }
+        encoder = new SelectActionsEncoder();
+    }
+
+    @Benchmark
+    public String objectMapper() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(msg);
+    }
+
+    @Benchmark
+    public byte[] objectMapperToFrame() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(msg).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ByteBuffer encoder() {
+        return encoder.encode(msg);
+    }
+
+    @Benchmark
+    public ByteBuffer encoderPrimitive() {
+        return encoder.encode(msg.getRoundId(), actionIdArray, actionCount);
+    }
+}
@@ -0,0 +1,72 @@
+package be.thebeehive.htf.benchmarks;
+
+import be.thebeehive.htf.client.ActionSubsetOptimizer;
+import be.thebeehive.htf.client.RolloutStrategy;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monte Carlo rollouts of a round with {@link RolloutStrategy}, for a budget of 50 ms per round.
+ * The recorded payload is left out: its spaceship is already dead, so there is nothing to roll out.
+ * The {@code rollouts} counter is reported per second; divide it by {@code parallelism} for the
+ * rollouts per second per core.
+ */
+@State(Scope.Benchmark)
+public class RolloutBenchmark {
+
+    private static final long BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Param({"5x10x4", "10x20x4"})
+    public String payload;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private GameRoundServerMessage msg;
+    private List<Long> seed;
+    private RolloutStrategy strategy;
+
+    @Setup
+    public void setUp() {
+        msg = RoundPayloads.message(payload);
+        seed = new ActionSubsetOptimizer()
+                .optimize(msg, Collections.<Long>emptyList(), System.nanoTime() + BUDGET_NANOS)
+                .getActionIds();
+        strategy = new RolloutStrategy(parallelism, RolloutStrategy.DEFAULT_HORIZON);
+    }
+
+    @TearDown
+    public void tearDown() {
+        strategy.close();
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long rollouts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rollouts = 0;
+        }
+    }
+
+    @Benchmark
+    public RolloutStrategy.Result choose(Counters counters) {
+        RolloutStrategy.Result result = strategy.choose(msg, seed, System.nanoTime() + BUDGET_NANOS);
+        counters.rollouts += result.getRollouts();
+        return result;
+    }
+}
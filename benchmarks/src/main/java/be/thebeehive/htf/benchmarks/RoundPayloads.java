@@ -0,0 +1,147 @@
+package be.thebeehive.htf.benchmarks;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Checkpoint;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Spaceship;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+import be.thebeehive.htf.library.protocol.server.ServerMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * The round payloads the benchmarks run on.
+ * <p>
+ * {@code recorded} is a round captured from the {@link be.thebeehive.htf.simulation.LocalGameServer}.
+ * The synthetic payloads are named {@code effects x actions x competingSpaceships}, e.g. {@code 10x20x4}.
+ */
+public final class RoundPayloads {
+
+    public static final String RECORDED = "recorded";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private RoundPayloads() {
+
+    }
+
+    /**
+     * Returns the JSON of the named payload, as received from the server.
+     */
+    public static String json(String payload) {
+        if (RECORDED.equals(payload)) {
+            return resource("/rounds/recorded-round.json");
+        }
+        try {
+            return OBJECT_MAPPER.writerFor(ServerMessage.class).writeValueAsString(message(payload));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Returns the decoded message of the named payload.
+     */
+    public static GameRoundServerMessage message(String payload) {
+        if (RECORDED.equals(payload)) {
+            try {
+                return (GameRoundServerMessage) OBJECT_MAPPER.readValue(json(payload), ServerMessage.class);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        String[] counts = payload.split("x");
+        return synthetic(Integer.parseInt(counts[0]), Integer.parseInt(counts[1]), Integer.parseInt(counts[2]));
+    }
+
+    /**
+     * Generates a round with the given number of effects, actions and competing spaceships.
+     * Half of the actions, up to the number of effects, remove an effect.
+     */
+    public static GameRoundServerMessage synthetic(int effectCount, int actionCount, int competingCount) {
+        Random random = new Random(effectCount * 31L + actionCount);
+
+        GameRoundServerMessage msg = new GameRoundServerMessage();
+        msg.setRound(12);
+        msg.setRoundId(new UUID(random.nextLong(), random.nextLong()));
+
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setRound(20);
+        checkpoint.setValues(values(-30, 0, -16, 0));
+        msg.setNextCheckpoint(checkpoint);
+
+        List<Effect> effects = new ArrayList<>();
+        for (int i = 0; i < effectCount; i++) {
+            Effect effect = new Effect();
+            effect.setId(i);
+            effect.setStep(1 + random.nextInt(5));
+            effect.setValues(values(-random.nextInt(20), 0, -random.nextInt(10), 0));
+            effects.add(effect);
+        }
+        msg.setEffects(effects);
+
+        List<Action> actions = new ArrayList<>();
+        for (int i = 0; i < actionCount; i++) {
+            Action action = new Action();
+            action.setId(1000 + i);
+            action.setEffectId(i % 2 == 0 && i / 2 < effectCount ? i / 2 : -1);
+            action.setValues(values(random.nextInt(30) - 10, random.nextInt(10) - 5, random.nextInt(20) - 10, random.nextInt(10) - 5));
+            actions.add(action);
+        }
+        msg.setActions(actions);
+
+        msg.setOurSpaceship(spaceship("player", random));
+        List<Spaceship> competing = new ArrayList<>();
+        for (int i = 0; i < competingCount; i++) {
+            competing.add(spaceship("bot-" + i, random));
+        }
+        msg.setCompetingSpaceships(competing);
+        return msg;
+    }
+
+    private static Spaceship spaceship(String name, Random random) {
+        Spaceship spaceship = new Spaceship();
+        spaceship.setName(name);
+        spaceship.setValues(values(60 + random.nextInt(40), 100, 60 + random.nextInt(40), 100));
+        spaceship.setAlive(true);
+        return spaceship;
+    }
+
+    private static Values values(long health, long maxHealth, long crew, long maxCrew) {
+        Values values = new Values();
+        values.setHealth(BigDecimal.valueOf(health));
+        values.setMaxHealth(BigDecimal.valueOf(maxHealth));
+        values.setCrew(BigDecimal.valueOf(crew));
+        values.setMaxCrew(BigDecimal.valueOf(maxCrew));
+        return values;
+    }
+
+    private static String resource(String name) {
+        try (InputStream in = RoundPayloads.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package be.thebeehive.htf.benchmarks;
+
+import be.thebeehive.htf.client.ActionSubsetOptimizer;
+import be.thebeehive.htf.library.TaskExecutors;
+import be.thebeehive.htf.library.ThreadMode;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many sessions that block while waiting for their next round, as sessions waiting on the network do,
+ * running on the executors of {@link TaskExecutors} with platform threads and with virtual threads.
+ * The platform pool has one thread per processor. The virtual mode needs Java 21 and the multi-release JAR, so only
+ * platform threads run by default: {@link BenchmarkMain} adds the virtual mode when the JVM supports it, on the
+ * command line add {@code -p mode=PLATFORM,VIRTUAL}.
+ */
+@State(Scope.Benchmark)
+public class ThreadModeBenchmark {
+
+    private static final int ROUNDS = 10;
+    private static final long WAIT_MILLIS = 1;
+
+    @Param({"PLATFORM"})
+    public ThreadMode mode;
+
+    @Param({"100", "1000"})
+    public int sessions;
+
+    private GameRoundServerMessage msg;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() throws Exception {
+        if (!TaskExecutors.isSupported(mode)) {
+            throw new UnsupportedOperationException(mode + " threads are not supported on Java " + System.getProperty("java.version")
+                    + ", run with -p mode=" + ThreadMode.PLATFORM);
+        }
+        msg = RoundPayloads.message(RoundPayloads.RECORDED);
+        executor = TaskExecutors.newTaskExecutor(mode, "benchmark-session", Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public long sessions() throws Exception {
+        List<Future<Long>> results = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            results.add(executor.submit(this::playSession));
+        }
+        long nodes = 0;
+        for (Future<Long> result : results) {
+            nodes += result.get();
+        }
+        return nodes;
+    }
+
+    private long playSession() throws InterruptedException {
+        ActionSubsetOptimizer optimizer = new ActionSubsetOptimizer();
+        long nodes = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            Thread.sleep(WAIT_MILLIS);
+            nodes += optimizer.optimize(msg, Collections.<Long>emptyList(), System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(880)).getNodes();
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,78 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+/**
+ * The kind of an action, by what it is mostly good for.
+ */
+public enum ActionKind {
+    /**
+     * Removes an effect of the round.
+     */
+    REMOVE_EFFECT,
+    /**
+     * Mostly increases health.
+     */
+    HEAL,
+    /**
+     * Mostly increases crew.
+     */
+    RECRUIT,
+    /**
+     * Mostly increases max health.
+     */
+    MAX_HEALTH,
+    /**
+     * Mostly increases max crew.
+     */
+    MAX_CREW,
+    /**
+     * Increases nothing.
+     */
+    OTHER;
+
+    /**
+     * Classifies an action.
+     *
+     * @param action The action to classify.
+     * @return {@link #REMOVE_EFFECT} for actions that remove an effect, otherwise the kind of the largest gain.
+     */
+    public static ActionKind of(Action action) {
+        Values values = action.getValues();
+        return of(
+                action.getEffectId(),
+                values.getHealth().doubleValue(),
+                values.getMaxHealth().doubleValue(),
+                values.getCrew().doubleValue(),
+                values.getMaxCrew().doubleValue()
+        );
+    }
+
+    /**
+     * Classifies an action by its raw components.
+     */
+    public static ActionKind of(long effectId, double health, double maxHealth, double crew, double maxCrew) {
+        if (effectId != -1) {
+            return REMOVE_EFFECT;
+        }
+        ActionKind kind = OTHER;
+        double largest = 0;
+        if (health > largest) {
+            kind = HEAL;
+            largest = health;
+        }
+        if (crew > largest) {
+            kind = RECRUIT;
+            largest = crew;
+        }
+        if (maxHealth > largest) {
+            kind = MAX_HEALTH;
+            largest = maxHealth;
+        }
+        if (maxCrew > largest) {
+            kind = MAX_CREW;
+        }
+        return kind;
+    }
+}
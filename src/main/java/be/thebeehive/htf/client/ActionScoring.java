@@ -0,0 +1,46 @@
+package be.thebeehive.htf.client;
+
+/**
+ * The scoring loop of {@link ActionTable}.
+ * <p>
+ * The conditional terms of {@link ClientUtils#scoreAction(double, double, double, double, double, double)} are
+ * written with {@link Math#min} and {@link Math#max}, and added in the same order, so the scores are the same
+ * to the last bit and the loop has no branches. On Java 21 this class is replaced by one that can use the
+ * Vector API.
+ */
+final class ActionScoring {
+
+    private ActionScoring() {
+
+    }
+
+    static boolean isVectorized() {
+        return false;
+    }
+
+    static void score(double[] health, double[] maxHealth, double[] crew, double[] maxCrew, double[] traded,
+                      int length, double[] target) {
+        scoreScalar(health, maxHealth, crew, maxCrew, traded, 0, length, target);
+    }
+
+    static void scoreScalar(double[] health, double[] maxHealth, double[] crew, double[] maxCrew, double[] traded,
+                            int from, int to, double[] target) {
+        for (int i = from; i < to; i++) {
+            double h = health[i];
+            double mh = maxHealth[i];
+            double c = crew[i];
+            double mc = maxCrew[i];
+            double score = 0.0;
+            score += h * 1.2;
+            score += c * 1.2;
+            score += Math.min(mh, 0.0) * 3;
+            score += Math.min(mc, 0.0) * 3;
+            score += Math.min(h, 0.0) * 2.0;
+            score += Math.min(c, 0.0) * 2.0;
+            score += traded[i] * 1.5;
+            score += Math.max(mh, 0.0) * 1.8;
+            score += Math.max(mc, 0.0) * 1.8;
+            target[i] = score;
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Searches the subsets of the available actions of a round for the one that leaves
+ * our spaceship in the best state, according to a {@link ShipEvaluator}.
+ * <p>
+ * The resulting spaceship is simulated with the semantics of {@link ClientUtils#sumValues(Values, Values)}:
+ * the selected actions are applied first, followed by every effect that was not removed by
+ * a selected action (in order of their step) and finally the checkpoint values if the
+ * checkpoint is reached at the start of the next round. A spaceship that is dead at any point
+ * of this sequence scores {@link Double#NEGATIVE_INFINITY}. All values are converted to
+ * {@link FixedValues} once per search, so evaluating a subset does not allocate.
+ * <p>
+ * The search is a depth-first branch-and-bound over include/exclude decisions. Actions are
+ * explored in order of {@link ClientUtils#scoreAction}, so good subsets are found early, and
+ * branches whose optimistic bound cannot beat the best subset found so far are pruned.
+ * When the deadline passes, the thread is interrupted, or the optimizer was given a node budget and it runs out,
+ * the best subset found so far is returned.
+ */
+public class ActionSubsetOptimizer {
+
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private static final int HEALTH = 0;
+    private static final int MAX_HEALTH = 1;
+    private static final int CREW = 2;
+    private static final int MAX_CREW = 3;
+
+    private final ShipEvaluator evaluator;
+    private final long maxNodes;
+
+    public ActionSubsetOptimizer() {
+        this(new ShipEvaluator());
+    }
+
+    public ActionSubsetOptimizer(ShipEvaluator evaluator) {
+        this(evaluator, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param evaluator the evaluator to score with
+     * @param maxNodes  the number of search nodes after which a search stops as if its deadline passed, to do the
+     *                  same work however fast the machine is
+     */
+    public ActionSubsetOptimizer(ShipEvaluator evaluator, long maxNodes) {
+        this.evaluator = evaluator;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Finds the best subset of the actions of the given round.
+     *
+     * @param msg           The current round.
+     * @param seed          Action ids of a known good subset, used as the initial incumbent. May be empty.
+     * @param deadlineNanos The {@link System#nanoTime()} at which the search must stop.
+     * @return The best subset found before the deadline.
+     */
+    public Result optimize(GameRoundServerMessage msg, List<Long> seed, long deadlineNanos) {
+        return optimize(msg, seed, deadlineNanos, this.evaluator);
+    }
+
+    /**
+     * Finds the best subset of the actions of the given round, scoring with the given evaluator
+     * instead of the one of this optimizer.
+     *
+     * @param msg           The current round.
+     * @param seed          Action ids of a known good subset, used as the initial incumbent. May be empty.
+     * @param deadlineNanos The {@link System#nanoTime()} at which the search must stop.
+     * @param evaluator     The evaluator for this search.
+     * @return The best subset found before the deadline.
+     */
+    public Result optimize(GameRoundServerMessage msg, List<Long> seed, long deadlineNanos, ShipEvaluator evaluator) {
+        Search search = new Search(msg, deadlineNanos, maxNodes, evaluator);
+        search.run(seed);
+        return search.toResult();
+    }
+
+    /**
+     * Scores a given subset of the actions of a round without searching, e.g. to compare the answers of
+     * several strategies. Unknown and duplicate action ids are ignored.
+     *
+     * @param msg       The current round.
+     * @param actionIds The action ids of the subset.
+     * @param evaluator The evaluator to score with.
+     * @return The score of the resulting spaceship, or {@link Double#NEGATIVE_INFINITY} if it dies.
+     */
+    public double score(GameRoundServerMessage msg, List<Long> actionIds, ShipEvaluator evaluator) {
+        Search search = new Search(msg, Long.MAX_VALUE, maxNodes, evaluator);
+        return search.score(actionIds);
+    }
+
+    /**
+     * The outcome of a search.
+     */
+    public static class Result {
+
+        private final List<Long> actionIds;
+        private final double score;
+        private final long nodes;
+        private final boolean complete;
+
+        public Result(List<Long> actionIds, double score, long nodes, boolean complete) {
+            this.actionIds = actionIds;
+            this.score = score;
+            this.nodes = nodes;
+            this.complete = complete;
+        }
+
+        /**
+         * @return the ids of the selected actions, in the order they were simulated
+         */
+        public List<Long> getActionIds() {
+            return actionIds;
+        }
+
+        /**
+         * @return the score of the resulting spaceship, or {@link Double#NEGATIVE_INFINITY} if no subset survives
+         */
+        public double getScore() {
+            return score;
+        }
+
+        /**
+         * @return the number of search nodes that were visited
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /**
+         * @return true if the whole search space was covered before the deadline or the node budget ran out
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "actionIds=" + actionIds +
+                    ", score=" + score +
+                    ", nodes=" + nodes +
+                    ", complete=" + complete +
+                    '}';
+        }
+    }
+
+    /**
+     * The mutable state of a single search.
+     */
+    private static class Search {
+
+        private final long deadlineNanos;
+        private final long maxNodes;
+        private final ShipEvaluator evaluator;
+
+        private final FixedValues start;
+        private final FixedValues checkpoint;
+        private final Action[] actions;
+        private final FixedValues[] actionValues;
+        private final FixedValues[] effectValues;
+        private final int[] cancels;
+        private final double[][] actionDeltas;
+        private final double[][] effectDeltas;
+        private final Map<Long, Integer> actionIndexById = new HashMap<>();
+
+        private final double[] fixed = new double[4];
+        private final double[] optimistic = new double[4];
+        private final double[] effectSum = new double[4];
+        private final int[] cancelCount;
+        private final int[] remainingCancellers;
+        private final boolean[] removed;
+        private final FixedValues scratch = new FixedValues();
+        private final int[] selected;
+        private int selectedSize;
+
+        private final int[] best;
+        private int bestSize;
+        private double bestScore = Double.NEGATIVE_INFINITY;
+
+        private long nodes;
+        private boolean timedOut;
+
+        Search(GameRoundServerMessage msg, long deadlineNanos, long maxNodes, ShipEvaluator evaluator) {
+            this.deadlineNanos = deadlineNanos;
+            this.maxNodes = maxNodes;
+            this.evaluator = evaluator;
+            this.start = FixedValues.of(msg.getOurSpaceship().getValues());
+
+            GameRoundServerMessage.Checkpoint next = msg.getNextCheckpoint();
+            this.checkpoint = next != null && next.getRound() == msg.getRound() + 1 ? FixedValues.of(next.getValues()) : null;
+
+            List<Effect> effects = new ArrayList<>(msg.getEffects());
+            effects.sort(Comparator.comparingInt(Effect::getStep));
+            Map<Long, Integer> effectIndexById = new HashMap<>();
+            this.effectValues = new FixedValues[effects.size()];
+            this.effectDeltas = new double[effects.size()][];
+            for (int j = 0; j < effects.size(); j++) {
+                effectIndexById.put(effects.get(j).getId(), j);
+                this.effectValues[j] = FixedValues.of(effects.get(j).getValues());
+                this.effectDeltas[j] = toDeltas(this.effectValues[j]);
+            }
+
+            this.actions = msg.getActions().toArray(new Action[0]);
+            this.actionValues = new FixedValues[actions.length];
+            for (int i = 0; i < actions.length; i++) {
+                actionValues[i] = FixedValues.of(actions[i].getValues());
+            }
+            sortByScore(actions, actionValues, effectValues);
+            this.cancels = new int[actions.length];
+            this.actionDeltas = new double[actions.length][];
+            this.cancelCount = new int[effects.size()];
+            this.remainingCancellers = new int[effects.size()];
+            this.removed = new boolean[effects.size()];
+            for (int i = 0; i < actions.length; i++) {
+                actionIndexById.put(actions[i].getId(), i);
+                actionDeltas[i] = toDeltas(actionValues[i]);
+                Integer effectIndex = effectIndexById.get(actions[i].getEffectId());
+                cancels[i] = effectIndex == null ? -1 : effectIndex;
+                if (cancels[i] >= 0) {
+                    remainingCancellers[cancels[i]]++;
+                }
+            }
+            this.selected = new int[actions.length];
+            this.best = new int[actions.length];
+
+            double[] startDeltas = toDeltas(start);
+            double[] checkpointDeltas = checkpoint == null ? new double[4] : toDeltas(checkpoint);
+            for (int c = 0; c < 4; c++) {
+                fixed[c] = startDeltas[c] + checkpointDeltas[c];
+                for (double[] delta : actionDeltas) {
+                    optimistic[c] += Math.max(0, delta[c]);
+                }
+            }
+            for (int j = 0; j < effectDeltas.length; j++) {
+                addEffectContribution(j, 1);
+            }
+        }
+
+        void run(List<Long> seed) {
+            bestScore = evaluate(selected, 0);
+            bestSize = 0;
+            offerSeed(seed);
+            search(0);
+        }
+
+        Result toResult() {
+            List<Long> actionIds = new ArrayList<>(bestSize);
+            for (int k = 0; k < bestSize; k++) {
+                actionIds.add(actions[best[k]].getId());
+            }
+            return new Result(actionIds, bestScore, nodes, !timedOut);
+        }
+
+        double score(List<Long> actionIds) {
+            int[] indices = new int[actions.length];
+            return evaluate(indices, indicesOf(actionIds, indices));
+        }
+
+        private void offerSeed(List<Long> seed) {
+            if (seed == null || seed.isEmpty()) {
+                return;
+            }
+            int[] indices = new int[actions.length];
+            int size = indicesOf(seed, indices);
+            double score = evaluate(indices, size);
+            if (score > bestScore) {
+                bestScore = score;
+                bestSize = size;
+                System.arraycopy(indices, 0, best, 0, size);
+            }
+        }
+
+        /**
+         * Converts action ids to the indices of the sorted actions, skipping unknown and duplicate ids.
+         *
+         * @return the number of indices
+         */
+        private int indicesOf(List<Long> actionIds, int[] indices) {
+            boolean[] seen = new boolean[actions.length];
+            int size = 0;
+            for (Long id : actionIds) {
+                Integer index = actionIndexById.get(id);
+                if (index != null && !seen[index]) {
+                    seen[index] = true;
+                    indices[size++] = index;
+                }
+            }
+            return size;
+        }
+
+        private void search(int i) {
+            if (timedOut || i == actions.length) {
+                return;
+            }
+            if (++nodes > maxNodes
+                    || ((nodes & (DEADLINE_CHECK_INTERVAL - 1)) == 0
+                    && (System.nanoTime() - deadlineNanos >= 0 || Thread.currentThread().isInterrupted()))) {
+                timedOut = true;
+                return;
+            }
+            if (upperBound() <= bestScore) {
+                return;
+            }
+
+            decide(i, true);
+            double score = evaluate(selected, selectedSize);
+            if (score > bestScore) {
+                bestScore = score;
+                bestSize = selectedSize;
+                System.arraycopy(selected, 0, best, 0, selectedSize);
+            }
+            search(i + 1);
+            undecide(i, true);
+
+            decide(i, false);
+            search(i + 1);
+            undecide(i, false);
+        }
+
+        /**
+         * Upper bound on the score of every subset that extends the current decisions.
+         * Clamping to a maximum only lowers a value and clamping to zero kills the spaceship,
+         * so the unclamped sums of all possible gains bound every surviving outcome.
+         */
+        private double upperBound() {
+            return evaluator.upperBound(
+                    fixed[HEALTH] + optimistic[HEALTH] + effectSum[HEALTH],
+                    fixed[MAX_HEALTH] + optimistic[MAX_HEALTH] + effectSum[MAX_HEALTH],
+                    fixed[CREW] + optimistic[CREW] + effectSum[CREW],
+                    fixed[MAX_CREW] + optimistic[MAX_CREW] + effectSum[MAX_CREW]
+            );
+        }
+
+        private void decide(int i, boolean include) {
+            double[] delta = actionDeltas[i];
+            for (int c = 0; c < 4; c++) {
+                optimistic[c] -= Math.max(0, delta[c]);
+            }
+            int j = cancels[i];
+            if (j >= 0) {
+                addEffectContribution(j, -1);
+                remainingCancellers[j]--;
+                if (include) {
+                    cancelCount[j]++;
+                }
+                addEffectContribution(j, 1);
+            }
+            if (include) {
+                for (int c = 0; c < 4; c++) {
+                    fixed[c] += delta[c];
+                }
+                selected[selectedSize++] = i;
+            }
+        }
+
+        private void undecide(int i, boolean include) {
+            double[] delta = actionDeltas[i];
+            if (include) {
+                for (int c = 0; c < 4; c++) {
+                    fixed[c] -= delta[c];
+                }
+                selectedSize--;
+            }
+            int j = cancels[i];
+            if (j >= 0) {
+                addEffectContribution(j, -1);
+                remainingCancellers[j]++;
+                if (include) {
+                    cancelCount[j]--;
+                }
+                addEffectContribution(j, 1);
+            }
+            for (int c = 0; c < 4; c++) {
+                optimistic[c] += Math.max(0, delta[c]);
+            }
+        }
+
+        /**
+         * An effect that is already removed contributes nothing, one that may still be removed
+         * contributes only its gains and one that can no longer be removed contributes fully.
+         */
+        private void addEffectContribution(int j, int sign) {
+            if (cancelCount[j] > 0) {
+                return;
+            }
+            double[] delta = effectDeltas[j];
+            boolean removable = remainingCancellers[j] > 0;
+            for (int c = 0; c < 4; c++) {
+                effectSum[c] += sign * (removable ? Math.max(0, delta[c]) : delta[c]);
+            }
+        }
+
+        private double evaluate(int[] indices, int size) {
+            FixedValues values = scratch.set(start);
+            for (int k = 0; k < size; k++) {
+                int i = indices[k];
+                if (cancels[i] >= 0) {
+                    removed[cancels[i]] = true;
+                }
+                values.add(actionValues[i]);
+                if (values.isDead()) {
+                    clearRemoved(indices, size);
+                    return Double.NEGATIVE_INFINITY;
+                }
+            }
+            for (int j = 0; j < effectValues.length; j++) {
+                if (!removed[j]) {
+                    values.add(effectValues[j]);
+                    if (values.isDead()) {
+                        clearRemoved(indices, size);
+                        return Double.NEGATIVE_INFINITY;
+                    }
+                }
+            }
+            clearRemoved(indices, size);
+            if (checkpoint != null) {
+                values.add(checkpoint);
+            }
+            return evaluator.evaluate(values);
+        }
+
+        private void clearRemoved(int[] indices, int size) {
+            for (int k = 0; k < size; k++) {
+                if (cancels[indices[k]] >= 0) {
+                    removed[cancels[indices[k]]] = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts the actions, and their values alongside them, by descending {@link ClientUtils#scoreAction}.
+     */
+    private static void sortByScore(Action[] actions, FixedValues[] actionValues, FixedValues[] effectValues) {
+        double totalHealthLoss = 0;
+        double totalCrewLoss = 0;
+        for (FixedValues values : effectValues) {
+            totalHealthLoss += Math.max(0, -values.getHealth());
+            totalCrewLoss += Math.max(0, -values.getCrew());
+        }
+        double[] scores = new double[actions.length];
+        Integer[] order = new Integer[actions.length];
+        for (int i = 0; i < actions.length; i++) {
+            scores[i] = ClientUtils.scoreAction(actionValues[i], totalHealthLoss, totalCrewLoss);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        Action[] sortedActions = actions.clone();
+        FixedValues[] sortedValues = actionValues.clone();
+        for (int i = 0; i < order.length; i++) {
+            actions[i] = sortedActions[order[i]];
+            actionValues[i] = sortedValues[order[i]];
+        }
+    }
+
+    private static double[] toDeltas(FixedValues values) {
+        double[] deltas = new double[4];
+        deltas[HEALTH] = values.getHealth();
+        deltas[MAX_HEALTH] = values.getMaxHealth();
+        deltas[CREW] = values.getCrew();
+        deltas[MAX_CREW] = values.getMaxCrew();
+        return deltas;
+    }
+}
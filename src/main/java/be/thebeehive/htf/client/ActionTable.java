@@ -0,0 +1,288 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The actions and effects of a round as columns of primitives, converted from the message once.
+ * <p>
+ * An action or effect is an index into the columns, in the order of the message. Scoring the actions with
+ * {@link #score(double, double, double[])} is a loop over the columns without branches, which the JIT can
+ * vectorize; on Java 21 it uses the Vector API when the {@code jdk.incubator.vector} module is added. The
+ * scores are the ones of {@link ClientUtils#scoreAction(double, double, double, double, double, double)}.
+ * <p>
+ * A table can be {@link #fill(GameRoundServerMessage) refilled} for every round, its columns only grow.
+ * Instances are not thread-safe.
+ */
+public class ActionTable {
+
+    private static final int INSERTION_RUN = 16;
+
+    private int actionCount;
+    private long[] ids = new long[0];
+    private long[] effectIds = new long[0];
+    private double[] health = new double[0];
+    private double[] maxHealth = new double[0];
+    private double[] crew = new double[0];
+    private double[] maxCrew = new double[0];
+
+    private int effectCount;
+    private long[] effectIdsOfEffects = new long[0];
+    private int[] effectSteps = new int[0];
+    private double[] effectHealth = new double[0];
+    private double[] effectMaxHealth = new double[0];
+    private double[] effectCrew = new double[0];
+    private double[] effectMaxCrew = new double[0];
+
+    /**
+     * @return a new table filled with the given round
+     */
+    public static ActionTable of(GameRoundServerMessage msg) {
+        return new ActionTable().fill(msg);
+    }
+
+    /**
+     * Replaces the contents of this table with the actions and effects of a round.
+     *
+     * @return this table
+     */
+    public ActionTable fill(GameRoundServerMessage msg) {
+        List<Action> actions = msg.getActions();
+        actionCount = actions.size();
+        if (ids.length < actionCount) {
+            ids = new long[actionCount];
+            effectIds = new long[actionCount];
+            health = new double[actionCount];
+            maxHealth = new double[actionCount];
+            crew = new double[actionCount];
+            maxCrew = new double[actionCount];
+        }
+        for (int i = 0; i < actionCount; i++) {
+            Action action = actions.get(i);
+            Values values = action.getValues();
+            ids[i] = action.getId();
+            effectIds[i] = action.getEffectId();
+            health[i] = values.getHealth().doubleValue();
+            maxHealth[i] = values.getMaxHealth().doubleValue();
+            crew[i] = values.getCrew().doubleValue();
+            maxCrew[i] = values.getMaxCrew().doubleValue();
+        }
+
+        List<Effect> effects = msg.getEffects();
+        effectCount = effects.size();
+        if (effectIdsOfEffects.length < effectCount) {
+            effectIdsOfEffects = new long[effectCount];
+            effectSteps = new int[effectCount];
+            effectHealth = new double[effectCount];
+            effectMaxHealth = new double[effectCount];
+            effectCrew = new double[effectCount];
+            effectMaxCrew = new double[effectCount];
+        }
+        for (int j = 0; j < effectCount; j++) {
+            Effect effect = effects.get(j);
+            Values values = effect.getValues();
+            effectIdsOfEffects[j] = effect.getId();
+            effectSteps[j] = effect.getStep();
+            effectHealth[j] = values.getHealth().doubleValue();
+            effectMaxHealth[j] = values.getMaxHealth().doubleValue();
+            effectCrew[j] = values.getCrew().doubleValue();
+            effectMaxCrew[j] = values.getMaxCrew().doubleValue();
+        }
+        return this;
+    }
+
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    public long getId(int action) {
+        return ids[action];
+    }
+
+    /**
+     * @return the id of the effect the action removes, or -1 if it removes none
+     */
+    public long getEffectId(int action) {
+        return effectIds[action];
+    }
+
+    public double getHealth(int action) {
+        return health[action];
+    }
+
+    public double getMaxHealth(int action) {
+        return maxHealth[action];
+    }
+
+    public double getCrew(int action) {
+        return crew[action];
+    }
+
+    public double getMaxCrew(int action) {
+        return maxCrew[action];
+    }
+
+    /**
+     * @return the index of the first action with the given id, or -1 if there is none
+     */
+    public int indexOf(long id) {
+        for (int i = 0; i < actionCount; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getEffectCount() {
+        return effectCount;
+    }
+
+    public long getEffectIdOfEffect(int effect) {
+        return effectIdsOfEffects[effect];
+    }
+
+    public int getEffectStep(int effect) {
+        return effectSteps[effect];
+    }
+
+    public double getEffectHealth(int effect) {
+        return effectHealth[effect];
+    }
+
+    public double getEffectMaxHealth(int effect) {
+        return effectMaxHealth[effect];
+    }
+
+    public double getEffectCrew(int effect) {
+        return effectCrew[effect];
+    }
+
+    public double getEffectMaxCrew(int effect) {
+        return effectMaxCrew[effect];
+    }
+
+    /**
+     * @return the total health damage of the effects, as a positive value
+     */
+    public double getTotalHealthLoss() {
+        return loss(effectHealth);
+    }
+
+    /**
+     * @return the total crew damage of the effects, as a positive value
+     */
+    public double getTotalCrewLoss() {
+        return loss(effectCrew);
+    }
+
+    private double loss(double[] column) {
+        double loss = 0;
+        for (int j = 0; j < effectCount; j++) {
+            loss -= Math.min(column[j], 0);
+        }
+        return loss;
+    }
+
+    /**
+     * Scores every action, see {@link ClientUtils#scoreAction(double, double, double, double, double, double)}.
+     *
+     * @param totalHealthLoss The total health loss to mitigate.
+     * @param totalCrewLoss   The total crew loss to mitigate.
+     * @param target          The array receiving the scores, or null or too small to allocate one.
+     * @return The scores, indexed like the actions.
+     */
+    public double[] score(double totalHealthLoss, double totalCrewLoss, double[] target) {
+        double[] scores = target == null || target.length < actionCount ? new double[actionCount] : target;
+        // The trade-off weighs one column for the whole round, so the kernel does not need to branch on it
+        double[] traded = totalHealthLoss > totalCrewLoss ? crew : health;
+        ActionScoring.score(health, maxHealth, crew, maxCrew, traded, actionCount, scores);
+        return scores;
+    }
+
+    /**
+     * Orders the actions by descending score. Actions with the same score keep the order of the message,
+     * like a stable sort of the actions would.
+     *
+     * @param scores The scores returned by {@link #score(double, double, double[])}.
+     * @return The indexes of the actions, best first.
+     */
+    public int[] orderByScore(double[] scores) {
+        int n = actionCount;
+        // The keys are sorted along with the indexes, so merging does not chase indexes into the scores
+        double[] keys = Arrays.copyOf(scores, n);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int low = 0; low < n; low += INSERTION_RUN) {
+            insertionSort(keys, order, low, Math.min(low + INSERTION_RUN, n));
+        }
+
+        double[] keyBuffer = new double[n];
+        int[] orderBuffer = new int[n];
+        for (int width = INSERTION_RUN; width < n; width <<= 1) {
+            for (int low = 0; low < n; low += width << 1) {
+                int middle = Math.min(low + width, n);
+                merge(keys, order, keyBuffer, orderBuffer, low, middle, Math.min(low + (width << 1), n));
+            }
+            double[] keySwap = keys;
+            keys = keyBuffer;
+            keyBuffer = keySwap;
+            int[] orderSwap = order;
+            order = orderBuffer;
+            orderBuffer = orderSwap;
+        }
+        return order;
+    }
+
+    private static void insertionSort(double[] keys, int[] order, int low, int high) {
+        for (int i = low + 1; i < high; i++) {
+            double key = keys[i];
+            int index = order[i];
+            int j = i - 1;
+            while (j >= low && Double.compare(keys[j], key) < 0) {
+                keys[j + 1] = keys[j];
+                order[j + 1] = order[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            order[j + 1] = index;
+        }
+    }
+
+    private static void merge(double[] keys, int[] order, double[] keyTarget, int[] orderTarget,
+                              int low, int middle, int high) {
+        int left = low;
+        int right = middle;
+        for (int k = low; k < high; k++) {
+            if (right >= high || (left < middle && Double.compare(keys[left], keys[right]) >= 0)) {
+                keyTarget[k] = keys[left];
+                orderTarget[k] = order[left++];
+            } else {
+                keyTarget[k] = keys[right];
+                orderTarget[k] = order[right++];
+            }
+        }
+    }
+
+    /**
+     * @return true if scoring uses the Vector API
+     */
+    public static boolean isVectorized() {
+        return ActionScoring.isVectorized();
+    }
+
+    @Override
+    public String toString() {
+        return "ActionTable{" +
+                "ids=" + Arrays.toString(Arrays.copyOf(ids, actionCount)) +
+                ", effectIds=" + Arrays.toString(Arrays.copyOf(effectIdsOfEffects, effectCount)) +
+                '}';
+    }
+}
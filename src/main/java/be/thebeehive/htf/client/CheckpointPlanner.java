@@ -0,0 +1,420 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Checkpoint;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.util.Arrays;
+
+/**
+ * Plans the rounds until the next checkpoint with dynamic programming over quantized spaceship states.
+ * <p>
+ * Every round the planner chooses one {@link Move}: buy nothing or buy one standalone action of a kind, followed
+ * by the round as predicted by an {@link EffectModel}. At the checkpoint its values are applied and the spaceship
+ * is scored with a {@link ShipEvaluator}; a spaceship that dies on the way scores {@link Double#NEGATIVE_INFINITY}.
+ * <p>
+ * States are rounded to multiples of a step, so move sequences that end up in the same state are solved once:
+ * solved states are kept in a {@link TranspositionTable}, which starts a new generation for every plan. Dead states
+ * and moves that are not expected to be offered are pruned. The planner gives up when its deadline passes or its
+ * thread is interrupted, in which case no plan is returned. A planner makes one plan at a time.
+ */
+public class CheckpointPlanner {
+
+    /**
+     * The number of rounds the planner looks ahead at most. A checkpoint beyond it is not taken into account.
+     */
+    public static final int MAX_HORIZON = 20;
+    public static final double DEFAULT_STEP = 1.0;
+
+    /**
+     * The weight of a component that turns an expected death into survival, see {@link Plan#getEvaluator()}.
+     */
+    static final double CRITICAL_WEIGHT = 4.0;
+    static final double MAX_WEIGHT = 10.0;
+
+    private static final int DEADLINE_CHECK_INTERVAL = 256;
+
+    private final ShipEvaluator evaluator;
+    private final double step;
+    private final TranspositionTable table;
+
+    public CheckpointPlanner() {
+        this(new ShipEvaluator(), DEFAULT_STEP);
+    }
+
+    public CheckpointPlanner(ShipEvaluator evaluator, double step) {
+        this(evaluator, step, new TranspositionTable());
+    }
+
+    public CheckpointPlanner(ShipEvaluator evaluator, double step, TranspositionTable table) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("Step must be positive");
+        }
+        this.evaluator = evaluator;
+        this.step = step;
+        this.table = table;
+    }
+
+    /**
+     * @return the table of solved states, with the counters to size it
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * A purchase the planner can make in a round.
+     */
+    public enum Move {
+        HOLD(null),
+        HEAL(ActionKind.HEAL),
+        RECRUIT(ActionKind.RECRUIT),
+        BUY_MAX_HEALTH(ActionKind.MAX_HEALTH),
+        BUY_MAX_CREW(ActionKind.MAX_CREW);
+
+        private final ActionKind kind;
+
+        Move(ActionKind kind) {
+            this.kind = kind;
+        }
+
+        /**
+         * @return the kind of action bought by this move, or null for {@link #HOLD}
+         */
+        public ActionKind getKind() {
+            return kind;
+        }
+    }
+
+    /**
+     * Plans the rounds from the current one until the next checkpoint.
+     *
+     * @param msg           The current round.
+     * @param model         The prediction of the upcoming rounds.
+     * @param deadlineNanos The {@link System#nanoTime()} at which planning must stop.
+     * @return The plan, or null if the deadline passed first.
+     */
+    public Plan plan(GameRoundServerMessage msg, EffectModel model, long deadlineNanos) {
+        table.newGeneration();
+        Solver solver = new Solver(msg, model, deadlineNanos);
+        return solver.solve();
+    }
+
+    /**
+     * The outcome of planning: a move per round and the value of the states after the current round.
+     */
+    public static class Plan {
+
+        private final long firstRound;
+        private final Move[] moves;
+        private final double expectedScore;
+        private final double[] weights;
+        private final long states;
+        private final ShipEvaluator evaluator;
+
+        Plan(long firstRound, Move[] moves, double expectedScore, double[] weights, long states) {
+            this(firstRound, moves, expectedScore, weights, states, null);
+        }
+
+        private Plan(long firstRound, Move[] moves, double expectedScore, double[] weights, long states, ShipEvaluator evaluator) {
+            this.firstRound = firstRound;
+            this.moves = moves;
+            this.expectedScore = expectedScore;
+            this.weights = weights;
+            this.states = states;
+            this.evaluator = evaluator;
+        }
+
+        /**
+         * @return the same plan, scoring states with the given evaluator instead
+         */
+        public Plan withEvaluator(ShipEvaluator evaluator) {
+            return new Plan(firstRound, moves, expectedScore, weights, states, evaluator);
+        }
+
+        /**
+         * @return the number of rounds planned
+         */
+        public int getHorizon() {
+            return moves.length;
+        }
+
+        /**
+         * @param round A round number.
+         * @return the planned move of the round, {@link Move#HOLD} outside of the plan
+         */
+        public Move getMove(long round) {
+            long index = round - firstRound;
+            return index < 0 || index >= moves.length ? Move.HOLD : moves[(int) index];
+        }
+
+        /**
+         * @return the expected score at the checkpoint when following the plan
+         */
+        public double getExpectedScore() {
+            return expectedScore;
+        }
+
+        /**
+         * @return the number of states that were solved, a state evicted from the table and solved again counts twice
+         */
+        public long getStates() {
+            return states;
+        }
+
+        /**
+         * Scores states after the current round by how much each component is worth at the checkpoint.
+         * The weights are the finite differences of the planned value around the planned state after the
+         * current round, so they rise for components that are about to run out.
+         *
+         * @return the evaluator, or null if the plan does not tell the components apart
+         */
+        public ShipEvaluator getEvaluator() {
+            if (evaluator != null) {
+                return evaluator;
+            }
+            if (weights == null) {
+                return null;
+            }
+            return new ShipEvaluator(
+                    ShipEvaluator.DEFAULT_HEALTH_WEIGHT + weights[EffectModel.HEALTH],
+                    ShipEvaluator.DEFAULT_CREW_WEIGHT + weights[EffectModel.CREW],
+                    ShipEvaluator.DEFAULT_MAX_HEALTH_WEIGHT + weights[EffectModel.MAX_HEALTH],
+                    ShipEvaluator.DEFAULT_MAX_CREW_WEIGHT + weights[EffectModel.MAX_CREW]
+            );
+        }
+
+        @Override
+        public String toString() {
+            return "Plan{" +
+                    "firstRound=" + firstRound +
+                    ", moves=" + Arrays.toString(moves) +
+                    ", expectedScore=" + expectedScore +
+                    ", weights=" + Arrays.toString(weights) +
+                    ", states=" + states +
+                    '}';
+        }
+    }
+
+    /**
+     * The mutable state of a single plan.
+     */
+    private class Solver {
+
+        private final long deadlineNanos;
+        private final long firstRound;
+        private final int horizon;
+        private final double[] start;
+        private final double[] checkpoint;
+        private final double[][] rounds;
+        private final double[][] payoffs = new double[Move.values().length][4];
+        private final boolean[] offered = new boolean[Move.values().length];
+        private long nodes;
+        private long states;
+        private boolean timedOut;
+
+        Solver(GameRoundServerMessage msg, EffectModel model, long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+            this.firstRound = msg.getRound();
+            this.start = toArray(msg.getOurSpaceship().getValues());
+
+            Checkpoint next = msg.getNextCheckpoint();
+            long untilCheckpoint = next == null ? 0 : next.getRound() - firstRound;
+            if (untilCheckpoint > 0 && untilCheckpoint <= MAX_HORIZON) {
+                this.horizon = (int) untilCheckpoint;
+                this.checkpoint = toArray(next.getValues());
+            } else {
+                this.horizon = (int) Math.max(1, Math.min(MAX_HORIZON, untilCheckpoint));
+                this.checkpoint = null;
+            }
+
+            this.rounds = new double[horizon][4];
+            for (int depth = 0; depth < horizon; depth++) {
+                model.expectedRound(firstRound + depth, rounds[depth]);
+            }
+            offered[Move.HOLD.ordinal()] = true;
+            for (Move move : Move.values()) {
+                if (move.getKind() != null) {
+                    model.expectedPayoff(firstRound, move.getKind(), payoffs[move.ordinal()]);
+                    for (double delta : payoffs[move.ordinal()]) {
+                        offered[move.ordinal()] |= delta != 0;
+                    }
+                }
+            }
+        }
+
+        Plan solve() {
+            double expected = value(0, quantize(start.clone()));
+            if (timedOut) {
+                return null;
+            }
+
+            Move[] moves = new Move[horizon];
+            double[] state = quantize(start.clone());
+            double[] afterFirstRound = null;
+            for (int depth = 0; depth < horizon; depth++) {
+                value(depth, state);
+                long entry = table.probe(key(depth, state));
+                moves[depth] = entry == TranspositionTable.MISS ? Move.HOLD : Move.values()[TranspositionTable.move(entry)];
+                if (!transition(state, depth, moves[depth])) {
+                    for (int rest = depth + 1; rest < horizon; rest++) {
+                        moves[rest] = Move.HOLD;
+                    }
+                    break;
+                }
+                quantize(state);
+                if (depth == 0) {
+                    afterFirstRound = state.clone();
+                }
+            }
+
+            double[] weights = afterFirstRound == null ? null : weights(afterFirstRound);
+            if (timedOut) {
+                return null;
+            }
+            return new Plan(firstRound, moves, expected, weights, states);
+        }
+
+        /**
+         * Finite differences of the value after the first round, one component at a time.
+         * The larger of the gain of a bit more and the loss of a bit less is used, a component at its maximum
+         * gains nothing but can still be lost.
+         */
+        private double[] weights(double[] state) {
+            double base = value(1, state);
+            double delta = 5 * step;
+            double[] weights = new double[4];
+            boolean distinct = false;
+            for (int c = 0; c < 4; c++) {
+                double gain = difference(state, c, delta, base);
+                double loss = difference(state, c, -delta, base);
+                weights[c] = Math.max(0, Math.min(MAX_WEIGHT, Math.max(gain, loss)));
+                distinct |= weights[c] > 0;
+            }
+            return distinct ? weights : null;
+        }
+
+        private double difference(double[] state, int component, double delta, double base) {
+            double[] shifted = state.clone();
+            shifted[component] = Math.max(0, shifted[component] + delta);
+            double value = value(1, quantize(shifted));
+            if (base == Double.NEGATIVE_INFINITY) {
+                return value == Double.NEGATIVE_INFINITY ? 0 : CRITICAL_WEIGHT;
+            }
+            if (value == Double.NEGATIVE_INFINITY) {
+                return delta < 0 ? CRITICAL_WEIGHT : 0;
+            }
+            return (value - base) / delta;
+        }
+
+        private double value(int depth, double[] state) {
+            if (isDead(state)) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            if (depth == horizon) {
+                return terminal(state);
+            }
+            long key = key(depth, state);
+            long entry = table.probe(key);
+            if (entry != TranspositionTable.MISS) {
+                return TranspositionTable.score(entry);
+            }
+            if ((++nodes & (DEADLINE_CHECK_INTERVAL - 1)) == 0
+                    && (System.nanoTime() - deadlineNanos >= 0 || Thread.currentThread().isInterrupted())) {
+                timedOut = true;
+            }
+            if (timedOut) {
+                return Double.NEGATIVE_INFINITY;
+            }
+
+            double best = Double.NEGATIVE_INFINITY;
+            int bestMove = Move.HOLD.ordinal();
+            double[] next = new double[4];
+            for (Move move : Move.values()) {
+                if (!offered[move.ordinal()]) {
+                    continue;
+                }
+                System.arraycopy(state, 0, next, 0, 4);
+                if (!transition(next, depth, move)) {
+                    continue;
+                }
+                double value = value(depth + 1, quantize(next));
+                if (value > best) {
+                    best = value;
+                    bestMove = move.ordinal();
+                }
+            }
+            table.store(key, best, bestMove);
+            states++;
+            return best;
+        }
+
+        /**
+         * Applies a move and the predicted round to the state.
+         *
+         * @return false if the spaceship died
+         */
+        private boolean transition(double[] state, int depth, Move move) {
+            if (move != Move.HOLD && !add(state, payoffs[move.ordinal()])) {
+                return false;
+            }
+            return add(state, rounds[depth]);
+        }
+
+        private double terminal(double[] state) {
+            if (checkpoint != null) {
+                double[] end = state.clone();
+                if (!add(end, checkpoint)) {
+                    return Double.NEGATIVE_INFINITY;
+                }
+                return evaluator.evaluate(end[EffectModel.HEALTH], end[EffectModel.MAX_HEALTH], end[EffectModel.CREW], end[EffectModel.MAX_CREW]);
+            }
+            return evaluator.evaluate(state[EffectModel.HEALTH], state[EffectModel.MAX_HEALTH], state[EffectModel.CREW], state[EffectModel.MAX_CREW]);
+        }
+
+        private double[] quantize(double[] state) {
+            for (int c = 0; c < 4; c++) {
+                state[c] = Math.round(state[c] / step) * step;
+            }
+            return state;
+        }
+
+        private long key(int depth, double[] state) {
+            return TranspositionTable.key(
+                    firstRound + depth,
+                    Math.round(state[EffectModel.HEALTH] / step),
+                    Math.round(state[EffectModel.MAX_HEALTH] / step),
+                    Math.round(state[EffectModel.CREW] / step),
+                    Math.round(state[EffectModel.MAX_CREW] / step)
+            );
+        }
+    }
+
+    /**
+     * Adds deltas with the rules of {@link ClientUtils#sumValues(Values, Values)}.
+     *
+     * @return false if the spaceship died
+     */
+    private static boolean add(double[] state, double[] delta) {
+        double maxHealth = Math.max(0, state[EffectModel.MAX_HEALTH] + delta[EffectModel.MAX_HEALTH]);
+        double maxCrew = Math.max(0, state[EffectModel.MAX_CREW] + delta[EffectModel.MAX_CREW]);
+        state[EffectModel.HEALTH] = Math.max(0, Math.min(maxHealth, state[EffectModel.HEALTH] + delta[EffectModel.HEALTH]));
+        state[EffectModel.CREW] = Math.max(0, Math.min(maxCrew, state[EffectModel.CREW] + delta[EffectModel.CREW]));
+        state[EffectModel.MAX_HEALTH] = maxHealth;
+        state[EffectModel.MAX_CREW] = maxCrew;
+        return !isDead(state);
+    }
+
+    private static boolean isDead(double[] state) {
+        return state[EffectModel.HEALTH] <= 0 || state[EffectModel.CREW] <= 0;
+    }
+
+    private static double[] toArray(Values values) {
+        double[] array = new double[4];
+        array[EffectModel.HEALTH] = values.getHealth().doubleValue();
+        array[EffectModel.MAX_HEALTH] = values.getMaxHealth().doubleValue();
+        array[EffectModel.CREW] = values.getCrew().doubleValue();
+        array[EffectModel.MAX_CREW] = values.getMaxCrew().doubleValue();
+        return array;
+    }
+}
@@ -59,6 +59,19 @@ public class ClientUtils {
         return sum;
     }
 
+    /**
+     * Sums two FixedValues objects into a target, ensuring that health and crew do not exceed their
+     * maximums or drop below zero. Unlike {@link #sumValues(Values, Values)} this does not allocate.
+     *
+     * @param original  The original FixedValues.
+     * @param newValues The FixedValues to add.
+     * @param target    The FixedValues receiving the sum. May be the same instance as original.
+     * @return The target.
+     */
+    public static FixedValues sumValues(FixedValues original, FixedValues newValues, FixedValues target) {
+        return target.set(original).add(newValues);
+    }
+
     /**
      * Checks if the spaceship is dead based on its current Values.
      *
@@ -70,6 +83,16 @@ public class ClientUtils {
                 values.getCrew().compareTo(ZERO) == 0;
     }
 
+    /**
+     * Checks if the spaceship is dead based on its current FixedValues.
+     *
+     * @param values The current FixedValues of the spaceship.
+     * @return True if dead, else false.
+     */
+    public static boolean isDead(FixedValues values) {
+        return values.isDead();
+    }
+
     /**
      * Checks if the spaceship is alive based on its current Values.
      *
@@ -113,19 +136,55 @@ public class ClientUtils {
      * @return The calculated score for the action.
      */
     public static double scoreAction(GameRoundServerMessage.Action action, double totalHealthLoss, double totalCrewLoss) {
+        Values values = action.getValues();
+        return scoreAction(
+                values.getHealth().doubleValue(),
+                values.getMaxHealth().doubleValue(),
+                values.getCrew().doubleValue(),
+                values.getMaxCrew().doubleValue(),
+                totalHealthLoss,
+                totalCrewLoss
+        );
+    }
+
+    /**
+     * Scores the Values of an action, see {@link #scoreAction(GameRoundServerMessage.Action, double, double)}.
+     *
+     * @param values          The FixedValues of the action to score.
+     * @param totalHealthLoss The total health loss to mitigate.
+     * @param totalCrewLoss   The total crew loss to mitigate.
+     * @return The calculated score for the action.
+     */
+    public static double scoreAction(FixedValues values, double totalHealthLoss, double totalCrewLoss) {
+        return scoreAction(
+                values.getHealth(),
+                values.getMaxHealth(),
+                values.getCrew(),
+                values.getMaxCrew(),
+                totalHealthLoss,
+                totalCrewLoss
+        );
+    }
+
+    /**
+     * Scores the components of an action, see {@link #scoreAction(GameRoundServerMessage.Action, double, double)}.
+     *
+     * @return The calculated score for the action.
+     */
+    public static double scoreAction(
+            double healthGain,
+            double maxHealthChange,
+            double crewGain,
+            double maxCrewChange,
+            double totalHealthLoss,
+            double totalCrewLoss
+    ) {
         double score = 0.0;
 
         // Positive impacts
-        double healthGain = action.getValues().getHealth().doubleValue();
-        double crewGain = action.getValues().getCrew().doubleValue();
-
         score += healthGain * 1.2;  // Increase weighting for health gain
         score += crewGain * 1.2;    // Increase weighting for crew gain
 
-        // Negative side effects
-        double maxHealthChange = action.getValues().getMaxHealth().doubleValue();
-        double maxCrewChange = action.getValues().getMaxCrew().doubleValue();
-
         // Penalize actions that reduce maxHealth or maxCrew
         if (maxHealthChange < 0) {
             score += maxHealthChange * 3; // Heavier penalty to discourage reducing max health
@@ -135,11 +194,11 @@ public class ClientUtils {
         }
 
         // Optional: Penalize actions that decrease current health or crew
-        if (action.getValues().getHealth().doubleValue() < 0) {
-            score += action.getValues().getHealth().doubleValue() * 2.0; // Higher penalty for direct health reduction
+        if (healthGain < 0) {
+            score += healthGain * 2.0; // Higher penalty for direct health reduction
         }
-        if (action.getValues().getCrew().doubleValue() < 0) {
-            score += action.getValues().getCrew().doubleValue() * 2.0; // Higher penalty for direct crew reduction
+        if (crewGain < 0) {
+            score += crewGain * 2.0; // Higher penalty for direct crew reduction
         }
 
         // Trade-off logic: Encourage trading health if crew loss is less critical and vice versa
@@ -150,11 +209,11 @@ public class ClientUtils {
         }
 
         // Introduce prioritization for increasing maximum values if they are too low
-        if (action.getValues().getMaxHealth().doubleValue() > 0) {
-            score += action.getValues().getMaxHealth().doubleValue() * 1.8; // Prioritize increasing max health
+        if (maxHealthChange > 0) {
+            score += maxHealthChange * 1.8; // Prioritize increasing max health
         }
-        if (action.getValues().getMaxCrew().doubleValue() > 0) {
-            score += action.getValues().getMaxCrew().doubleValue() * 1.8; // Prioritize increasing max crew
+        if (maxCrewChange > 0) {
+            score += maxCrewChange * 1.8; // Prioritize increasing max crew
         }
 
         return score;
@@ -0,0 +1,33 @@
+package be.thebeehive.htf.client;
+
+/**
+ * Predicts what upcoming rounds do to our spaceship, for planners that look past the current round.
+ * <p>
+ * Deltas are written to arrays of four components in the order health, max health, crew, max crew.
+ */
+public interface EffectModel {
+
+    int HEALTH = 0;
+    int MAX_HEALTH = 1;
+    int CREW = 2;
+    int MAX_CREW = 3;
+
+    /**
+     * Predicts the change of our spaceship in a round in which only effects are removed,
+     * when removing them is cheaper than suffering them.
+     *
+     * @param round  The round to predict.
+     * @param target Receives the expected deltas.
+     */
+    void expectedRound(long round, double[] target);
+
+    /**
+     * Predicts the change of a single standalone action of the given kind.
+     *
+     * @param round  The round to predict.
+     * @param kind   The kind of action.
+     * @param target Receives the expected deltas, all zero when such actions are not expected.
+     */
+    void expectedPayoff(long round, ActionKind kind, double[] target);
+
+}
@@ -0,0 +1,323 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming statistics of the effects and actions seen so far, fed with every round.
+ * <p>
+ * Effect damage to health and crew is kept per round bucket of {@link #ROUND_BUCKET_SIZE} rounds and per step,
+ * action payoffs per {@link ActionKind}, and the net change of a whole round per round bucket. Every series is a
+ * {@link Histogram} with a fixed number of bins, so the memory stays the same however long the session runs, an
+ * update is a few array increments and every query is answered in constant time. Counts are halved when a
+ * series gets large, so old games weigh less than recent ones.
+ * <p>
+ * As an {@link EffectModel}, the round bucket of the predicted round is used, or the closest earlier bucket with
+ * enough rounds in it. Instances are not thread-safe: feed and query them from the thread handling the rounds.
+ * {@link MyClient} does not keep one: as the model of its {@link CheckpointPlanner} it played worse than
+ * {@link RoundEffectModel}. The {@code Backtester} feeds one with the recorded rounds and prints its statistics.
+ */
+public class EffectStatistics implements EffectModel {
+
+    public static final int ROUND_BUCKET_SIZE = 10;
+    public static final int ROUND_BUCKETS = 16;
+    public static final int MAX_STEP = 8;
+
+    /**
+     * The number of rounds a bucket needs before it is used for predictions.
+     */
+    public static final int MIN_ROUNDS = 5;
+
+    private static final int DAMAGE_COMPONENTS = 2;
+
+    private final Histogram[][][] damage = new Histogram[ROUND_BUCKETS][MAX_STEP + 1][DAMAGE_COMPONENTS];
+    private final Histogram[][] roundTotals = new Histogram[ROUND_BUCKETS][4];
+    private final Histogram[][] payoffs = new Histogram[ActionKind.values().length][4];
+    private final Histogram[] effectsPerRound = new Histogram[ROUND_BUCKETS];
+    private long rounds;
+
+    public EffectStatistics() {
+        for (int bucket = 0; bucket < ROUND_BUCKETS; bucket++) {
+            for (int step = 0; step <= MAX_STEP; step++) {
+                for (int c = 0; c < DAMAGE_COMPONENTS; c++) {
+                    damage[bucket][step][c] = new Histogram();
+                }
+            }
+            for (int c = 0; c < 4; c++) {
+                roundTotals[bucket][c] = new Histogram();
+            }
+            effectsPerRound[bucket] = new Histogram();
+        }
+        for (Histogram[] kind : payoffs) {
+            for (int c = 0; c < 4; c++) {
+                kind[c] = new Histogram();
+            }
+        }
+    }
+
+    /**
+     * Adds the effects and actions of a round.
+     *
+     * @param msg The round.
+     */
+    public void observe(GameRoundServerMessage msg) {
+        int bucket = bucket(msg.getRound());
+        rounds++;
+
+        Map<Long, Values> cheapestRemoval = new HashMap<>();
+        for (Action action : msg.getActions()) {
+            Values previous = cheapestRemoval.get(action.getEffectId());
+            if (action.getEffectId() != -1 && (previous == null || magnitude(action.getValues()) < magnitude(previous))) {
+                cheapestRemoval.put(action.getEffectId(), action.getValues());
+            }
+        }
+
+        double[] total = new double[4];
+        for (Effect effect : msg.getEffects()) {
+            Values values = effect.getValues();
+            int step = Math.max(0, Math.min(MAX_STEP, effect.getStep()));
+            double health = values.getHealth().doubleValue();
+            double crew = values.getCrew().doubleValue();
+            damage[bucket][step][0].add(Math.max(0, -health));
+            damage[bucket][step][1].add(Math.max(0, -crew));
+
+            Values removal = cheapestRemoval.get(effect.getId());
+            if (removal != null && magnitude(removal) < magnitude(values)) {
+                values = removal;
+            }
+            total[HEALTH] += values.getHealth().doubleValue();
+            total[MAX_HEALTH] += values.getMaxHealth().doubleValue();
+            total[CREW] += values.getCrew().doubleValue();
+            total[MAX_CREW] += values.getMaxCrew().doubleValue();
+        }
+        for (int c = 0; c < 4; c++) {
+            roundTotals[bucket][c].add(total[c]);
+        }
+        effectsPerRound[bucket].add(msg.getEffects().size());
+
+        for (Action action : msg.getActions()) {
+            Values values = action.getValues();
+            double health = values.getHealth().doubleValue();
+            double maxHealth = values.getMaxHealth().doubleValue();
+            double crew = values.getCrew().doubleValue();
+            double maxCrew = values.getMaxCrew().doubleValue();
+            Histogram[] kind = payoffs[ActionKind.of(action.getEffectId(), health, maxHealth, crew, maxCrew).ordinal()];
+            kind[HEALTH].add(health);
+            kind[MAX_HEALTH].add(maxHealth);
+            kind[CREW].add(crew);
+            kind[MAX_CREW].add(maxCrew);
+        }
+    }
+
+    /**
+     * @return the number of rounds observed
+     */
+    public long getRounds() {
+        return rounds;
+    }
+
+    /**
+     * The damage of single effects of the given step, as positive numbers.
+     *
+     * @param round  A round in the round bucket to query.
+     * @param step   The step of the effects, steps above {@link #MAX_STEP} share its histogram.
+     * @param health true for health damage, false for crew damage
+     */
+    public Histogram getDamage(long round, int step, boolean health) {
+        return damage[bucket(round)][Math.max(0, Math.min(MAX_STEP, step))][health ? 0 : 1];
+    }
+
+    /**
+     * The net change of a component in a whole round, removing the effects that are cheaper to remove.
+     *
+     * @param round     A round in the round bucket to query.
+     * @param component One of the {@link EffectModel} components.
+     */
+    public Histogram getRoundTotal(long round, int component) {
+        return roundTotals[bucket(round)][component];
+    }
+
+    /**
+     * The change of a component by a single action of the given kind.
+     *
+     * @param kind      The kind of action.
+     * @param component One of the {@link EffectModel} components.
+     */
+    public Histogram getPayoff(ActionKind kind, int component) {
+        return payoffs[kind.ordinal()][component];
+    }
+
+    /**
+     * The number of effects in a round.
+     *
+     * @param round A round in the round bucket to query.
+     */
+    public Histogram getEffectsPerRound(long round) {
+        return effectsPerRound[bucket(round)];
+    }
+
+    @Override
+    public void expectedRound(long round, double[] target) {
+        int bucket = bucket(round);
+        while (bucket > 0 && effectsPerRound[bucket].getCount() < MIN_ROUNDS) {
+            bucket--;
+        }
+        for (int c = 0; c < 4; c++) {
+            target[c] = roundTotals[bucket][c].getMean();
+        }
+    }
+
+    @Override
+    public void expectedPayoff(long round, ActionKind kind, double[] target) {
+        for (int c = 0; c < 4; c++) {
+            target[c] = payoffs[kind.ordinal()][c].getMean();
+        }
+    }
+
+    private static int bucket(long round) {
+        return (int) Math.max(0, Math.min(ROUND_BUCKETS - 1, round / ROUND_BUCKET_SIZE));
+    }
+
+    private static double magnitude(Values values) {
+        return Math.abs(values.getHealth().doubleValue())
+                + Math.abs(values.getMaxHealth().doubleValue())
+                + Math.abs(values.getCrew().doubleValue())
+                + Math.abs(values.getMaxCrew().doubleValue());
+    }
+
+    /**
+     * A histogram with a fixed number of log-linear bins.
+     * <p>
+     * Magnitudes below {@link #LINEAR_LIMIT} get a bin per whole unit, larger ones four bins per power of two,
+     * up to 2^20. The sign is kept in separate bins, so negative and positive values are both supported. The
+     * mean is exact, quantiles are accurate to the width of a bin.
+     */
+    public static class Histogram {
+
+        static final int LINEAR_LIMIT = 16;
+        static final int SUB_BINS = 4;
+        static final int MAX_EXPONENT = 20;
+        static final int MAGNITUDE_BINS = LINEAR_LIMIT + (MAX_EXPONENT - 4) * SUB_BINS;
+
+        /**
+         * When the count reaches this, all counts and the sum are halved.
+         */
+        static final long HALVING_COUNT = 1L << 20;
+
+        private final long[] negative = new long[MAGNITUDE_BINS];
+        private final long[] positive = new long[MAGNITUDE_BINS];
+        private long count;
+        private double sum;
+
+        public void add(double value) {
+            double magnitude = Math.abs(value);
+            if (value < 0) {
+                negative[bin(magnitude)]++;
+            } else {
+                positive[bin(magnitude)]++;
+            }
+            sum += value;
+            if (++count >= HALVING_COUNT) {
+                halve();
+            }
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the mean, 0 when empty
+         */
+        public double getMean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        /**
+         * @param quantile A quantile between 0 and 1.
+         * @return the midpoint of the bin holding the quantile, 0 when empty
+         */
+        public double getQuantile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int bin = MAGNITUDE_BINS - 1; bin >= 0; bin--) {
+                seen += negative[bin];
+                if (seen >= rank) {
+                    return -midpoint(bin);
+                }
+            }
+            for (int bin = 0; bin < MAGNITUDE_BINS; bin++) {
+                seen += positive[bin];
+                if (seen >= rank) {
+                    return midpoint(bin);
+                }
+            }
+            return midpoint(MAGNITUDE_BINS - 1);
+        }
+
+        public void clear() {
+            Arrays.fill(negative, 0);
+            Arrays.fill(positive, 0);
+            count = 0;
+            sum = 0;
+        }
+
+        private void halve() {
+            long halved = 0;
+            for (int bin = 0; bin < MAGNITUDE_BINS; bin++) {
+                negative[bin] >>= 1;
+                positive[bin] >>= 1;
+                halved += negative[bin] + positive[bin];
+            }
+            sum = halved == 0 ? 0 : sum * halved / count;
+            count = halved;
+        }
+
+        static int bin(double magnitude) {
+            if (magnitude < LINEAR_LIMIT) {
+                return (int) magnitude;
+            }
+            int exponent = Math.getExponent(magnitude);
+            if (exponent >= MAX_EXPONENT) {
+                return MAGNITUDE_BINS - 1;
+            }
+            int sub = (int) (magnitude / Math.scalb(1.0, exponent - 2)) - SUB_BINS;
+            return LINEAR_LIMIT + (exponent - 4) * SUB_BINS + sub;
+        }
+
+        static double lowerBound(int bin) {
+            if (bin < LINEAR_LIMIT) {
+                return bin;
+            }
+            int exponent = 4 + (bin - LINEAR_LIMIT) / SUB_BINS;
+            int sub = (bin - LINEAR_LIMIT) % SUB_BINS;
+            return Math.scalb(1.0, exponent - 2) * (SUB_BINS + sub);
+        }
+
+        private static double midpoint(int bin) {
+            if (bin == MAGNITUDE_BINS - 1) {
+                return lowerBound(bin);
+            }
+            return (lowerBound(bin) + lowerBound(bin + 1)) / 2;
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{" +
+                    "count=" + count +
+                    ", mean=" + getMean() +
+                    ", p50=" + getQuantile(0.5) +
+                    ", p90=" + getQuantile(0.9) +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+
+import java.util.List;
+
+/**
+ * Searches the subsets of the actions with an {@link ActionSubsetOptimizer}, starting from the answer of a seed
+ * strategy and scoring with the evaluator of the plan when there is one.
+ */
+public class ExhaustiveStrategy implements Strategy {
+
+    public static final String NAME = "exhaustive";
+
+    private final ActionSubsetOptimizer optimizer;
+    private final ShipEvaluator evaluator;
+    private final Strategy seed;
+
+    public ExhaustiveStrategy() {
+        this(new ActionSubsetOptimizer(), new ShipEvaluator(), new GreedyStrategy());
+    }
+
+    /**
+     * @param optimizer the optimizer to search with
+     * @param evaluator the evaluator to score with when the plan has none
+     * @param seed      the strategy of which the answer is the first incumbent of the search
+     */
+    public ExhaustiveStrategy(ActionSubsetOptimizer optimizer, ShipEvaluator evaluator, Strategy seed) {
+        this.optimizer = optimizer;
+        this.evaluator = evaluator;
+        this.seed = seed;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<Long> decide(GameRoundServerMessage msg, CheckpointPlanner.Plan plan, long deadlineNanos) throws Exception {
+        List<Long> start = seed.decide(msg, plan, deadlineNanos);
+        return optimizer.optimize(msg, start, deadlineNanos, evaluatorFor(plan)).getActionIds();
+    }
+
+    /**
+     * @return the evaluator of the plan, or the evaluator of this strategy if the plan has none
+     */
+    public ShipEvaluator evaluatorFor(CheckpointPlanner.Plan plan) {
+        ShipEvaluator planned = plan == null ? null : plan.getEvaluator();
+        return planned == null ? evaluator : planned;
+    }
+}
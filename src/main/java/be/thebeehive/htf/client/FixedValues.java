@@ -0,0 +1,185 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * A mutable, fixed-point counterpart of {@link Values}.
+ * <p>
+ * Every component is stored as a {@code long} scaled by {@link #SCALE}, so values with up to
+ * six decimals are represented exactly. Instances are meant to be converted once per round from
+ * the decoded message and then reused: none of the operations allocate.
+ */
+public final class FixedValues {
+
+    public static final int DECIMALS = 6;
+    public static final long SCALE = 1_000_000L;
+
+    private long health;
+    private long maxHealth;
+    private long crew;
+    private long maxCrew;
+
+    public FixedValues() {
+
+    }
+
+    /**
+     * Creates a new FixedValues from the given Values.
+     *
+     * @param values The Values to convert.
+     * @return A new FixedValues.
+     */
+    public static FixedValues of(Values values) {
+        return new FixedValues().set(values);
+    }
+
+    /**
+     * Overwrites this instance with the given Values.
+     *
+     * @param values The Values to convert.
+     * @return this instance
+     */
+    public FixedValues set(Values values) {
+        this.health = toFixed(values.getHealth());
+        this.maxHealth = toFixed(values.getMaxHealth());
+        this.crew = toFixed(values.getCrew());
+        this.maxCrew = toFixed(values.getMaxCrew());
+        return this;
+    }
+
+    /**
+     * Overwrites this instance with the given FixedValues.
+     *
+     * @param values The FixedValues to copy.
+     * @return this instance
+     */
+    public FixedValues set(FixedValues values) {
+        this.health = values.health;
+        this.maxHealth = values.maxHealth;
+        this.crew = values.crew;
+        this.maxCrew = values.maxCrew;
+        return this;
+    }
+
+    /**
+     * Overwrites this instance with raw, scaled components.
+     *
+     * @return this instance
+     */
+    public FixedValues set(long health, long maxHealth, long crew, long maxCrew) {
+        this.health = health;
+        this.maxHealth = maxHealth;
+        this.crew = crew;
+        this.maxCrew = maxCrew;
+        return this;
+    }
+
+    /**
+     * Adds the given values in place, ensuring that health and crew do not exceed their maximums
+     * or drop below zero. This follows the same rules as {@link ClientUtils#sumValues(Values, Values)}.
+     *
+     * @param values The values to add.
+     * @return this instance
+     */
+    public FixedValues add(FixedValues values) {
+        long newMaxHealth = Math.max(0, this.maxHealth + values.maxHealth);
+        long newMaxCrew = Math.max(0, this.maxCrew + values.maxCrew);
+
+        this.health = Math.max(0, Math.min(newMaxHealth, this.health + values.health));
+        this.crew = Math.max(0, Math.min(newMaxCrew, this.crew + values.crew));
+        this.maxHealth = newMaxHealth;
+        this.maxCrew = newMaxCrew;
+        return this;
+    }
+
+    /**
+     * Checks if the spaceship is dead based on these values.
+     *
+     * @return True if dead, else false.
+     */
+    public boolean isDead() {
+        return health == 0 || crew == 0;
+    }
+
+    /**
+     * Checks if the spaceship is alive based on these values.
+     *
+     * @return True if alive, else false.
+     */
+    public boolean isAlive() {
+        return !isDead();
+    }
+
+    public long getRawHealth() {
+        return health;
+    }
+
+    public long getRawMaxHealth() {
+        return maxHealth;
+    }
+
+    public long getRawCrew() {
+        return crew;
+    }
+
+    public long getRawMaxCrew() {
+        return maxCrew;
+    }
+
+    public double getHealth() {
+        return (double) health / SCALE;
+    }
+
+    public double getMaxHealth() {
+        return (double) maxHealth / SCALE;
+    }
+
+    public double getCrew() {
+        return (double) crew / SCALE;
+    }
+
+    public double getMaxCrew() {
+        return (double) maxCrew / SCALE;
+    }
+
+    /**
+     * Converts these values back to a new {@link Values} object.
+     *
+     * @return A new Values object.
+     */
+    public Values toValues() {
+        Values values = new Values();
+        values.setHealth(toBigDecimal(health));
+        values.setMaxHealth(toBigDecimal(maxHealth));
+        values.setCrew(toBigDecimal(crew));
+        values.setMaxCrew(toBigDecimal(maxCrew));
+        return values;
+    }
+
+    /**
+     * Converts a decimal value to its scaled representation, rounding half-even beyond {@link #DECIMALS}.
+     */
+    public static long toFixed(BigDecimal value) {
+        return value.setScale(DECIMALS, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts a scaled value back to a decimal value.
+     */
+    public static BigDecimal toBigDecimal(long value) {
+        return BigDecimal.valueOf(value, DECIMALS).stripTrailingZeros();
+    }
+
+    @Override
+    public String toString() {
+        return "FixedValues{" +
+                "health=" + toBigDecimal(health).toPlainString() +
+                ", maxHealth=" + toBigDecimal(maxHealth).toPlainString() +
+                ", crew=" + toBigDecimal(crew).toPlainString() +
+                ", maxCrew=" + toBigDecimal(maxCrew).toPlainString() +
+                '}';
+    }
+}
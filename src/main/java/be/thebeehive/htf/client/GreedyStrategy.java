@@ -0,0 +1,206 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.math.BigDecimal.ZERO;
+
+/**
+ * Selects actions with a single greedy pass over the actions ordered by {@link ClientUtils#scoreAction}.
+ * This is fast enough to always finish, so it is also the answer sent when nothing better is ready in time.
+ */
+public class GreedyStrategy implements Strategy {
+
+    public static final String NAME = "greedy";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<Long> decide(GameRoundServerMessage msg, CheckpointPlanner.Plan plan, long deadlineNanos) {
+        ActionTable table = ActionTable.of(msg);
+        double totalHealthLoss = table.getTotalHealthLoss();
+        double totalCrewLoss = table.getTotalCrewLoss();
+
+        // Score each action and order them by score descending
+        double[] scores = table.score(totalHealthLoss, totalCrewLoss, null);
+        int[] order = table.orderByScore(scores);
+
+        return selectGreedy(msg, plan, table, scores, order, totalHealthLoss, totalCrewLoss);
+    }
+
+    /**
+     * @return the total health damage of the effects of the round, as a positive value
+     */
+    public static double totalHealthLoss(GameRoundServerMessage msg) {
+        BigDecimal totalHealthLoss = ClientUtils.getAllEffectValues(msg.getEffects()).stream()
+                .map(GameRoundServerMessage.Values::getHealth)
+                .filter(health -> health.compareTo(ZERO) < 0)
+                .reduce(ZERO, BigDecimal::add);
+        return totalHealthLoss.abs().doubleValue();
+    }
+
+    /**
+     * @return the total crew damage of the effects of the round, as a positive value
+     */
+    public static double totalCrewLoss(GameRoundServerMessage msg) {
+        BigDecimal totalCrewLoss = ClientUtils.getAllEffectValues(msg.getEffects()).stream()
+                .map(GameRoundServerMessage.Values::getCrew)
+                .filter(crew -> crew.compareTo(ZERO) < 0)
+                .reduce(ZERO, BigDecimal::add);
+        return totalCrewLoss.abs().doubleValue();
+    }
+
+    /**
+     * Selects actions with a single greedy pass over the scored actions, followed by
+     * a pass over the remaining actions when the losses are not fully mitigated.
+     */
+    private List<Long> selectGreedy(
+            GameRoundServerMessage msg,
+            CheckpointPlanner.Plan plan,
+            ActionTable table,
+            double[] scores,
+            int[] order,
+            double totalHealthLoss,
+            double totalCrewLoss
+    ) {
+        int actionCount = table.getActionCount();
+        boolean[] selected = new boolean[actionCount];
+        int[] selection = new int[actionCount];
+        int selectionSize = 0;
+
+        double remainingHealthLoss = totalHealthLoss;
+        double remainingCrewLoss = totalCrewLoss;
+        double currentHealthGain = 0;
+        double currentCrewGain = 0;
+
+        // Prioritize max health upgrades when the plan buys them, or in the early game without a plan
+        boolean prioritizeMaxHealth = plan != null
+                ? plan.getMove(msg.getRound()) == CheckpointPlanner.Move.BUY_MAX_HEALTH
+                : msg.getRound() < 20;
+        boolean ensureResourcesForCheckpoint = true; // Always ensure enough resources for the next checkpoint
+
+        GameRoundServerMessage.Values ship = msg.getOurSpaceship().getValues();
+        GameRoundServerMessage.Values checkpointValues = msg.getNextCheckpoint().getValues();
+        double shipHealth = ship.getHealth().doubleValue();
+        double shipMaxHealth = ship.getMaxHealth().doubleValue();
+        double shipCrew = ship.getCrew().doubleValue();
+        double shipMaxCrew = ship.getMaxCrew().doubleValue();
+        double checkpointHealth = checkpointValues.getHealth().doubleValue();
+        double checkpointCrew = checkpointValues.getCrew().doubleValue();
+
+        for (int action : order) {
+            double health = table.getHealth(action);
+            double maxHealth = table.getMaxHealth(action);
+            double crew = table.getCrew(action);
+            double maxCrew = table.getMaxCrew(action);
+
+            // Calculate potential mitigation
+            double healthMitigation = Math.min(health, remainingHealthLoss);
+            double crewMitigation = Math.min(crew, remainingCrewLoss);
+
+            // Only consider actions that mitigate at least one type of loss or provide significant gain
+            if (healthMitigation > 0 || crewMitigation > 0 || health > 0 || crew > 0) {
+                // In the early rounds, prioritize increasing max health to prepare for later large hits
+                if (prioritizeMaxHealth && maxHealth > 0) {
+                    selected[action] = true;
+                    selection[selectionSize++] = action;
+                    continue;
+                }
+
+                // Ensure enough resources before next checkpoint
+                if (ensureResourcesForCheckpoint
+                        && health + shipHealth >= checkpointHealth
+                        && crew + shipCrew >= checkpointCrew
+                        && maxHealth + shipMaxHealth > 0 && maxCrew + shipMaxCrew > 0) {
+                    selected[action] = true;
+                    selection[selectionSize++] = action;
+                    continue;
+                }
+
+                // Avoid actions with negative impact on max health or max crew if possible
+                if (maxHealth < 0 || maxCrew < 0) {
+                    continue;
+                }
+
+                selected[action] = true;
+                selection[selectionSize++] = action;
+
+                // Update remaining losses
+                remainingHealthLoss -= healthMitigation;
+                remainingCrewLoss -= crewMitigation;
+                currentHealthGain += health;
+                currentCrewGain += crew;
+
+                // If all losses are mitigated, break
+                if (remainingHealthLoss <= 0 && remainingCrewLoss <= 0) {
+                    break;
+                }
+            }
+        }
+
+        // Handle any remaining losses by selecting least harmful actions
+        if (remainingHealthLoss > 0 || remainingCrewLoss > 0) {
+            for (int action : order) {
+                if (!selected[action]) {
+                    // Avoid actions with negative impact on max health or max crew if possible
+                    if (table.getMaxHealth(action) < 0 || table.getMaxCrew(action) < 0) {
+                        continue;
+                    }
+                    // Even if the action doesn't fully mitigate, select it to reduce losses
+                    selected[action] = true;
+                    selection[selectionSize++] = action;
+
+                    // Update remaining losses if possible
+                    double healthMitigation = Math.min(table.getHealth(action), remainingHealthLoss);
+                    double crewMitigation = Math.min(table.getCrew(action), remainingCrewLoss);
+
+                    remainingHealthLoss -= healthMitigation;
+                    remainingCrewLoss -= crewMitigation;
+                    currentHealthGain += table.getHealth(action);
+                    currentCrewGain += table.getCrew(action);
+
+                    if (remainingHealthLoss <= 0 && remainingCrewLoss <= 0) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        // Decide whether to execute the selected actions or take no action
+        // Sum with compensation, so a total close to the threshold is not decided by rounding errors
+        double totalActionScore = 0;
+        double compensation = 0;
+        for (int action : order) {
+            if (selected[action]) {
+                double term = scores[action] - compensation;
+                double sum = totalActionScore + term;
+                compensation = (sum - totalActionScore) - term;
+                totalActionScore = sum;
+            }
+        }
+
+        // Introduce a minimum score threshold for executing actions
+        double minimumScoreThreshold = 50.0;
+        if (totalActionScore < minimumScoreThreshold && (currentHealthGain <= totalHealthLoss || currentCrewGain <= totalCrewLoss)) {
+            // If the net benefit is not positive and the current gains do not compensate the losses, or if the total score is below the threshold, opt to take no actions
+            return new ArrayList<>();
+        }
+
+        // In later rounds, avoid actions that could significantly reduce max health or max crew
+        boolean laterGame = msg.getRound() >= 20;
+        List<Long> actionsToBeExecuted = new ArrayList<>(selectionSize);
+        for (int k = 0; k < selectionSize; k++) {
+            int action = selection[k];
+            if (!laterGame || (table.getMaxHealth(action) >= 0 && table.getMaxCrew(action) >= 0)) {
+                actionsToBeExecuted.add(table.getId(action));
+            }
+        }
+        return actionsToBeExecuted;
+    }
+}
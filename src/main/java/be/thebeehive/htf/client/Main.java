@@ -2,23 +2,66 @@ package be.thebeehive.htf.client;
 
 import be.thebeehive.htf.library.EnvironmentType;
 import be.thebeehive.htf.library.HtfClient;
+import be.thebeehive.htf.library.TaskExecutors;
+import be.thebeehive.htf.library.leaderboard.LeaderboardStore;
+import be.thebeehive.htf.library.record.RoundRecorder;
+import be.thebeehive.htf.simulation.WarmUp;
 
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 public class Main {
 
     /**
      * The entry point of the application.
      * Start a HtfClient which connects to the on-board computer of the spaceship.
+     * The first argument overrides the server URI, e.g. ws://localhost:8025 for a {@link be.thebeehive.htf.simulation.LocalGameServer}.
+     * Set the {@value RoundRecorder#DIRECTORY_PROPERTY} system property to record the game to that directory.
+     * Set the {@value LeaderboardStore#FILE_PROPERTY} system property to keep the leaderboard in that file, under the
+     * strategy version in the {@value LeaderboardStore#STRATEGY_PROPERTY} system property.
+     * The latencies of the client are published over JMX as {@code be.thebeehive.htf:type=ClientMetrics,name="main"}.
+     * While the connection is set up, synthetic rounds warm up the JIT on threads of their own, unless
+     * {@value WarmUp#ENABLED_PROPERTY} is false. The outcome is logged in the {@link RoundLog}.
      */
-    public static void main(String[] args) throws URISyntaxException {
+    public static void main(String[] args) throws URISyntaxException, IOException, InterruptedException {
+        MyClient listener = new MyClient();
         HtfClient client = new HtfClient(
-                "wss://htf.b9s.dev/ws",
+                args.length > 0 ? args[0] : "wss://htf.b9s.dev/ws",
                 "survive2606",
                 EnvironmentType.SIMULATION,
-                new MyClient()
+                listener
         );
-        Runtime.getRuntime().addShutdownHook(new Thread(client::close));
+        String recordDirectory = System.getProperty(RoundRecorder.DIRECTORY_PROPERTY);
+        RoundRecorder recorder = recordDirectory == null ? null : RoundRecorder.open(Paths.get(recordDirectory));
+        client.setRecorder(recorder);
+        String leaderboardFile = System.getProperty(LeaderboardStore.FILE_PROPERTY);
+        LeaderboardStore leaderboard = leaderboardFile == null ? null : LeaderboardStore.open(Paths.get(leaderboardFile));
+        listener.setLeaderboard(leaderboard, System.getProperty(LeaderboardStore.STRATEGY_PROPERTY, LeaderboardStore.DEFAULT_STRATEGY));
+        client.getMetrics().register("main");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            client.close();
+            if (recorder != null) {
+                recorder.close();
+            }
+            if (leaderboard != null) {
+                leaderboard.close();
+            }
+        }));
         client.connect();
+        if (WarmUp.isEnabled()) {
+            ExecutorService warmUpExecutor = TaskExecutors.newTaskExecutor("htf-warm-up-portfolio", 1);
+            ForkJoinPool warmUpPool = new ForkJoinPool(1);
+            try {
+                WarmUp.Result warmUp = new WarmUp().run(MyClient.forWarmUp(warmUpExecutor, warmUpPool),
+                        () -> client.getMetrics().getGames() > 0);
+                RoundLog.shared().info("warmUp " + warmUp);
+            } finally {
+                warmUpExecutor.shutdownNow();
+                warmUpPool.shutdownNow();
+            }
+        }
     }
 }
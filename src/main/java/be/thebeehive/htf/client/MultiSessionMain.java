@@ -0,0 +1,49 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.EnvironmentType;
+import be.thebeehive.htf.library.SessionManager;
+import be.thebeehive.htf.library.TaskExecutors;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+public class MultiSessionMain {
+
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+
+    /**
+     * The strategies of a {@link MyClient} round that run on the executor, all but the first one.
+     */
+    private static final int STRATEGIES_PER_ROUND = 2;
+
+    /**
+     * Plays many games at once, each with its own {@link MyClient}, and reports the round throughput.
+     * The strategies of every client run on a pool of their own, with a thread for every strategy of the rounds
+     * that can be decided at once, the rollouts on one pool of as many threads as the decision pool.
+     * Arguments: the server URI (default ws://localhost:8025), number of sessions (default 100),
+     * number of decision threads (default the number of processors).
+     */
+    public static void main(String[] args) throws Exception {
+        String uri = args.length > 0 ? args[0] : "ws://localhost:8025";
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int decisionThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        ExecutorService strategyPool = TaskExecutors.newTaskExecutor("htf-strategy", STRATEGIES_PER_ROUND * decisionThreads);
+        ForkJoinPool rolloutPool = new ForkJoinPool(decisionThreads);
+        try (SessionManager manager = new SessionManager(decisionThreads)) {
+            for (int i = 0; i < sessions; i++) {
+                manager.open(uri, "survive2606", EnvironmentType.SIMULATION, new MyClient(strategyPool, rolloutPool));
+            }
+            while (!manager.isFinished()) {
+                TimeUnit.SECONDS.sleep(REPORT_INTERVAL_SECONDS);
+                System.out.println("Sessions: " + sessions + " | Rounds: " + manager.getRounds() +
+                        " | Rounds per second: " + Math.round(manager.getRoundsPerSecond()));
+            }
+            System.out.println(manager.report());
+        } finally {
+            strategyPool.shutdown();
+            rolloutPool.shutdown();
+        }
+    }
+}
@@ -1,22 +1,131 @@
 package be.thebeehive.htf.client;
 
+import be.thebeehive.htf.library.ClientMetrics;
+import be.thebeehive.htf.library.DeadlineStats;
 import be.thebeehive.htf.library.HtfClient;
 import be.thebeehive.htf.library.HtfClientListener;
-import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.RoundDeadline;
+import be.thebeehive.htf.library.RoundDeadlineManager;
+import be.thebeehive.htf.library.TaskExecutors;
+import be.thebeehive.htf.library.leaderboard.LeaderboardStore;
 import be.thebeehive.htf.library.protocol.server.ErrorServerMessage;
 import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
 import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
 import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
 
-import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
-
-import static java.math.BigDecimal.ZERO;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 public class MyClient implements HtfClientListener {
 
+    /**
+     * Time reserved before the round deadline to finish the search and send the reply.
+     */
+    private static final long SEARCH_SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    /**
+     * Time the checkpoint planner may take, the rest of the round is for the search.
+     */
+    private static final long PLAN_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * The rounds we must be projected to outlive every competing spaceship by before we play for survival alone,
+     * projections from a few rounds are too noisy to give up points for.
+     */
+    private static final long SURVIVAL_MARGIN_ROUNDS = 15;
+
+    /**
+     * The factor the maximum weights are multiplied with when playing for survival.
+     */
+    private static final double SURVIVAL_MAX_WEIGHT_FACTOR = 2;
+
+    /**
+     * The executor of the clients that are not given one.
+     */
+    private static final Executor PORTFOLIO_EXECUTOR =
+            TaskExecutors.newTaskExecutor("htf-portfolio", 2 * Runtime.getRuntime().availableProcessors());
+
+    private final GreedyStrategy greedy = new GreedyStrategy();
+    private final CheckpointPlanner planner = new CheckpointPlanner();
+    private final OpponentTracker opponents = new OpponentTracker();
+    private final PortfolioRunner portfolio;
+    private final RoundLog roundLog;
+    private long survivalRounds;
+    private long[] actionIds = new long[16];
+    private volatile LeaderboardStore leaderboard;
+    private volatile String strategy = LeaderboardStore.DEFAULT_STRATEGY;
+    private volatile String teamName;
+
+    /**
+     * Creates a client that runs its strategies on an executor shared with the other clients created this way,
+     * and its rollouts on the common pool.
+     */
+    public MyClient() {
+        this(PORTFOLIO_EXECUTOR, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a client that runs its strategies on the given executors. The strategies after the first one wait for
+     * a free thread like any other task: when the executor is busy they answer late and the rest of the portfolio
+     * decides. The executor must not be the one the rounds are handed to the client on, such as the decision pool
+     * of a {@link be.thebeehive.htf.library.SessionManager}: its threads wait for the answers of the strategies, so
+     * those would only start once the wait is over. Every client keeps its own portfolio statistics.
+     *
+     * @param executor    the executor the strategies after the first one run on
+     * @param rolloutPool the pool the rollouts run on
+     */
+    public MyClient(Executor executor, ForkJoinPool rolloutPool) {
+        this(newPortfolio(executor, rolloutPool), RoundLog.shared());
+    }
+
+    /**
+     * Creates a client that races the given portfolio, e.g. one of strategies that are bounded by their work instead
+     * of the deadline. The portfolio is not closed by this client.
+     */
+    public MyClient(PortfolioRunner portfolio) {
+        this(portfolio, RoundLog.shared());
+    }
+
+    private MyClient(PortfolioRunner portfolio, RoundLog roundLog) {
+        this.portfolio = portfolio;
+        this.roundLog = roundLog;
+    }
+
+    /**
+     * Creates a client for {@link be.thebeehive.htf.simulation.WarmUp}. It runs the same strategies as every other
+     * client, but on the given executors, so the live client never waits behind a warm-up round, and it does not
+     * log its rounds.
+     *
+     * @param executor    the executor the strategies after the first one run on
+     * @param rolloutPool the pool the rollouts run on
+     */
+    public static MyClient forWarmUp(Executor executor, ForkJoinPool rolloutPool) {
+        return new MyClient(newPortfolio(executor, rolloutPool), new RoundLog(RoundLog.Level.OFF, 1, System.out));
+    }
+
+    /**
+     * Keeps the leaderboard of every game this client plays in the store, or nothing when null.
+     * The store is not closed by this client.
+     *
+     * @param strategy the version of the strategy, to compare the results of strategies by
+     */
+    public void setLeaderboard(LeaderboardStore leaderboard, String strategy) {
+        this.leaderboard = leaderboard;
+        this.strategy = strategy;
+    }
+
+    private static PortfolioRunner newPortfolio(Executor executor, ForkJoinPool rolloutPool) {
+        return new PortfolioRunner(
+                Arrays.asList(new GreedyStrategy(), new ExhaustiveStrategy(), new RolloutStrategy(
+                        rolloutPool, RolloutStrategy.DEFAULT_HORIZON, RolloutStrategy.DEFAULT_MAX_ROLLOUTS, new ShipEvaluator())),
+                executor,
+                new ShipEvaluator()
+        );
+    }
+
     /**
      * An error occurred, and we are unable to recover from this.
      * You will also be disconnected.
@@ -34,6 +143,39 @@ public class MyClient implements HtfClientListener {
     public void onGameEndedServerMessage(HtfClient client, GameEndedServerMessage msg) throws Exception {
         // Handle game end messages if necessary
         System.out.println("Game ended. " + msg);
+        logGameEnded(client);
+
+        LeaderboardStore leaderboard = this.leaderboard;
+        if (leaderboard != null && leaderboard.append(msg, this.teamName, this.strategy)) {
+            System.out.println("Leaderboard: " + this.strategy + " " + leaderboard.getStrategyStats(this.strategy));
+        }
+    }
+
+    /**
+     * Logs a summary of the game that ended in the round log.
+     */
+    private void logGameEnded(HtfClient client) {
+        if (!this.roundLog.isEnabled(RoundLog.Level.INFO)) {
+            return;
+        }
+        StringBuilder line = new StringBuilder("gameEnded");
+        DeadlineStats deadlines = client.getDeadlineStats();
+        // Clients that call the listener directly, like the in-process simulation, have no deadlines
+        if (deadlines.getHits() + deadlines.getMisses() > 0) {
+            line.append(" deadlines=").append(deadlines);
+        }
+        ClientMetrics metrics = client.getMetrics();
+        line.append(" firstRoundMicros={decode=").append(metrics.getFirstRoundDecodeMicros())
+                .append(" (p50 ").append(metrics.getDecode().getP50Micros())
+                .append("), decision=").append(metrics.getFirstRoundDecisionMicros())
+                .append(" (p50 ").append(metrics.getDecision().getP50Micros())
+                .append("), send=").append(metrics.getFirstRoundSendMicros())
+                .append(" (p50 ").append(metrics.getSend().getP50Micros()).append(")}");
+        line.append(" portfolio=").append(this.portfolio.getStats());
+        line.append(" planner=").append(this.planner.getTable());
+        line.append(" opponents=").append(this.opponents);
+        line.append(" survivalRounds=").append(this.survivalRounds);
+        this.roundLog.info(line.toString());
     }
 
     /**
@@ -42,193 +184,87 @@ public class MyClient implements HtfClientListener {
      */
     @Override
     public void onGameRoundServerMessage(HtfClient client, GameRoundServerMessage msg) throws Exception {
-        List<Long> actionsToBeExecuted = new ArrayList<>();
-
-        // Step 1: Analyze incoming effects
-        List<GameRoundServerMessage.Values> effectValues = ClientUtils.getAllEffectValues(msg.getEffects());
+        onGameRoundServerMessage(client, msg, RoundDeadline.startingNow(
+                msg.getRoundId(),
+                msg.getRound(),
+                RoundDeadlineManager.DEFAULT_WINDOW_MILLIS - RoundDeadlineManager.DEFAULT_MARGIN_MILLIS,
+                TimeUnit.MILLISECONDS
+        ));
+    }
 
-        System.out.println("Effects received for this round:");
-        for (GameRoundServerMessage.Values effect : effectValues) {
-            System.out.println(effect);
+    /**
+     * A new round has started.
+     * If we do not reply before the deadline, the greedy selection is sent in our place.
+     */
+    @Override
+    public void onGameRoundServerMessage(HtfClient client, GameRoundServerMessage msg, RoundDeadline deadline) throws Exception {
+        long startNanos = System.nanoTime();
+        long deadlineNanos = deadline.getDeadlineNanos() - SEARCH_SLACK_NANOS;
+        this.teamName = msg.getOurSpaceship().getName();
+
+        // Step 1: Plan until the next checkpoint, to value this round's outcome by what it is worth there
+        long planDeadlineNanos = deadlineNanos - startNanos < PLAN_BUDGET_NANOS ? deadlineNanos : startNanos + PLAN_BUDGET_NANOS;
+        CheckpointPlanner.Plan plan = this.planner.plan(msg, RoundEffectModel.of(msg), planDeadlineNanos);
+
+        // Once we are projected to outlast every competing spaceship, staying alive is all that counts
+        this.opponents.observe(msg);
+        if (plan != null && isPlayingForSurvival(msg)) {
+            plan = plan.withEvaluator(survivalEvaluator(plan));
+            this.survivalRounds++;
         }
 
-        // Calculate total negative health and crew effects
-        BigDecimal totalHealthLossBD = effectValues.stream()
-                .map(GameRoundServerMessage.Values::getHealth)
-                .filter(health -> health.compareTo(ZERO) < 0)
-                .reduce(ZERO, BigDecimal::add);
-
-        BigDecimal totalCrewLossBD = effectValues.stream()
-                .map(GameRoundServerMessage.Values::getCrew)
-                .filter(crew -> crew.compareTo(ZERO) < 0)
-                .reduce(ZERO, BigDecimal::add);
-
-        double totalHealthLoss = totalHealthLossBD.abs().doubleValue(); // Positive value representing loss
-        double totalCrewLoss = totalCrewLossBD.abs().doubleValue(); // Positive value representing loss
-
-        System.out.println("Total Health Loss: " + totalHealthLoss);
-        System.out.println("Total Crew Loss: " + totalCrewLoss);
-
-        // Step 2: Evaluate available actions
-        List<GameRoundServerMessage.Action> availableActions = new ArrayList<>(msg.getActions());
+        // Step 2: Select actions greedily, this is sent in our place if nothing better is ready in time
+        List<Long> greedyActions = this.greedy.decide(msg, plan, deadlineNanos);
+        deadline.offerFallback(greedyActions);
 
-        System.out.println("Available actions for this round:");
-        for (GameRoundServerMessage.Action action : availableActions) {
-            System.out.println(action);
-        }
+        // Step 3: Race the strategies of the portfolio until the deadline and keep the best answer
+        PortfolioRunner.Result result = this.portfolio.decide(msg, plan, deadlineNanos);
+        List<Long> actionsToBeExecuted = result == null ? greedyActions : result.getActionIds();
 
-        // Score each action
-        List<ScoredAction> scoredActions = new ArrayList<>();
-        for (GameRoundServerMessage.Action action : availableActions) {
-            double score = ClientUtils.scoreAction(action, totalHealthLoss, totalCrewLoss);
-            scoredActions.add(new ScoredAction(action, score));
+        // Step 4: Send selected actions
+        int count = actionsToBeExecuted.size();
+        if (this.actionIds.length < count) {
+            this.actionIds = new long[count];
         }
-
-        // Sort actions based on score descending
-        scoredActions.sort(Comparator.comparingDouble(ScoredAction::getScore).reversed());
-
-        // Step 3: Select optimal actions
-        double remainingHealthLoss = totalHealthLoss;
-        double remainingCrewLoss = totalCrewLoss;
-        double currentHealthGain = 0;
-        double currentCrewGain = 0;
-
-        boolean prioritizeMaxHealth = msg.getRound() < 20; // Prioritize max health upgrades in the early game
-        boolean ensureResourcesForCheckpoint = true; // Always ensure enough resources for the next checkpoint
-
-        for (ScoredAction scoredAction : scoredActions) {
-            GameRoundServerMessage.Action action = scoredAction.getAction();
-
-            // Calculate potential mitigation
-            double healthMitigation = Math.min(action.getValues().getHealth().doubleValue(), remainingHealthLoss);
-            double crewMitigation = Math.min(action.getValues().getCrew().doubleValue(), remainingCrewLoss);
-
-            // Only consider actions that mitigate at least one type of loss or provide significant gain
-            if (healthMitigation > 0 || crewMitigation > 0 || action.getValues().getHealth().doubleValue() > 0 || action.getValues().getCrew().doubleValue() > 0) {
-                // In the early rounds, prioritize increasing max health to prepare for later large hits
-                if (prioritizeMaxHealth && action.getValues().getMaxHealth().doubleValue() > 0) {
-                    actionsToBeExecuted.add(action.getId());
-                    System.out.println("Selected Action ID (MaxHealth Priority): " + action.getId() +
-                            " | Max Health Gain: " + action.getValues().getMaxHealth().doubleValue() +
-                            " | Score: " + scoredAction.getScore());
-                    continue;
-                }
-
-                // Ensure enough resources before next checkpoint
-                if (ensureResourcesForCheckpoint) {
-                    GameRoundServerMessage.Values checkpointValues = msg.getNextCheckpoint().getValues();
-                    BigDecimal resultingHealth = action.getValues().getHealth().add(msg.getOurSpaceship().getValues().getHealth());
-                    BigDecimal resultingCrew = action.getValues().getCrew().add(msg.getOurSpaceship().getValues().getCrew());
-                    BigDecimal resultingMaxHealth = action.getValues().getMaxHealth().add(msg.getOurSpaceship().getValues().getMaxHealth());
-                    BigDecimal resultingMaxCrew = action.getValues().getMaxCrew().add(msg.getOurSpaceship().getValues().getMaxCrew());
-
-                    if (resultingHealth.compareTo(checkpointValues.getHealth()) >= 0 &&
-                            resultingCrew.compareTo(checkpointValues.getCrew()) >= 0 &&
-                            resultingMaxHealth.compareTo(ZERO) > 0 && resultingMaxCrew.compareTo(ZERO) > 0) {
-                        actionsToBeExecuted.add(action.getId());
-                        System.out.println("Selected Action ID (Ensure Resources for Checkpoint): " + action.getId() +
-                                " | Health Gain: " + action.getValues().getHealth() +
-                                " | Crew Gain: " + action.getValues().getCrew() +
-                                " | Max Health Gain: " + action.getValues().getMaxHealth() +
-                                " | Max Crew Gain: " + action.getValues().getMaxCrew() +
-                                " | Score: " + scoredAction.getScore());
-                        continue;
-                    }
-                }
-
-                // Avoid actions with negative impact on max health or max crew if possible
-                if (action.getValues().getMaxHealth().doubleValue() < 0 || action.getValues().getMaxCrew().doubleValue() < 0) {
-                    System.out.println("Skipping Action ID: " + action.getId() + " due to negative impact on max health or max crew.");
-                    continue;
-                }
-
-                actionsToBeExecuted.add(action.getId());
-
-                // Update remaining losses
-                remainingHealthLoss -= healthMitigation;
-                remainingCrewLoss -= crewMitigation;
-                currentHealthGain += action.getValues().getHealth().doubleValue();
-                currentCrewGain += action.getValues().getCrew().doubleValue();
-
-                System.out.println("Selected Action ID: " + action.getId() +
-                        " | Health Mitigation: " + healthMitigation +
-                        " | Crew Mitigation: " + crewMitigation +
-                        " | Health Gain: " + action.getValues().getHealth().doubleValue() +
-                        " | Crew Gain: " + action.getValues().getCrew().doubleValue() +
-                        " | Max Health Gain: " + action.getValues().getMaxHealth().doubleValue() +
-                        " | Max Crew Gain: " + action.getValues().getMaxCrew().doubleValue() +
-                        " | Score: " + scoredAction.getScore());
-
-                // If all losses are mitigated, break
-                if (remainingHealthLoss <= 0 && remainingCrewLoss <= 0) {
-                    break;
-                }
-            }
+        for (int i = 0; i < count; i++) {
+            this.actionIds[i] = actionsToBeExecuted.get(i);
         }
-
-        // Step 4: Handle any remaining losses by selecting least harmful actions
-        if (remainingHealthLoss > 0 || remainingCrewLoss > 0) {
-            for (ScoredAction scoredAction : scoredActions) {
-                GameRoundServerMessage.Action action = scoredAction.getAction();
-                if (!actionsToBeExecuted.contains(action.getId())) {
-                    // Avoid actions with negative impact on max health or max crew if possible
-                    if (action.getValues().getMaxHealth().doubleValue() < 0 || action.getValues().getMaxCrew().doubleValue() < 0) {
-                        System.out.println("Skipping Additional Action ID: " + action.getId() + " due to negative impact on max health or max crew.");
-                        continue;
-                    }
-                    // Even if the action doesn't fully mitigate, select it to reduce losses
-                    actionsToBeExecuted.add(action.getId());
-                    System.out.println("Additional Action ID: " + action.getId() +
-                            " | Score: " + scoredAction.getScore());
-
-                    // Update remaining losses if possible
-                    double healthMitigation = Math.min(action.getValues().getHealth().doubleValue(), remainingHealthLoss);
-                    double crewMitigation = Math.min(action.getValues().getCrew().doubleValue(), remainingCrewLoss);
-
-                    remainingHealthLoss -= healthMitigation;
-                    remainingCrewLoss -= crewMitigation;
-                    currentHealthGain += action.getValues().getHealth().doubleValue();
-                    currentCrewGain += action.getValues().getCrew().doubleValue();
-
-                    if (remainingHealthLoss <= 0 && remainingCrewLoss <= 0) {
-                        break;
-                    }
-                }
+        client.send(msg.getRoundId(), this.actionIds, count);
+
+        // Step 5: Log the round, after the reply is on its way
+        RoundLog.Record record = this.roundLog.claim();
+        if (record != null) {
+            try {
+                record.round(msg, GreedyStrategy.totalHealthLoss(msg), GreedyStrategy.totalCrewLoss(msg))
+                        .decision(greedyActions, actionsToBeExecuted, result, System.nanoTime() - startNanos, deadline.remainingNanos());
+            } catch (RuntimeException ex) {
+                this.roundLog.cancel(record);
+                throw ex;
             }
+            this.roundLog.publish(record);
         }
+    }
 
-        // Step 5: Decide whether to execute the selected actions or take no action
-        double totalActionScore = scoredActions.stream()
-                .filter(sa -> actionsToBeExecuted.contains(sa.getAction().getId()))
-                .mapToDouble(ScoredAction::getScore)
-                .sum();
-
-        boolean laterGame = msg.getRound() >= 20;
-        if (laterGame) {
-            // In later rounds, avoid actions that could significantly reduce max health or max crew
-            actionsToBeExecuted.removeIf(actionId -> {
-                GameRoundServerMessage.Action action = availableActions.stream()
-                        .filter(a -> a.getId() == actionId)
-                        .findFirst()
-                        .orElse(null);
-                if (action == null) return false;
-                return action.getValues().getMaxHealth().doubleValue() < 0 || action.getValues().getMaxCrew().doubleValue() < 0;
-            });
+    /**
+     * @return true if we are projected to outlive every competing spaceship by a margin, or they are all dead,
+     * and our health and crew are at least half their maximum, so there are points to spare for a larger maximum
+     */
+    private boolean isPlayingForSurvival(GameRoundServerMessage msg) {
+        if (!this.opponents.isOutlastingField()) {
+            return false;
         }
-
-        // Introduce a minimum score threshold for executing actions
-        double minimumScoreThreshold = 50.0;
-        if (totalActionScore < minimumScoreThreshold && (currentHealthGain <= totalHealthLoss || currentCrewGain <= totalCrewLoss)) {
-            // If the net benefit is not positive and the current gains do not compensate the losses, or if the total score is below the threshold, opt to take no actions
-            actionsToBeExecuted.clear();
-            System.out.println("No beneficial actions found or score below threshold. Taking no actions to avoid negative impacts.");
-        } else {
-            System.out.println("Total Action Score: " + totalActionScore);
-            System.out.println("Actions to be executed: " + actionsToBeExecuted);
+        if (this.opponents.hasLiveOpponents()
+                && this.opponents.getOurProjectedDeathRound() - this.opponents.getFieldDeathRound() < SURVIVAL_MARGIN_ROUNDS) {
+            return false;
         }
+        GameRoundServerMessage.Values values = msg.getOurSpaceship().getValues();
+        return 2 * values.getHealth().doubleValue() >= values.getMaxHealth().doubleValue()
+                && 2 * values.getCrew().doubleValue() >= values.getMaxCrew().doubleValue();
+    }
 
-        // Step 6: Send selected actions
-        client.send(new SelectActionsClientMessage(msg.getRoundId(), actionsToBeExecuted));
+    private static ShipEvaluator survivalEvaluator(CheckpointPlanner.Plan plan) {
+        ShipEvaluator evaluator = plan.getEvaluator() == null ? new ShipEvaluator() : plan.getEvaluator();
+        return evaluator.withMaxWeightsScaled(SURVIVAL_MAX_WEIGHT_FACTOR);
     }
 
     /**
@@ -242,25 +278,16 @@ public class MyClient implements HtfClientListener {
     }
 
     /**
-     * Helper class to associate an action with its score.
+     * @return the statistics of the strategies of this client, in the order they are raced
      */
-    private static class ScoredAction {
-        private final GameRoundServerMessage.Action action;
-        private final double score;
-
-        public ScoredAction(GameRoundServerMessage.Action action, double score) {
-            this.action = action;
-            this.score = score;
-        }
-
-        public GameRoundServerMessage.Action getAction() {
-            return action;
-        }
+    public List<PortfolioRunner.Stats> getPortfolioStats() {
+        return this.portfolio.getStats();
+    }
 
-        public double getScore() {
-            return score;
-        }
+    /**
+     * @return the table of the checkpoint planner of this client, with the counters to size it
+     */
+    public TranspositionTable getPlannerTable() {
+        return this.planner.getTable();
     }
 }
-
-
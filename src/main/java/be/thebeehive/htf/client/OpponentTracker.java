@@ -0,0 +1,334 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Spaceship;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Follows every spaceship of a game, ours and the competing ones, from round to round.
+ * <p>
+ * The health, crew and round of the last {@link #getCapacity() capacity} observations of a ship are kept in
+ * primitive ring buffers. The decline of a component is the difference with the oldest observation in the buffer
+ * divided by the rounds in between, so an update is a constant amount of work per ship and history is never
+ * rescanned. With a buffer that spans a checkpoint interval, the decline includes what the checkpoints give back.
+ * <p>
+ * A ship that keeps declining at that rate dies in its projected death round, a ship that does not decline is
+ * projected to live {@link #NEVER forever}. Ships are ranked by projected death round, then by health plus crew.
+ * Once our spaceship is projected to die after every competing one, {@link #isOutlastingField()} tells the
+ * strategies that staying alive is all that is left to play for.
+ * <p>
+ * The tracker resets itself when a round does not follow the last one, as happens at the start of a game.
+ * Instances are not thread-safe: feed and query them from the thread handling the rounds.
+ */
+public class OpponentTracker {
+
+    public static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * The projected death round of a ship that does not decline.
+     */
+    public static final long NEVER = Long.MAX_VALUE;
+
+    /**
+     * The number of observations a ship needs before its decline is known.
+     */
+    public static final int MIN_OBSERVATIONS = 3;
+
+    private static final int OURS = 0;
+    private static final long NO_FIELD = Long.MIN_VALUE;
+
+    private final int capacity;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private String[] names = new String[0];
+    private double[] health = new double[0];
+    private double[] crew = new double[0];
+    private long[] rounds = new long[0];
+    private int[] observations = new int[0];
+    private int[] next = new int[0];
+    private boolean[] alive = new boolean[0];
+    private long[] deathRounds = new long[0];
+    private double[] healthDeclines = new double[0];
+    private double[] crewDeclines = new double[0];
+    private long[] projectedDeathRounds = new long[0];
+    private int ships;
+    private long lastRound = -1;
+
+    private int rank;
+    private long fieldDeathRound;
+
+    public OpponentTracker() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of observations kept per ship, at least {@value #MIN_OBSERVATIONS}
+     */
+    public OpponentTracker(int capacity) {
+        if (capacity < MIN_OBSERVATIONS) {
+            throw new IllegalArgumentException("Capacity must be at least " + MIN_OBSERVATIONS);
+        }
+        this.capacity = capacity;
+        ensureShips(1);
+        reset();
+    }
+
+    /**
+     * Adds the spaceships of a round and updates the projections.
+     *
+     * @param msg The round.
+     */
+    public void observe(GameRoundServerMessage msg) {
+        long round = msg.getRound();
+        if (round != lastRound + 1) {
+            reset();
+        }
+        lastRound = round;
+
+        observe(OURS, msg.getOurSpaceship(), round);
+        List<Spaceship> competing = msg.getCompetingSpaceships();
+        if (competing != null) {
+            for (int i = 0; i < competing.size(); i++) {
+                Spaceship spaceship = competing.get(i);
+                observe(slot(spaceship.getName()), spaceship, round);
+            }
+        }
+
+        long ours = projectedDeathRounds[OURS];
+        double oursLeft = health[last(OURS)] + crew[last(OURS)];
+        int ahead = 0;
+        long field = NO_FIELD;
+        for (int ship = 1; ship < ships; ship++) {
+            long projected = projectedDeathRounds[ship];
+            if (projected > ours || projected == ours && health[last(ship)] + crew[last(ship)] > oursLeft) {
+                ahead++;
+            }
+            if (alive[ship]) {
+                field = Math.max(field, projected);
+            }
+        }
+        this.rank = ahead + 1;
+        this.fieldDeathRound = field;
+    }
+
+    private void observe(int ship, Spaceship spaceship, long round) {
+        if (spaceship == null) {
+            return;
+        }
+        Values values = spaceship.getValues();
+        boolean shipAlive = spaceship.isAlive() && values != null && ClientUtils.isAlive(values);
+        if (!shipAlive) {
+            if (alive[ship] || observations[ship] == 0) {
+                deathRounds[ship] = round;
+            }
+            alive[ship] = false;
+            projectedDeathRounds[ship] = deathRounds[ship];
+            return;
+        }
+        alive[ship] = true;
+
+        int base = ship * capacity;
+        int index = next[ship];
+        double shipHealth = values.getHealth().doubleValue();
+        double shipCrew = values.getCrew().doubleValue();
+        health[base + index] = shipHealth;
+        crew[base + index] = shipCrew;
+        rounds[base + index] = round;
+        next[ship] = index + 1 == capacity ? 0 : index + 1;
+        if (observations[ship] < capacity) {
+            observations[ship]++;
+        }
+
+        if (observations[ship] < MIN_OBSERVATIONS) {
+            healthDeclines[ship] = 0;
+            crewDeclines[ship] = 0;
+            projectedDeathRounds[ship] = NEVER;
+            return;
+        }
+        int oldest = base + (observations[ship] < capacity ? 0 : next[ship]);
+        double span = round - rounds[oldest];
+        healthDeclines[ship] = (health[oldest] - shipHealth) / span;
+        crewDeclines[ship] = (crew[oldest] - shipCrew) / span;
+        projectedDeathRounds[ship] = Math.min(
+                deathRound(round, shipHealth, healthDeclines[ship]),
+                deathRound(round, shipCrew, crewDeclines[ship])
+        );
+    }
+
+    /**
+     * @return the first round in which the value is 0 or less when it keeps declining at the given rate
+     */
+    private static long deathRound(long round, double value, double decline) {
+        if (decline <= 0) {
+            return NEVER;
+        }
+        double rounds = Math.ceil(value / decline);
+        return rounds >= NEVER - round ? NEVER : round + (long) rounds;
+    }
+
+    private int slot(String name) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            slot = ships;
+            ensureShips(ships + 1);
+            names[slot] = name;
+            clear(slot);
+            ships++;
+            slots.put(name, slot);
+        }
+        return slot;
+    }
+
+    private int last(int ship) {
+        int index = next[ship] == 0 ? capacity - 1 : next[ship] - 1;
+        return ship * capacity + index;
+    }
+
+    private void ensureShips(int count) {
+        if (count <= names.length) {
+            return;
+        }
+        int length = Math.max(count, 2 * names.length);
+        names = Arrays.copyOf(names, length);
+        health = Arrays.copyOf(health, length * capacity);
+        crew = Arrays.copyOf(crew, length * capacity);
+        rounds = Arrays.copyOf(rounds, length * capacity);
+        observations = Arrays.copyOf(observations, length);
+        next = Arrays.copyOf(next, length);
+        alive = Arrays.copyOf(alive, length);
+        deathRounds = Arrays.copyOf(deathRounds, length);
+        healthDeclines = Arrays.copyOf(healthDeclines, length);
+        crewDeclines = Arrays.copyOf(crewDeclines, length);
+        projectedDeathRounds = Arrays.copyOf(projectedDeathRounds, length);
+    }
+
+    /**
+     * Forgets every ship, keeping the buffers.
+     */
+    public void reset() {
+        for (int ship = 1; ship < ships; ship++) {
+            names[ship] = null;
+        }
+        slots.clear();
+        ships = 1;
+        clear(OURS);
+        lastRound = -1;
+        rank = 1;
+        fieldDeathRound = NO_FIELD;
+    }
+
+    private void clear(int ship) {
+        observations[ship] = 0;
+        next[ship] = 0;
+        alive[ship] = false;
+        healthDeclines[ship] = 0;
+        crewDeclines[ship] = 0;
+        projectedDeathRounds[ship] = NEVER;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of competing spaceships seen in this game
+     */
+    public int getOpponents() {
+        return ships - 1;
+    }
+
+    /**
+     * @param opponent the index of a competing spaceship, from 0 to {@link #getOpponents()}, in order of appearance
+     */
+    public String getName(int opponent) {
+        return names[opponent + 1];
+    }
+
+    public boolean isAlive(int opponent) {
+        return alive[opponent + 1];
+    }
+
+    /**
+     * @return the health the opponent loses per round, negative when it gains health
+     */
+    public double getHealthDecline(int opponent) {
+        return healthDeclines[opponent + 1];
+    }
+
+    /**
+     * @return the crew the opponent loses per round, negative when it gains crew
+     */
+    public double getCrewDecline(int opponent) {
+        return crewDeclines[opponent + 1];
+    }
+
+    /**
+     * @return the round the opponent is projected to die in, the round it died in when it is dead,
+     * or {@link #NEVER} if it does not decline
+     */
+    public long getProjectedDeathRound(int opponent) {
+        return projectedDeathRounds[opponent + 1];
+    }
+
+    public double getOurHealthDecline() {
+        return healthDeclines[OURS];
+    }
+
+    public double getOurCrewDecline() {
+        return crewDeclines[OURS];
+    }
+
+    public long getOurProjectedDeathRound() {
+        return projectedDeathRounds[OURS];
+    }
+
+    /**
+     * @return our projected place among all spaceships, 1 for the first
+     */
+    public int getOurRank() {
+        return rank;
+    }
+
+    /**
+     * @return true if a competing spaceship is alive
+     */
+    public boolean hasLiveOpponents() {
+        return fieldDeathRound != NO_FIELD;
+    }
+
+    /**
+     * @return the latest projected death round of the competing spaceships that are alive
+     * @throws IllegalStateException if none are, see {@link #hasLiveOpponents()}
+     */
+    public long getFieldDeathRound() {
+        if (!hasLiveOpponents()) {
+            throw new IllegalStateException("No competing spaceship is alive");
+        }
+        return fieldDeathRound;
+    }
+
+    /**
+     * @return true if our spaceship is projected to die after every competing spaceship that is still alive
+     */
+    public boolean isOutlastingField() {
+        long ours = projectedDeathRounds[OURS];
+        return alive[OURS] && observations[OURS] >= MIN_OBSERVATIONS && ours > fieldDeathRound;
+    }
+
+    @Override
+    public String toString() {
+        return "OpponentTracker{" +
+                "round=" + lastRound +
+                ", opponents=" + getOpponents() +
+                ", ourProjectedDeathRound=" + getOurProjectedDeathRound() +
+                ", liveOpponents=" + hasLiveOpponents() +
+                (hasLiveOpponents() ? ", fieldDeathRound=" + fieldDeathRound : "") +
+                ", ourRank=" + rank +
+                ", outlastingField=" + isOutlastingField() +
+                '}';
+    }
+}
@@ -0,0 +1,312 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.TaskExecutors;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs several {@link Strategy strategies} concurrently on every round and keeps the best answer.
+ * <p>
+ * All strategies start together and get the same deadline. The first one runs on the calling thread, the others
+ * on the executor of the runner. The runner waits until they have all answered or the deadline passes, then scores
+ * every answer it has with one evaluator, the one of the plan when there is one, and returns the best. Ties go to
+ * the strategy that comes first. Strategies that did not answer in time keep running in the background until they
+ * notice the deadline, their late answer is ignored.
+ * <p>
+ * Every strategy has {@link Stats}: how often it answered in time, how often its answer was picked and how long
+ * it took to answer.
+ */
+public class PortfolioRunner implements AutoCloseable {
+
+    /**
+     * Time the strategies get less than the runner, to have their answers in before it picks.
+     */
+    public static final long PICK_SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private final List<Strategy> strategies;
+    private final List<Stats> stats;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final ActionSubsetOptimizer scorer = new ActionSubsetOptimizer();
+    private final ShipEvaluator evaluator;
+
+    /**
+     * Creates a runner with a thread per strategy after the first, shut down by {@link #close()}.
+     */
+    public PortfolioRunner(List<Strategy> strategies) {
+        this(strategies, null, new ShipEvaluator());
+    }
+
+    /**
+     * @param strategies the strategies, in order of preference when answers score the same
+     * @param executor   the executor the strategies after the first run on,
+     *                   or null for a thread per strategy owned by this runner
+     * @param evaluator  the evaluator to pick with when the plan has none
+     */
+    public PortfolioRunner(List<Strategy> strategies, Executor executor, ShipEvaluator evaluator) {
+        if (strategies.isEmpty()) {
+            throw new IllegalArgumentException("No strategies");
+        }
+        this.strategies = Collections.unmodifiableList(new ArrayList<>(strategies));
+        List<Stats> stats = new ArrayList<>();
+        for (Strategy strategy : strategies) {
+            stats.add(new Stats(strategy.getName()));
+        }
+        this.stats = Collections.unmodifiableList(stats);
+        this.ownedExecutor = executor == null ? TaskExecutors.newTaskExecutor("htf-portfolio", Math.max(1, strategies.size() - 1)) : null;
+        this.executor = executor == null ? ownedExecutor : executor;
+        this.evaluator = evaluator;
+    }
+
+    public List<Strategy> getStrategies() {
+        return strategies;
+    }
+
+    /**
+     * @return the statistics of every strategy, in the order of the strategies
+     */
+    public List<Stats> getStats() {
+        return stats;
+    }
+
+    /**
+     * Runs all strategies on a round.
+     *
+     * @param msg           The current round.
+     * @param plan          The plan until the next checkpoint, or null if there is none.
+     * @param deadlineNanos The {@link System#nanoTime()} at which the best answer must be picked.
+     * @return The best answer, or null if no strategy answered in time.
+     */
+    public Result decide(GameRoundServerMessage msg, CheckpointPlanner.Plan plan, long deadlineNanos) {
+        long startNanos = System.nanoTime();
+        long strategyDeadlineNanos = deadlineNanos - PICK_SLACK_NANOS;
+        List<CompletableFuture<List<Long>>> answers = new ArrayList<>(strategies.size());
+        for (int i = 0; i < strategies.size(); i++) {
+            answers.add(new CompletableFuture<>());
+        }
+        for (int i = 1; i < strategies.size(); i++) {
+            int index = i;
+            executor.execute(() -> run(index, msg, plan, startNanos, strategyDeadlineNanos, answers.get(index)));
+        }
+        run(0, msg, plan, startNanos, strategyDeadlineNanos, answers.get(0));
+
+        ShipEvaluator pickEvaluator = plan == null || plan.getEvaluator() == null ? evaluator : plan.getEvaluator();
+        int best = -1;
+        List<Long> bestActionIds = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int answered = 0;
+        for (int i = 0; i < answers.size(); i++) {
+            Stats strategyStats = stats.get(i);
+            List<Long> actionIds;
+            try {
+                actionIds = answers.get(i).get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                strategyStats.late.increment();
+                continue;
+            } catch (ExecutionException ex) {
+                strategyStats.failures.increment();
+                System.err.println("Strategy " + strategyStats.getName() + " failed\n" + ex.getCause());
+                continue;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (actionIds == null) {
+                strategyStats.failures.increment();
+                continue;
+            }
+            answered++;
+            strategyStats.answers.increment();
+            double score = scorer.score(msg, actionIds, pickEvaluator);
+            if (best < 0 || score > bestScore) {
+                best = i;
+                bestActionIds = actionIds;
+                bestScore = score;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        stats.get(best).wins.increment();
+        return new Result(bestActionIds, bestScore, strategies.get(best).getName(), answered, strategies.size());
+    }
+
+    private void run(int index, GameRoundServerMessage msg, CheckpointPlanner.Plan plan, long startNanos,
+                     long deadlineNanos, CompletableFuture<List<Long>> answer) {
+        try {
+            List<Long> actionIds = strategies.get(index).decide(msg, plan, deadlineNanos);
+            stats.get(index).latency(System.nanoTime() - startNanos);
+            answer.complete(actionIds);
+        } catch (Throwable ex) {
+            answer.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Shuts the executor down if this runner created it.
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PortfolioRunner" + stats;
+    }
+
+    /**
+     * The answer picked for a round.
+     */
+    public static class Result {
+
+        private final List<Long> actionIds;
+        private final double score;
+        private final String strategy;
+        private final int answers;
+        private final int strategies;
+
+        public Result(List<Long> actionIds, double score, String strategy, int answers, int strategies) {
+            this.actionIds = actionIds;
+            this.score = score;
+            this.strategy = strategy;
+            this.answers = answers;
+            this.strategies = strategies;
+        }
+
+        public List<Long> getActionIds() {
+            return actionIds;
+        }
+
+        /**
+         * @return the score of the picked answer, {@link Double#NEGATIVE_INFINITY} if every answer dies
+         */
+        public double getScore() {
+            return score;
+        }
+
+        /**
+         * @return the name of the strategy whose answer was picked
+         */
+        public String getStrategy() {
+            return strategy;
+        }
+
+        /**
+         * @return the number of strategies that answered in time
+         */
+        public int getAnswers() {
+            return answers;
+        }
+
+        public int getStrategies() {
+            return strategies;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "actionIds=" + actionIds +
+                    ", score=" + score +
+                    ", strategy='" + strategy + '\'' +
+                    ", answers=" + answers +
+                    ", strategies=" + strategies +
+                    '}';
+        }
+    }
+
+    /**
+     * How a strategy fared in the rounds run so far.
+     */
+    public static class Stats {
+
+        private final String name;
+        private final LongAdder answers = new LongAdder();
+        private final LongAdder wins = new LongAdder();
+        private final LongAdder late = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+        private final LongAdder latencies = new LongAdder();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        Stats(String name) {
+            this.name = name;
+        }
+
+        void latency(long nanos) {
+            latencyNanos.add(nanos);
+            latencies.increment();
+            long max;
+            while (nanos > (max = maxLatencyNanos.get()) && !maxLatencyNanos.compareAndSet(max, nanos)) {
+                // Retry until the maximum is at least this latency
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the number of rounds in which the strategy answered in time
+         */
+        public long getAnswers() {
+            return answers.sum();
+        }
+
+        /**
+         * @return the number of rounds in which the answer of the strategy was picked
+         */
+        public long getWins() {
+            return wins.sum();
+        }
+
+        /**
+         * @return the number of rounds in which the strategy had not answered when the answer was picked
+         */
+        public long getLate() {
+            return late.sum();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * @return the average time from the start of a round to the answer, late answers included
+         */
+        public long getAverageLatencyNanos() {
+            long count = latencies.sum();
+            return count == 0 ? 0 : latencyNanos.sum() / count;
+        }
+
+        public long getMaxLatencyNanos() {
+            return maxLatencyNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "name='" + name + '\'' +
+                    ", answers=" + getAnswers() +
+                    ", wins=" + getWins() +
+                    ", late=" + getLate() +
+                    ", failures=" + getFailures() +
+                    ", averageLatencyMicros=" + TimeUnit.NANOSECONDS.toMicros(getAverageLatencyNanos()) +
+                    ", maxLatencyMicros=" + TimeUnit.NANOSECONDS.toMicros(getMaxLatencyNanos()) +
+                    '}';
+        }
+    }
+}
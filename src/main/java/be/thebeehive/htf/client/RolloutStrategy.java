@@ -0,0 +1,556 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Checkpoint;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scores candidate action subsets of a round by playing many random future rounds after each of them.
+ * <p>
+ * A candidate is first applied to the current round like {@link ActionSubsetOptimizer} does. Every rollout then
+ * plays {@link #getHorizon()} more rounds, drawing their effects from the effects of the current round and
+ * applying them with {@link ClientUtils#sumValues(FixedValues, FixedValues, FixedValues)}. The default policy
+ * removes a drawn effect when the current round offered a cheaper removal for it, and takes one random standalone
+ * action per round when it leaves the weaker of health and crew in a better place. The next checkpoint is applied
+ * when a rollout reaches it. The candidate that survives the most rollouts wins, ties go to the best average
+ * {@link ShipEvaluator} score of the surviving spaceships.
+ * <p>
+ * Rollouts run in batches on a {@link ForkJoinPool}. Every batch has its own {@link SplittableRandom}, split off
+ * before the batch is forked, and its own counters, so the workers share no mutable state. Batches are forked in
+ * waves until every candidate has {@link #getMaxRollouts()} rollouts, the deadline passes or the thread that forks
+ * them is interrupted.
+ * <p>
+ * As a {@link Strategy}, the candidates are built around the answer of a {@link GreedyStrategy}.
+ */
+public class RolloutStrategy implements Strategy, AutoCloseable {
+
+    public static final String NAME = "rollout";
+
+    public static final int DEFAULT_HORIZON = 8;
+    public static final int DEFAULT_MAX_ROLLOUTS = 4096;
+
+    /**
+     * The maximum number of candidates {@link #choose} builds around the seed.
+     */
+    public static final int MAX_CANDIDATES = 32;
+
+    private static final int BATCH_SIZE = 64;
+    private static final int DEADLINE_CHECK_INTERVAL = 16;
+
+    /**
+     * The number of standard errors by which a candidate must survive more often than the best one so far.
+     */
+    private static final double CONFIDENCE = 2.0;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int horizon;
+    private final int maxRollouts;
+    private final ShipEvaluator evaluator;
+    private final GreedyStrategy seed = new GreedyStrategy();
+
+    private final LongAdder totalRollouts = new LongAdder();
+    private final LongAdder totalCoreNanos = new LongAdder();
+
+    public RolloutStrategy() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_HORIZON);
+    }
+
+    /**
+     * Creates a strategy with its own pool, closed by {@link #close()}.
+     *
+     * @param parallelism the number of worker threads
+     * @param horizon     the number of future rounds every rollout plays
+     */
+    public RolloutStrategy(int parallelism, int horizon) {
+        this(new ForkJoinPool(parallelism), true, horizon, DEFAULT_MAX_ROLLOUTS, new ShipEvaluator());
+    }
+
+    /**
+     * Creates a strategy on a pool it does not own, e.g. {@link ForkJoinPool#commonPool()}.
+     *
+     * @param pool        the pool the rollouts run on
+     * @param horizon     the number of future rounds every rollout plays
+     * @param maxRollouts the number of rollouts per candidate after which a round stops early
+     * @param evaluator   the evaluator breaking ties between candidates that survive equally often
+     */
+    public RolloutStrategy(ForkJoinPool pool, int horizon, int maxRollouts, ShipEvaluator evaluator) {
+        this(pool, false, horizon, maxRollouts, evaluator);
+    }
+
+    private RolloutStrategy(ForkJoinPool pool, boolean ownsPool, int horizon, int maxRollouts, ShipEvaluator evaluator) {
+        if (horizon < 1 || maxRollouts < 1) {
+            throw new IllegalArgumentException("Horizon and rollouts must be positive");
+        }
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.horizon = horizon;
+        this.maxRollouts = maxRollouts;
+        this.evaluator = evaluator;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<Long> decide(GameRoundServerMessage msg, CheckpointPlanner.Plan plan, long deadlineNanos) {
+        return choose(msg, seed.decide(msg, plan, deadlineNanos), deadlineNanos).getActionIds();
+    }
+
+    public int getHorizon() {
+        return horizon;
+    }
+
+    public int getMaxRollouts() {
+        return maxRollouts;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * @return the number of rollouts played since this strategy was created
+     */
+    public long getRollouts() {
+        return totalRollouts.sum();
+    }
+
+    /**
+     * @return the rollouts per second per worker thread since this strategy was created,
+     * the figure to size hardware with
+     */
+    public double getRolloutsPerSecondPerCore() {
+        long coreNanos = totalCoreNanos.sum();
+        return coreNanos == 0 ? 0 : totalRollouts.sum() * 1e9 / coreNanos;
+    }
+
+    /**
+     * Scores the seed, the empty subset and the subsets that differ from the seed in one action.
+     *
+     * @param msg           The current round.
+     * @param seed          Action ids of a known good subset. May be empty.
+     * @param deadlineNanos The {@link System#nanoTime()} at which the rollouts must stop.
+     * @return The candidate with the best survival estimate.
+     */
+    public Result choose(GameRoundServerMessage msg, List<Long> seed, long deadlineNanos) {
+        Set<Long> base = new LinkedHashSet<>(seed);
+        Set<Set<Long>> seen = new HashSet<>();
+        List<List<Long>> candidates = new ArrayList<>();
+        addCandidate(candidates, seen, base);
+        addCandidate(candidates, seen, Collections.<Long>emptySet());
+        for (Action action : msg.getActions()) {
+            if (candidates.size() >= MAX_CANDIDATES) {
+                break;
+            }
+            Set<Long> toggled = new LinkedHashSet<>(base);
+            if (!toggled.remove(action.getId())) {
+                toggled.add(action.getId());
+            }
+            addCandidate(candidates, seen, toggled);
+        }
+        return evaluate(msg, candidates, deadlineNanos);
+    }
+
+    private static void addCandidate(List<List<Long>> candidates, Set<Set<Long>> seen, Set<Long> candidate) {
+        if (seen.add(candidate)) {
+            candidates.add(new ArrayList<>(candidate));
+        }
+    }
+
+    /**
+     * Scores the given candidates.
+     *
+     * @param msg           The current round.
+     * @param candidates    The action id subsets to score, at least one.
+     * @param deadlineNanos The {@link System#nanoTime()} at which the rollouts must stop.
+     * @return The candidate with the best survival estimate.
+     */
+    public Result evaluate(GameRoundServerMessage msg, List<List<Long>> candidates, long deadlineNanos) {
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("No candidates");
+        }
+        long startNanos = System.nanoTime();
+        Scenario scenario = new Scenario(msg, horizon);
+        int count = candidates.size();
+        FixedValues[] outcomes = new FixedValues[count];
+        for (int i = 0; i < count; i++) {
+            outcomes[i] = scenario.outcome(candidates.get(i));
+        }
+
+        long[] rollouts = new long[count];
+        long[] survived = new long[count];
+        double[] scoreSums = new double[count];
+        SplittableRandom random = new SplittableRandom();
+        int parallelism = pool.getParallelism();
+
+        while (System.nanoTime() - deadlineNanos < 0 && !Thread.currentThread().isInterrupted()) {
+            List<Batch> wave = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                if (outcomes[i] != null && rollouts[i] < maxRollouts) {
+                    int batches = (int) Math.min(parallelism, (maxRollouts - rollouts[i] + BATCH_SIZE - 1) / BATCH_SIZE);
+                    for (int b = 0; b < batches; b++) {
+                        wave.add(new Batch(scenario, outcomes[i], i, random.split(), deadlineNanos));
+                    }
+                }
+            }
+            if (wave.isEmpty()) {
+                break;
+            }
+            pool.invoke(new Wave(wave));
+            for (Batch batch : wave) {
+                rollouts[batch.candidate] += batch.rollouts;
+                survived[batch.candidate] += batch.survived;
+                scoreSums[batch.candidate] += batch.scoreSum;
+            }
+        }
+
+        long total = 0;
+        for (long candidateRollouts : rollouts) {
+            total += candidateRollouts;
+        }
+
+        // A later candidate only replaces an earlier one when it survives clearly more often,
+        // so the seed is not given up for a difference that is sampling noise. Candidates that
+        // the deadline left without rollouts are skipped, unless none were rolled out at all:
+        // then they all survive as often and the evaluator picks, the seed on a tie
+        int best = 0;
+        double bestSurvival = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            if (total > 0 && outcomes[i] != null && rollouts[i] == 0) {
+                continue;
+            }
+            double survival = outcomes[i] == null ? 0 : rollouts[i] == 0 ? 0.5 : (double) survived[i] / rollouts[i];
+            double score = outcomes[i] == null ? Double.NEGATIVE_INFINITY
+                    : survived[i] == 0 ? evaluator.evaluate(outcomes[i]) : scoreSums[i] / survived[i];
+            double margin = CONFIDENCE * (standardError(survival, rollouts[i]) + standardError(bestSurvival, rollouts[best]));
+            if (survival - bestSurvival > margin || (survival == bestSurvival && score > bestScore)) {
+                best = i;
+                bestSurvival = survival;
+                bestScore = score;
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        totalRollouts.add(total);
+        totalCoreNanos.add(elapsedNanos * parallelism);
+        return new Result(candidates.get(best), outcomes[best] == null ? 0 : bestSurvival, bestScore,
+                rollouts[best], total, elapsedNanos, parallelism);
+    }
+
+    private static double standardError(double survival, long rollouts) {
+        return rollouts == 0 || survival < 0 ? 0 : Math.sqrt(survival * (1 - survival) / rollouts);
+    }
+
+    /**
+     * Shuts the pool down if this strategy created it.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The outcome of scoring a round's candidates.
+     */
+    public static class Result {
+
+        private final List<Long> actionIds;
+        private final double survival;
+        private final double score;
+        private final long candidateRollouts;
+        private final long rollouts;
+        private final long elapsedNanos;
+        private final int parallelism;
+
+        public Result(List<Long> actionIds, double survival, double score, long candidateRollouts,
+                      long rollouts, long elapsedNanos, int parallelism) {
+            this.actionIds = actionIds;
+            this.survival = survival;
+            this.score = score;
+            this.candidateRollouts = candidateRollouts;
+            this.rollouts = rollouts;
+            this.elapsedNanos = elapsedNanos;
+            this.parallelism = parallelism;
+        }
+
+        /**
+         * @return the action ids of the best candidate
+         */
+        public List<Long> getActionIds() {
+            return actionIds;
+        }
+
+        /**
+         * @return the share of the rollouts of the best candidate that survived, 0.5 when there were none
+         */
+        public double getSurvival() {
+            return survival;
+        }
+
+        /**
+         * @return the average score of the surviving rollouts of the best candidate
+         */
+        public double getScore() {
+            return score;
+        }
+
+        /**
+         * @return the number of rollouts of the best candidate
+         */
+        public long getCandidateRollouts() {
+            return candidateRollouts;
+        }
+
+        /**
+         * @return the number of rollouts of all candidates
+         */
+        public long getRollouts() {
+            return rollouts;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return the rollouts per second per worker thread of this round
+         */
+        public double getRolloutsPerSecondPerCore() {
+            return elapsedNanos == 0 ? 0 : rollouts * 1e9 / elapsedNanos / parallelism;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "actionIds=" + actionIds +
+                    ", survival=" + survival +
+                    ", score=" + score +
+                    ", candidateRollouts=" + candidateRollouts +
+                    ", rollouts=" + rollouts +
+                    ", elapsedMicros=" + TimeUnit.NANOSECONDS.toMicros(elapsedNanos) +
+                    ", rolloutsPerSecondPerCore=" + Math.round(getRolloutsPerSecondPerCore()) +
+                    '}';
+        }
+    }
+
+    /**
+     * The immutable description of the current round and the rounds drawn after it, shared by all batches.
+     */
+    private static class Scenario {
+
+        private final int horizon;
+        private final FixedValues start;
+        private final FixedValues checkpoint;
+        private final long round;
+        private final Effect[] effects;
+        private final FixedValues[] effectValues;
+        private final Map<Long, FixedValues> actionValues = new HashMap<>();
+        private final Map<Long, Long> removedEffects = new HashMap<>();
+
+        private final FixedValues[] drawnEffects;
+        private final int effectsPerRound;
+        private final FixedValues[] standalone;
+        private final FixedValues futureCheckpoint;
+        private final int checkpointDepth;
+
+        Scenario(GameRoundServerMessage msg, int horizon) {
+            this.horizon = horizon;
+            this.round = msg.getRound();
+            this.start = FixedValues.of(msg.getOurSpaceship().getValues());
+
+            Checkpoint next = msg.getNextCheckpoint();
+            this.checkpoint = next != null && next.getRound() == round + 1 ? FixedValues.of(next.getValues()) : null;
+            long depth = next == null ? -1 : next.getRound() - round - 2;
+            this.checkpointDepth = depth >= 0 && depth < horizon ? (int) depth : -1;
+            this.futureCheckpoint = checkpointDepth < 0 ? null : FixedValues.of(next.getValues());
+
+            this.effects = msg.getEffects().toArray(new Effect[0]);
+            Arrays.sort(effects, Comparator.comparingInt(Effect::getStep));
+
+            Map<Long, Values> cheapestRemoval = new HashMap<>();
+            List<FixedValues> standalone = new ArrayList<>();
+            for (Action action : msg.getActions()) {
+                actionValues.put(action.getId(), FixedValues.of(action.getValues()));
+                if (ActionKind.of(action) == ActionKind.REMOVE_EFFECT) {
+                    removedEffects.put(action.getId(), action.getEffectId());
+                    Values previous = cheapestRemoval.get(action.getEffectId());
+                    if (previous == null || cost(action.getValues()) < cost(previous)) {
+                        cheapestRemoval.put(action.getEffectId(), action.getValues());
+                    }
+                } else {
+                    standalone.add(FixedValues.of(action.getValues()));
+                }
+            }
+            this.standalone = standalone.toArray(new FixedValues[0]);
+
+            this.effectValues = new FixedValues[effects.length];
+            this.drawnEffects = new FixedValues[effects.length];
+            for (int j = 0; j < effects.length; j++) {
+                effectValues[j] = FixedValues.of(effects[j].getValues());
+                Values removal = cheapestRemoval.get(effects[j].getId());
+                Values values = removal != null && cost(removal) < cost(effects[j].getValues()) ? removal : effects[j].getValues();
+                drawnEffects[j] = FixedValues.of(values);
+            }
+            this.effectsPerRound = effects.length;
+        }
+
+        /**
+         * Applies a candidate to the current round.
+         *
+         * @return the spaceship at the start of the next round, or null if it died
+         */
+        FixedValues outcome(List<Long> actionIds) {
+            FixedValues state = new FixedValues().set(start);
+            Set<Long> removed = new HashSet<>();
+            for (Long id : actionIds) {
+                FixedValues values = actionValues.get(id);
+                if (values == null) {
+                    continue;
+                }
+                if (ClientUtils.sumValues(state, values, state).isDead()) {
+                    return null;
+                }
+                Long effectId = removedEffects.get(id);
+                if (effectId != null) {
+                    removed.add(effectId);
+                }
+            }
+            for (int j = 0; j < effects.length; j++) {
+                if (!removed.contains(effects[j].getId()) && ClientUtils.sumValues(state, effectValues[j], state).isDead()) {
+                    return null;
+                }
+            }
+            if (checkpoint != null && ClientUtils.isDead(ClientUtils.sumValues(state, checkpoint, state))) {
+                return null;
+            }
+            return state;
+        }
+
+        /**
+         * Plays the future rounds of one rollout.
+         *
+         * @return true if the spaceship survived them
+         */
+        boolean rollout(SplittableRandom random, FixedValues state, FixedValues scratch) {
+            for (int depth = 0; depth < horizon; depth++) {
+                if (standalone.length > 0) {
+                    FixedValues action = standalone[random.nextInt(standalone.length)];
+                    ClientUtils.sumValues(state, action, scratch);
+                    if (scratch.isAlive() && weakness(scratch) > weakness(state)) {
+                        state.set(scratch);
+                    }
+                }
+                for (int k = 0; k < effectsPerRound; k++) {
+                    if (ClientUtils.isDead(ClientUtils.sumValues(state, drawnEffects[random.nextInt(drawnEffects.length)], state))) {
+                        return false;
+                    }
+                }
+                if (depth == checkpointDepth && ClientUtils.isDead(ClientUtils.sumValues(state, futureCheckpoint, state))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the fill ratio of the emptier of health and crew
+         */
+        private static double weakness(FixedValues values) {
+            double health = values.getRawMaxHealth() == 0 ? 0 : (double) values.getRawHealth() / values.getRawMaxHealth();
+            double crew = values.getRawMaxCrew() == 0 ? 0 : (double) values.getRawCrew() / values.getRawMaxCrew();
+            return Math.min(health, crew);
+        }
+
+        private static double cost(Values values) {
+            return Math.abs(values.getHealth().doubleValue())
+                    + Math.abs(values.getMaxHealth().doubleValue())
+                    + Math.abs(values.getCrew().doubleValue())
+                    + Math.abs(values.getMaxCrew().doubleValue());
+        }
+    }
+
+    /**
+     * Forks the batches of a wave and waits for all of them. Never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static class Wave extends RecursiveAction {
+
+        private final List<Batch> batches;
+
+        Wave(List<Batch> batches) {
+            this.batches = batches;
+        }
+
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(batches);
+        }
+    }
+
+    /**
+     * Up to {@link #BATCH_SIZE} rollouts of one candidate, with counters only this batch writes to. Never serialized.
+     */
+    @SuppressWarnings("serial")
+    private class Batch extends RecursiveAction {
+
+        private final Scenario scenario;
+        private final FixedValues outcome;
+        private final int candidate;
+        private final SplittableRandom random;
+        private final long deadlineNanos;
+
+        private long rollouts;
+        private long survived;
+        private double scoreSum;
+
+        Batch(Scenario scenario, FixedValues outcome, int candidate, SplittableRandom random, long deadlineNanos) {
+            this.scenario = scenario;
+            this.outcome = outcome;
+            this.candidate = candidate;
+            this.random = random;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        protected void compute() {
+            FixedValues state = new FixedValues();
+            FixedValues scratch = new FixedValues();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                if (i % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() - deadlineNanos >= 0) {
+                    return;
+                }
+                state.set(outcome);
+                rollouts++;
+                if (scenario.rollout(random, state, scratch)) {
+                    survived++;
+                    scoreSum += evaluator.evaluate(state);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An {@link EffectModel} that expects every upcoming round to look like the current one.
+ */
+public class RoundEffectModel implements EffectModel {
+
+    private final double[] round = new double[4];
+    private final double[][] payoffs = new double[ActionKind.values().length][4];
+
+    /**
+     * Builds the model from the effects and actions of a round.
+     *
+     * @param msg The current round.
+     * @return A new model.
+     */
+    public static RoundEffectModel of(GameRoundServerMessage msg) {
+        RoundEffectModel model = new RoundEffectModel();
+
+        Map<Long, Values> cheapestRemoval = new HashMap<>();
+        int[] counts = new int[ActionKind.values().length];
+        for (Action action : msg.getActions()) {
+            ActionKind kind = ActionKind.of(action);
+            if (kind == ActionKind.REMOVE_EFFECT) {
+                Values previous = cheapestRemoval.get(action.getEffectId());
+                if (previous == null || magnitude(action.getValues()) < magnitude(previous)) {
+                    cheapestRemoval.put(action.getEffectId(), action.getValues());
+                }
+            } else {
+                add(model.payoffs[kind.ordinal()], action.getValues());
+                counts[kind.ordinal()]++;
+            }
+        }
+        for (ActionKind kind : ActionKind.values()) {
+            for (int c = 0; c < 4 && counts[kind.ordinal()] > 0; c++) {
+                model.payoffs[kind.ordinal()][c] /= counts[kind.ordinal()];
+            }
+        }
+
+        for (Effect effect : msg.getEffects()) {
+            Values removal = cheapestRemoval.get(effect.getId());
+            if (removal != null && magnitude(removal) < magnitude(effect.getValues())) {
+                add(model.round, removal);
+            } else {
+                add(model.round, effect.getValues());
+            }
+        }
+        return model;
+    }
+
+    @Override
+    public void expectedRound(long round, double[] target) {
+        System.arraycopy(this.round, 0, target, 0, 4);
+    }
+
+    @Override
+    public void expectedPayoff(long round, ActionKind kind, double[] target) {
+        System.arraycopy(this.payoffs[kind.ordinal()], 0, target, 0, 4);
+    }
+
+    private static void add(double[] target, Values values) {
+        target[HEALTH] += values.getHealth().doubleValue();
+        target[MAX_HEALTH] += values.getMaxHealth().doubleValue();
+        target[CREW] += values.getCrew().doubleValue();
+        target[MAX_CREW] += values.getMaxCrew().doubleValue();
+    }
+
+    private static double magnitude(Values values) {
+        return Math.abs(values.getHealth().doubleValue())
+                + Math.abs(values.getMaxHealth().doubleValue())
+                + Math.abs(values.getCrew().doubleValue())
+                + Math.abs(values.getMaxCrew().doubleValue());
+    }
+}
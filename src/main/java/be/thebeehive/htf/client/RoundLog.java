@@ -0,0 +1,372 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A level-gated log with one structured record per round, and a line of text per game.
+ * <p>
+ * Records are preallocated in a ring buffer. The round thread only copies primitives into a record,
+ * a background thread formats and prints it. When the buffer is full the record is dropped rather
+ * than blocking the round thread, and when the log is {@link Level#OFF} nothing is recorded at all.
+ * The background thread parks while there is nothing to print and is unparked by the next record.
+ * <p>
+ * The level of the {@link #shared()} log is read from the {@value #LEVEL_PROPERTY} system property.
+ */
+public class RoundLog {
+
+    public static final String LEVEL_PROPERTY = "htf.roundlog.level";
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private static final RoundLog SHARED = new RoundLog(
+            Level.valueOf(System.getProperty(LEVEL_PROPERTY, Level.INFO.name())),
+            DEFAULT_CAPACITY,
+            System.out
+    );
+
+    /**
+     * The detail of the log.
+     */
+    public enum Level {
+        /**
+         * Nothing is recorded.
+         */
+        OFF,
+        /**
+         * A summary of the decision of every round.
+         */
+        INFO,
+        /**
+         * The summary plus every effect and action of the round.
+         */
+        DEBUG
+    }
+
+    private final Level level;
+    private final PrintStream out;
+    private final Record[] records;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long consumed;
+    private volatile Thread writer;
+    private volatile boolean waiting;
+
+    public RoundLog(Level level, int capacity, PrintStream out) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.level = level;
+        this.out = out;
+        this.records = new Record[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            this.records[i] = new Record();
+            this.records[i].published = i - capacity;
+        }
+    }
+
+    /**
+     * @return the log shared by all clients of this JVM
+     */
+    public static RoundLog shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return true if records of the given level are kept
+     */
+    public boolean isEnabled(Level level) {
+        return level != Level.OFF && this.level.compareTo(level) >= 0;
+    }
+
+    /**
+     * @return the number of records dropped because the buffer was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Claims a record to fill. Must be followed by {@link #publish(Record)}, or by {@link #cancel(Record)} if it
+     * cannot be filled, otherwise the writer waits for it forever.
+     *
+     * @return the record, or null if the log is off or the buffer is full
+     */
+    public Record claim() {
+        if (level == Level.OFF) {
+            return null;
+        }
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed >= records.length) {
+                dropped.incrementAndGet();
+                return null;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                Record record = records[(int) (sequence & mask)];
+                record.sequence = sequence;
+                record.debug = level == Level.DEBUG;
+                record.cancelled = false;
+                record.message = null;
+                return record;
+            }
+        }
+    }
+
+    /**
+     * Hands a filled record to the background writer.
+     *
+     * @param record a record returned by {@link #claim()}
+     */
+    public void publish(Record record) {
+        record.published = record.sequence;
+        Thread thread = writer;
+        if (thread == null) {
+            startWriter();
+        } else if (waiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Logs a line of text at {@link Level#INFO}, such as the summary of a game.
+     */
+    public void info(String message) {
+        Record record = claim();
+        if (record != null) {
+            record.message = message;
+            publish(record);
+        }
+    }
+
+    /**
+     * Hands back a claimed record that could not be filled, the writer skips it.
+     *
+     * @param record a record returned by {@link #claim()}
+     */
+    public void cancel(Record record) {
+        record.cancelled = true;
+        publish(record);
+    }
+
+    private synchronized void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        Thread thread = new Thread(this::drain, "htf-round-log");
+        thread.setDaemon(true);
+        thread.start();
+        writer = thread;
+    }
+
+    private void drain() {
+        StringBuilder line = new StringBuilder(256);
+        while (true) {
+            long sequence = consumed;
+            Record record = records[(int) (sequence & mask)];
+            if (record.published != sequence) {
+                out.flush();
+                // Publishers unpark us once they see we are waiting, so check again after saying so
+                waiting = true;
+                if (record.published != sequence) {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+                continue;
+            }
+            if (record.cancelled) {
+                consumed = sequence + 1;
+                continue;
+            }
+            line.setLength(0);
+            record.format(line);
+            consumed = sequence + 1;
+            out.println(line);
+        }
+    }
+
+    /**
+     * The data of a single round, copied as primitives so formatting can happen later.
+     */
+    public static class Record {
+
+        private volatile long published;
+        private long sequence;
+        private boolean debug;
+        private boolean cancelled;
+        private String message;
+
+        private long round;
+        private long roundIdMostSignificantBits;
+        private long roundIdLeastSignificantBits;
+        private double totalHealthLoss;
+        private double totalCrewLoss;
+        private final LongList greedy = new LongList();
+        private final LongList selected = new LongList();
+        private double score;
+        private String strategy;
+        private int answers;
+        private long decisionNanos;
+        private long remainingNanos;
+
+        private int effectCount;
+        private long[] effectIds = new long[0];
+        private int[] effectSteps = new int[0];
+        private double[] effectValues = new double[0];
+        private int actionCount;
+        private long[] actionIds = new long[0];
+        private long[] actionEffectIds = new long[0];
+        private double[] actionValues = new double[0];
+
+        /**
+         * Copies the round, including its effects and actions at {@link Level#DEBUG}.
+         */
+        public Record round(GameRoundServerMessage msg, double totalHealthLoss, double totalCrewLoss) {
+            this.round = msg.getRound();
+            UUID roundId = msg.getRoundId();
+            this.roundIdMostSignificantBits = roundId == null ? 0 : roundId.getMostSignificantBits();
+            this.roundIdLeastSignificantBits = roundId == null ? 0 : roundId.getLeastSignificantBits();
+            this.totalHealthLoss = totalHealthLoss;
+            this.totalCrewLoss = totalCrewLoss;
+            this.effectCount = msg.getEffects().size();
+            this.actionCount = msg.getActions().size();
+            if (debug) {
+                copyEffects(msg.getEffects());
+                copyActions(msg.getActions());
+            }
+            return this;
+        }
+
+        /**
+         * Copies the decision taken for the round.
+         *
+         * @param result the answer picked by the portfolio, or null if no strategy answered in time
+         */
+        public Record decision(List<Long> greedy, List<Long> selected, PortfolioRunner.Result result, long decisionNanos, long remainingNanos) {
+            this.greedy.set(greedy);
+            this.selected.set(selected);
+            this.score = result == null ? Double.NaN : result.getScore();
+            this.strategy = result == null ? null : result.getStrategy();
+            this.answers = result == null ? 0 : result.getAnswers();
+            this.decisionNanos = decisionNanos;
+            this.remainingNanos = remainingNanos;
+            return this;
+        }
+
+        private void copyEffects(List<Effect> effects) {
+            if (effectIds.length < effects.size()) {
+                effectIds = new long[effects.size()];
+                effectSteps = new int[effects.size()];
+                effectValues = new double[4 * effects.size()];
+            }
+            for (int i = 0; i < effects.size(); i++) {
+                Effect effect = effects.get(i);
+                effectIds[i] = effect.getId();
+                effectSteps[i] = effect.getStep();
+                copyValues(effect.getValues(), effectValues, 4 * i);
+            }
+        }
+
+        private void copyActions(List<Action> actions) {
+            if (actionIds.length < actions.size()) {
+                actionIds = new long[actions.size()];
+                actionEffectIds = new long[actions.size()];
+                actionValues = new double[4 * actions.size()];
+            }
+            for (int i = 0; i < actions.size(); i++) {
+                Action action = actions.get(i);
+                actionIds[i] = action.getId();
+                actionEffectIds[i] = action.getEffectId();
+                copyValues(action.getValues(), actionValues, 4 * i);
+            }
+        }
+
+        private static void copyValues(GameRoundServerMessage.Values values, double[] target, int offset) {
+            target[offset] = values.getHealth().doubleValue();
+            target[offset + 1] = values.getMaxHealth().doubleValue();
+            target[offset + 2] = values.getCrew().doubleValue();
+            target[offset + 3] = values.getMaxCrew().doubleValue();
+        }
+
+        private void format(StringBuilder line) {
+            if (message != null) {
+                line.append(message);
+                return;
+            }
+            line.append("round=").append(round)
+                    .append(" roundId=").append(new UUID(roundIdMostSignificantBits, roundIdLeastSignificantBits))
+                    .append(" effects=").append(effectCount)
+                    .append(" actions=").append(actionCount)
+                    .append(" healthLoss=").append(totalHealthLoss)
+                    .append(" crewLoss=").append(totalCrewLoss)
+                    .append(" greedy=");
+            greedy.format(line);
+            line.append(" selected=");
+            selected.format(line);
+            line.append(" score=").append(score)
+                    .append(" strategy=").append(strategy)
+                    .append(" answers=").append(answers)
+                    .append(" decisionMicros=").append(TimeUnit.NANOSECONDS.toMicros(decisionNanos))
+                    .append(" remainingMillis=").append(TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+            if (!debug) {
+                return;
+            }
+            line.append(" effectList=[");
+            for (int i = 0; i < effectCount; i++) {
+                line.append(i == 0 ? "" : ", ").append("{id=").append(effectIds[i]).append(" step=").append(effectSteps[i]);
+                formatValues(line, effectValues, 4 * i);
+            }
+            line.append("] actionList=[");
+            for (int i = 0; i < actionCount; i++) {
+                line.append(i == 0 ? "" : ", ").append("{id=").append(actionIds[i]).append(" effectId=").append(actionEffectIds[i]);
+                formatValues(line, actionValues, 4 * i);
+            }
+            line.append(']');
+        }
+
+        private static void formatValues(StringBuilder line, double[] values, int offset) {
+            line.append(" health=").append(values[offset])
+                    .append(" maxHealth=").append(values[offset + 1])
+                    .append(" crew=").append(values[offset + 2])
+                    .append(" maxCrew=").append(values[offset + 3])
+                    .append('}');
+        }
+    }
+
+    /**
+     * A reusable list of primitive longs.
+     */
+    private static class LongList {
+
+        private long[] values = new long[16];
+        private int size;
+
+        void set(List<Long> list) {
+            if (values.length < list.size()) {
+                values = new long[Math.max(list.size(), 2 * values.length)];
+            }
+            size = list.size();
+            for (int i = 0; i < size; i++) {
+                values[i] = list.get(i);
+            }
+        }
+
+        void format(StringBuilder line) {
+            line.append('[');
+            for (int i = 0; i < size; i++) {
+                line.append(i == 0 ? "" : ",").append(values[i]);
+            }
+            line.append(']');
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+/**
+ * Scores the state of a spaceship after a round has been played.
+ * <p>
+ * The score is a weighted sum of the (clamped) health, crew and their maximums.
+ * All weights must be non-negative: the {@link ActionSubsetOptimizer} relies on the
+ * score being monotone in every component to compute its upper bounds.
+ */
+public class ShipEvaluator {
+
+    public static final double DEFAULT_HEALTH_WEIGHT = 1.0;
+    public static final double DEFAULT_CREW_WEIGHT = 1.0;
+    public static final double DEFAULT_MAX_HEALTH_WEIGHT = 0.5;
+    public static final double DEFAULT_MAX_CREW_WEIGHT = 0.5;
+
+    private final double healthWeight;
+    private final double crewWeight;
+    private final double maxHealthWeight;
+    private final double maxCrewWeight;
+
+    public ShipEvaluator() {
+        this(DEFAULT_HEALTH_WEIGHT, DEFAULT_CREW_WEIGHT, DEFAULT_MAX_HEALTH_WEIGHT, DEFAULT_MAX_CREW_WEIGHT);
+    }
+
+    public ShipEvaluator(double healthWeight, double crewWeight, double maxHealthWeight, double maxCrewWeight) {
+        if (healthWeight < 0 || crewWeight < 0 || maxHealthWeight < 0 || maxCrewWeight < 0) {
+            throw new IllegalArgumentException("Weights must be non-negative");
+        }
+        this.healthWeight = healthWeight;
+        this.crewWeight = crewWeight;
+        this.maxHealthWeight = maxHealthWeight;
+        this.maxCrewWeight = maxCrewWeight;
+    }
+
+    /**
+     * Weighs the maximums more, for when staying alive is all that counts: a larger maximum is what keeps the
+     * spaceship alive through the rounds after the next checkpoint, while health and crew only count until then.
+     *
+     * @param factor The factor to multiply the maximum weights with, at least 0.
+     * @return A new evaluator.
+     */
+    public ShipEvaluator withMaxWeightsScaled(double factor) {
+        return new ShipEvaluator(healthWeight, crewWeight, maxHealthWeight * factor, maxCrewWeight * factor);
+    }
+
+    /**
+     * Scores the given Values.
+     *
+     * @param values The Values of the spaceship.
+     * @return The score, or {@link Double#NEGATIVE_INFINITY} if the spaceship is dead.
+     */
+    public double evaluate(Values values) {
+        if (ClientUtils.isDead(values)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return evaluate(
+                values.getHealth().doubleValue(),
+                values.getMaxHealth().doubleValue(),
+                values.getCrew().doubleValue(),
+                values.getMaxCrew().doubleValue()
+        );
+    }
+
+    /**
+     * Scores the given FixedValues.
+     *
+     * @param values The FixedValues of the spaceship.
+     * @return The score, or {@link Double#NEGATIVE_INFINITY} if the spaceship is dead.
+     */
+    public double evaluate(FixedValues values) {
+        if (values.isDead()) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return evaluate(values.getHealth(), values.getMaxHealth(), values.getCrew(), values.getMaxCrew());
+    }
+
+    /**
+     * Scores raw components without any clamping or death check.
+     *
+     * @return The weighted sum of the components.
+     */
+    public double evaluate(double health, double maxHealth, double crew, double maxCrew) {
+        return health * healthWeight
+                + crew * crewWeight
+                + maxHealth * maxHealthWeight
+                + maxCrew * maxCrewWeight;
+    }
+
+    /**
+     * Computes an upper bound on the score of any surviving spaceship whose components
+     * do not exceed the given (unclamped) maximums.
+     *
+     * @return The upper bound, or {@link Double#NEGATIVE_INFINITY} if no surviving state is possible.
+     */
+    public double upperBound(double health, double maxHealth, double crew, double maxCrew) {
+        double boundedHealth = Math.min(health, maxHealth);
+        double boundedCrew = Math.min(crew, maxCrew);
+        if (boundedHealth <= 0 || boundedCrew <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return evaluate(boundedHealth, maxHealth, boundedCrew, maxCrew);
+    }
+}
@@ -0,0 +1,31 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+
+import java.util.List;
+
+/**
+ * Decides which actions to take in a round.
+ * <p>
+ * Strategies are run concurrently by a {@link PortfolioRunner}, so an implementation must be safe to call from
+ * several threads and must not modify the round. It should return before the deadline: an answer that is late
+ * is not taken into account.
+ */
+public interface Strategy {
+
+    /**
+     * @return the name under which the statistics of this strategy are reported
+     */
+    String getName();
+
+    /**
+     * Decides the actions of a round.
+     *
+     * @param msg           The current round.
+     * @param plan          The plan until the next checkpoint, or null if there is none.
+     * @param deadlineNanos The {@link System#nanoTime()} at which the answer must be ready.
+     * @return The ids of the actions to take.
+     */
+    List<Long> decide(GameRoundServerMessage msg, CheckpointPlanner.Plan plan, long deadlineNanos) throws Exception;
+
+}
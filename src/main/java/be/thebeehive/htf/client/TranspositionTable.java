@@ -0,0 +1,210 @@
+package be.thebeehive.htf.client;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of evaluated spaceship states that searchers on several threads can share without locks.
+ * <p>
+ * A state is keyed by {@link #key(long, long, long, long, long)}: its quantized health, max health, crew and
+ * max crew and the round, packed into one {@code long}. The table is two-way set-associative: a key can be in
+ * either slot of its pair, and a new entry takes a free slot or else replaces the first one. An entry is stored as
+ * two {@code long}s, the key XOR-ed with the data and the data itself, so a reader that races with a writer sees a
+ * key that does not match and treats the entry as a miss instead of reading a mix of two entries.
+ * <p>
+ * The data holds the score as a {@code float}, a move hint and the generation it was stored in.
+ * {@link #newGeneration()} invalidates every entry in constant time, for searchers whose scores are only valid
+ * for one search. The counters are there to size the table: many evictions for few hits means it is too small.
+ */
+public class TranspositionTable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * The largest quantum of a component, larger ones are stored as this.
+     */
+    public static final long MAX_QUANTUM = (1L << 12) - 1;
+
+    /**
+     * Returned by {@link #probe(long)} when the key is not in the table.
+     */
+    public static final long MISS = 0;
+
+    private static final int QUANTUM_BITS = 12;
+    private static final long ROUND_MASK = 0xFFFF;
+    private static final long GENERATION_MASK = 0xFFFF;
+    private static final long VALID = 1L << 24;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private volatile long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TranspositionTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of entries, rounded up to a power of two of at least 2
+     */
+    public TranspositionTable(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        }
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.keys = new long[size];
+        this.data = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Packs a state into a key. Components are quanta between 0 and {@link #MAX_QUANTUM}, values outside
+     * are clamped. Only the lowest 16 bits of the round are kept.
+     */
+    public static long key(long round, long health, long maxHealth, long crew, long maxCrew) {
+        long key = round & ROUND_MASK;
+        key = (key << QUANTUM_BITS) | clamp(health);
+        key = (key << QUANTUM_BITS) | clamp(maxHealth);
+        key = (key << QUANTUM_BITS) | clamp(crew);
+        key = (key << QUANTUM_BITS) | clamp(maxCrew);
+        return key;
+    }
+
+    private static long clamp(long quantum) {
+        return Math.max(0, Math.min(MAX_QUANTUM, quantum));
+    }
+
+    /**
+     * Looks a state up.
+     *
+     * @param key the key of the state
+     * @return the entry, to be read with {@link #score(long)} and {@link #move(long)}, or {@link #MISS}
+     */
+    public long probe(long key) {
+        long current = generation & GENERATION_MASK;
+        int slot = slot(key);
+        for (int way = 0; way < 2; way++, slot ^= 1) {
+            long entry = data[slot];
+            if ((keys[slot] ^ entry) == key && isCurrent(entry, current)) {
+                hits.increment();
+                return entry;
+            }
+        }
+        misses.increment();
+        return MISS;
+    }
+
+    /**
+     * Stores the score of a state, replacing the entry in its slot.
+     *
+     * @param key   the key of the state
+     * @param score the score
+     * @param move  a hint of the best move from the state between 0 and 255, or 0 for none
+     */
+    public void store(long key, double score, int move) {
+        long current = generation & GENERATION_MASK;
+        int first = slot(key);
+        int second = first ^ 1;
+        int slot;
+        if ((keys[first] ^ data[first]) == key || !isCurrent(data[first], current)) {
+            slot = first;
+        } else if ((keys[second] ^ data[second]) == key || !isCurrent(data[second], current)) {
+            slot = second;
+        } else {
+            slot = first;
+            evictions.increment();
+        }
+        long entry = ((long) Float.floatToRawIntBits((float) score) << 32) | VALID | (current << 8) | (move & 0xFF);
+        data[slot] = entry;
+        keys[slot] = key ^ entry;
+        stores.increment();
+    }
+
+    /**
+     * @param entry an entry returned by {@link #probe(long)}
+     * @return the stored score
+     */
+    public static double score(long entry) {
+        return Float.intBitsToFloat((int) (entry >>> 32));
+    }
+
+    /**
+     * @param entry an entry returned by {@link #probe(long)}
+     * @return the stored move hint
+     */
+    public static int move(long entry) {
+        return (int) (entry & 0xFF);
+    }
+
+    private static boolean isCurrent(long entry, long generation) {
+        return (entry & VALID) != 0 && ((entry >>> 8) & GENERATION_MASK) == generation;
+    }
+
+    /**
+     * Invalidates every entry. After 65536 generations an entry of an old generation could be valid again,
+     * which is harmless for searches that overwrite what they read.
+     */
+    public void newGeneration() {
+        generation++;
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * @return the number of entries of the current generation that were replaced by another key
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the share of probes that hit, 0 without probes
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long probes = hits + getMisses();
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    public void resetCounters() {
+        hits.reset();
+        misses.reset();
+        stores.reset();
+        evictions.reset();
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "TranspositionTable{" +
+                "capacity=" + getCapacity() +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", stores=" + getStores() +
+                ", evictions=" + getEvictions() +
+                ", hitRate=" + getHitRate() +
+                '}';
+    }
+}
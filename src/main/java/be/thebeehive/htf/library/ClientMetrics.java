@@ -0,0 +1,265 @@
+package be.thebeehive.htf.library;
+
+import be.thebeehive.htf.library.protocol.server.ErrorServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.ServerMessage;
+import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies per stage of the handling of a message by a {@link HtfClient}, and counters per message type.
+ * <p>
+ * The stages are: decode, dispatch to the listener, the decision of the listener and encode and send of the reply.
+ * Recording does not lock or allocate, so it is always on. The metrics of a client can be
+ * {@link #register(String) registered} as a platform MBean, to be watched with e.g. JConsole.
+ */
+public class ClientMetrics implements ClientMetricsMXBean {
+
+    public static final String DOMAIN = "be.thebeehive.htf";
+
+    private final LatencyHistogram decode = new LatencyHistogram();
+    private final LatencyHistogram dispatch = new LatencyHistogram();
+    private final LatencyHistogram decision = new LatencyHistogram();
+    private final LatencyHistogram send = new LatencyHistogram();
+    private final LatencyHistogram deadlineMargin = new LatencyHistogram();
+    private final AtomicLong negativeMargins = new AtomicLong();
+    private final LatencyHistogram rtt = new LatencyHistogram();
+    private volatile long firstDecodeNanos;
+    private volatile long firstDecisionNanos;
+    private volatile long firstSendNanos;
+
+    private final AtomicLong gameRoundMessages = new AtomicLong();
+    private final AtomicLong gameEndedMessages = new AtomicLong();
+    private final AtomicLong warningMessages = new AtomicLong();
+    private final AtomicLong errorMessages = new AtomicLong();
+    private final AtomicLong otherMessages = new AtomicLong();
+
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicBoolean inGame = new AtomicBoolean();
+    private volatile ObjectName objectName;
+
+    /**
+     * Registers these metrics with the platform MBean server as {@code be.thebeehive.htf:type=ClientMetrics,name=...}.
+     * A failure is reported and otherwise ignored, the metrics are still recorded.
+     *
+     * @param name the name of the client, unique within the JVM
+     */
+    public void register(String name) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=ClientMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException ex) {
+            System.err.println("Could not register client metrics " + name + "\n" + ex);
+        }
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server, if they were registered.
+     */
+    public void unregister() {
+        ObjectName objectName = this.objectName;
+        if (objectName == null) {
+            return;
+        }
+        this.objectName = null;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException ex) {
+            System.err.println("Could not unregister client metrics " + objectName + "\n" + ex);
+        }
+    }
+
+    /**
+     * Counts a decoded message, resetting the metrics when it is the first round of a game.
+     */
+    void recordMessage(ServerMessage msg) {
+        if (msg instanceof GameRoundServerMessage) {
+            if (inGame.compareAndSet(false, true)) {
+                games.incrementAndGet();
+                reset();
+            }
+            gameRoundMessages.incrementAndGet();
+        } else if (msg instanceof GameEndedServerMessage) {
+            inGame.set(false);
+            gameEndedMessages.incrementAndGet();
+        } else if (msg instanceof WarningServerMessage) {
+            warningMessages.incrementAndGet();
+        } else if (msg instanceof ErrorServerMessage) {
+            errorMessages.incrementAndGet();
+        } else {
+            otherMessages.incrementAndGet();
+        }
+    }
+
+    /**
+     * The first duration of a stage after a reset is also kept apart, it belongs to the first round of the game.
+     */
+    void recordDecode(long nanos) {
+        if (decode.getCount() == 0) {
+            firstDecodeNanos = nanos;
+        }
+        decode.record(nanos);
+    }
+
+    void recordDispatch(long nanos) {
+        dispatch.record(nanos);
+    }
+
+    void recordDecision(long nanos) {
+        if (decision.getCount() == 0) {
+            firstDecisionNanos = nanos;
+        }
+        decision.record(nanos);
+    }
+
+    void recordSend(long nanos) {
+        if (send.getCount() == 0) {
+            firstSendNanos = nanos;
+        }
+        send.record(nanos);
+    }
+
+    void recordDeadlineMargin(long nanos) {
+        if (nanos < 0) {
+            negativeMargins.incrementAndGet();
+        } else {
+            deadlineMargin.record(nanos);
+        }
+    }
+
+    void recordRtt(long nanos) {
+        rtt.record(nanos);
+    }
+
+    @Override
+    public LatencySnapshot getDecode() {
+        return decode.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getDispatch() {
+        return dispatch.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getDecision() {
+        return decision.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getSend() {
+        return send.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getDeadlineMargin() {
+        return deadlineMargin.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getRtt() {
+        return rtt.snapshot();
+    }
+
+    @Override
+    public double getFirstRoundDecodeMicros() {
+        return firstDecodeNanos / 1000.0;
+    }
+
+    @Override
+    public double getFirstRoundDecisionMicros() {
+        return firstDecisionNanos / 1000.0;
+    }
+
+    @Override
+    public double getFirstRoundSendMicros() {
+        return firstSendNanos / 1000.0;
+    }
+
+    @Override
+    public long getNegativeMargins() {
+        return negativeMargins.get();
+    }
+
+    @Override
+    public long getGameRoundMessages() {
+        return gameRoundMessages.get();
+    }
+
+    @Override
+    public long getGameEndedMessages() {
+        return gameEndedMessages.get();
+    }
+
+    @Override
+    public long getWarningMessages() {
+        return warningMessages.get();
+    }
+
+    @Override
+    public long getErrorMessages() {
+        return errorMessages.get();
+    }
+
+    @Override
+    public long getOtherMessages() {
+        return otherMessages.get();
+    }
+
+    @Override
+    public long getGames() {
+        return games.get();
+    }
+
+    @Override
+    public void reset() {
+        decode.reset();
+        dispatch.reset();
+        decision.reset();
+        send.reset();
+        deadlineMargin.reset();
+        negativeMargins.set(0);
+        rtt.reset();
+        firstDecodeNanos = 0;
+        firstDecisionNanos = 0;
+        firstSendNanos = 0;
+        gameRoundMessages.set(0);
+        gameEndedMessages.set(0);
+        warningMessages.set(0);
+        errorMessages.set(0);
+        otherMessages.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "ClientMetrics{" +
+                "decode=" + getDecode() +
+                ", dispatch=" + getDispatch() +
+                ", decision=" + getDecision() +
+                ", send=" + getSend() +
+                ", deadlineMargin=" + getDeadlineMargin() +
+                ", negativeMargins=" + getNegativeMargins() +
+                ", rtt=" + getRtt() +
+                ", firstRoundDecodeMicros=" + getFirstRoundDecodeMicros() +
+                ", firstRoundDecisionMicros=" + getFirstRoundDecisionMicros() +
+                ", firstRoundSendMicros=" + getFirstRoundSendMicros() +
+                ", gameRoundMessages=" + getGameRoundMessages() +
+                ", gameEndedMessages=" + getGameEndedMessages() +
+                ", warningMessages=" + getWarningMessages() +
+                ", errorMessages=" + getErrorMessages() +
+                ", otherMessages=" + getOtherMessages() +
+                ", games=" + getGames() +
+                '}';
+    }
+}
@@ -0,0 +1,81 @@
+package be.thebeehive.htf.library;
+
+/**
+ * The management interface of {@link ClientMetrics}. Latencies and counters cover the current game: they are
+ * reset when the first round of the next game arrives.
+ */
+public interface ClientMetricsMXBean {
+
+    /**
+     * @return the time from the arrival of a frame to the decoded message
+     */
+    LatencySnapshot getDecode();
+
+    /**
+     * @return the time from the decoded message to the call of the listener, including the wait in the mailbox
+     */
+    LatencySnapshot getDispatch();
+
+    /**
+     * @return the time from the call of the listener with a round to the reply it sends
+     */
+    LatencySnapshot getDecision();
+
+    /**
+     * @return the time it takes to encode a reply and hand it to the WebSocket
+     */
+    LatencySnapshot getSend();
+
+    /**
+     * @return the time left until the deadline of the round when the listener sent its reply
+     */
+    LatencySnapshot getDeadlineMargin();
+
+    /**
+     * @return the round-trip time of pings to the server
+     */
+    LatencySnapshot getRtt();
+
+    /**
+     * @return the decode time of the first round of the game, to compare with {@link #getDecode()} once the JIT is done
+     */
+    double getFirstRoundDecodeMicros();
+
+    /**
+     * @return the decision time of the first round of the game
+     */
+    double getFirstRoundDecisionMicros();
+
+    /**
+     * @return the send time of the reply to the first round of the game
+     */
+    double getFirstRoundSendMicros();
+
+    /**
+     * @return the number of replies of the listener that were sent after the deadline of their round
+     */
+    long getNegativeMargins();
+
+    long getGameRoundMessages();
+
+    long getGameEndedMessages();
+
+    long getWarningMessages();
+
+    long getErrorMessages();
+
+    /**
+     * @return the number of messages of any other type
+     */
+    long getOtherMessages();
+
+    /**
+     * @return the number of games that were started, never reset
+     */
+    long getGames();
+
+    /**
+     * Resets the latencies and counters of the current game.
+     */
+    void reset();
+}
@@ -0,0 +1,92 @@
+package be.thebeehive.htf.library;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters kept by the {@link RoundDeadlineManager}.
+ */
+public class DeadlineStats {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong lateReplies = new AtomicLong();
+    private final AtomicLong warningsAfterHit = new AtomicLong();
+    private final AtomicLong warningsAfterMiss = new AtomicLong();
+    private final AtomicLong unmatchedWarnings = new AtomicLong();
+
+    /**
+     * @return the number of rounds the listener answered before the deadline
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of rounds answered with the fallback actions
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of listener replies that were dropped because the fallback was already sent
+     */
+    public long getLateReplies() {
+        return lateReplies.get();
+    }
+
+    /**
+     * @return the number of warnings received after a round the listener answered in time
+     */
+    public long getWarningsAfterHit() {
+        return warningsAfterHit.get();
+    }
+
+    /**
+     * @return the number of warnings received after a round answered with the fallback actions
+     */
+    public long getWarningsAfterMiss() {
+        return warningsAfterMiss.get();
+    }
+
+    /**
+     * @return the number of warnings received before any round was answered
+     */
+    public long getUnmatchedWarnings() {
+        return unmatchedWarnings.get();
+    }
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    void recordLateReply() {
+        lateReplies.incrementAndGet();
+    }
+
+    void recordWarning(RoundDeadline.Outcome lastOutcome) {
+        if (lastOutcome == RoundDeadline.Outcome.HIT) {
+            warningsAfterHit.incrementAndGet();
+        } else if (lastOutcome == RoundDeadline.Outcome.MISSED) {
+            warningsAfterMiss.incrementAndGet();
+        } else {
+            unmatchedWarnings.incrementAndGet();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DeadlineStats{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", lateReplies=" + lateReplies +
+                ", warningsAfterHit=" + warningsAfterHit +
+                ", warningsAfterMiss=" + warningsAfterMiss +
+                ", unmatchedWarnings=" + unmatchedWarnings +
+                '}';
+    }
+}
@@ -0,0 +1,16 @@
+package be.thebeehive.htf.library;
+
+/**
+ * Enum representing how the HtfClient hands decoded messages to its listener.
+ * <p>
+ * INLINE: The listener is called on the WebSocket read thread, a slow decision delays reading later frames.
+ * Messages are decoded into the same objects every time if the listener {@link HtfClientListener#releasesMessages()}.
+ * MAILBOX: The listener is called on a decision thread. A round that is still waiting when a newer round
+ * arrives is dropped, all other messages are delivered in order.
+ */
+public enum DispatchMode {
+
+    INLINE,
+    MAILBOX;
+
+}
@@ -1,24 +1,63 @@
 package be.thebeehive.htf.library;
 
 import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.client.SelectActionsEncoder;
+import be.thebeehive.htf.library.record.RoundRecorder;
 import be.thebeehive.htf.library.protocol.server.ErrorServerMessage;
 import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
 import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
 import be.thebeehive.htf.library.protocol.server.ServerMessage;
+import be.thebeehive.htf.library.protocol.server.ServerMessageDecoder;
 import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.java_websocket.WebSocket;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.PingFrame;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ServerHandshake;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class HtfClient extends WebSocketClient {
 
+    public static final long DEFAULT_RTT_PROBE_INTERVAL_MILLIS = 1000;
+
+    private static final int RTT_PROBE_PAYLOAD_LENGTH = 8;
+
+    private static final ScheduledExecutorService RTT_PROBES = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "htf-rtt-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final HtfClientListener listener;
     private final ObjectMapper objectMapper;
+    private volatile ServerMessageDecoder decoder;
+    private volatile RoundMailbox mailbox;
+    private volatile ExecutorService decisionExecutor;
+    private volatile RoundRecorder recorder;
+    private final RoundDeadlineManager deadlineManager;
+    private final SelectActionsEncoder encoder = new SelectActionsEncoder();
+    private final TextFrame frame = new TextFrame();
+    private final ClientMetrics metrics = new ClientMetrics();
+    private volatile RoundDeadline lastDeadline;
+    private volatile long decisionStartNanos;
+    private final RttEstimator rttEstimator = new RttEstimator();
+    private volatile long rttProbeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_RTT_PROBE_INTERVAL_MILLIS);
+    private volatile long lastRttProbeNanos;
+    private volatile ScheduledFuture<?> rttProbe;
 
     public HtfClient(
             String uri,
@@ -26,50 +65,387 @@ public class HtfClient extends WebSocketClient {
             EnvironmentType environmentType,
             HtfClientListener listener
     ) throws URISyntaxException {
-        super(new URI(uri), new HashMap<String, String>() {{
+        this(uri, apiKey, environmentType, listener, new ObjectMapper());
+    }
+
+    /**
+     * Creates a client that encodes and decodes with the given ObjectMapper, which can be shared by many clients.
+     */
+    public HtfClient(
+            String uri,
+            String apiKey,
+            EnvironmentType environmentType,
+            HtfClientListener listener,
+            ObjectMapper objectMapper
+    ) throws URISyntaxException {
+        super(new URI(uri), new HtfDraft(), new HashMap<String, String>() {{
             this.put("apiKey", apiKey);
             this.put("clientType", "PLAYER");
             this.put("environment", environmentType.name());
         }});
         this.listener = listener;
-        this.objectMapper = new ObjectMapper();
+        this.objectMapper = objectMapper;
+        this.decoder = new ServerMessageDecoder(this.objectMapper, listener.releasesMessages());
+        this.deadlineManager = new RoundDeadlineManager(this::sendFallback);
+        this.deadlineManager.setRttEstimator(this.rttEstimator);
     }
 
+    /**
+     * Sets how long before the end of the reply window the fallback actions are sent
+     * when the listener has not replied yet.
+     */
+    public void setDeadlineMargin(long margin, TimeUnit unit) {
+        this.deadlineManager.setMargin(margin, unit);
+    }
+
+    /**
+     * Sets the time the server allows for a reply, 1 second by default.
+     */
+    public void setRoundWindow(long window, TimeUnit unit) {
+        this.deadlineManager.setWindow(window, unit);
+    }
+
+    /**
+     * Sets how often the round-trip time to the server is measured with a ping, or 0 to never measure it.
+     * Must be called before connecting.
+     */
+    public void setRttProbeInterval(long interval, TimeUnit unit) {
+        this.rttProbeIntervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * @return the round-trip time to the server, of which the reserve is already taken off the round deadlines
+     */
+    public RttEstimator getRttEstimator() {
+        return this.rttEstimator;
+    }
+
+    /**
+     * Sets how decoded messages are handed to the listener, see {@link DispatchMode}. The
+     * {@link DispatchMode#MAILBOX} runs on a thread of this client, which is stopped when the connection closes and
+     * started again when it opens.
+     * Must be called before connecting.
+     */
+    public void setDispatchMode(DispatchMode dispatchMode) {
+        if (dispatchMode == DispatchMode.MAILBOX) {
+            ExecutorService executor = newDecisionExecutor();
+            this.setDispatchMode(dispatchMode, executor);
+            this.decisionExecutor = executor;
+        } else {
+            this.setDispatchMode(dispatchMode, null);
+        }
+    }
+
+    /**
+     * Sets how decoded messages are handed to the listener, running the {@link DispatchMode#MAILBOX} on the given
+     * executor. The executor can be shared by many clients and is not shut down by this client.
+     * Must be called before connecting.
+     */
+    public void setDispatchMode(DispatchMode dispatchMode, Executor executor) {
+        this.shutdownDecisionExecutor();
+        this.decisionExecutor = null;
+        if (dispatchMode == DispatchMode.MAILBOX) {
+            // Messages outlive the next decode, so they cannot come from a pool
+            this.decoder = new ServerMessageDecoder(this.objectMapper, false);
+            this.mailbox = new RoundMailbox(executor, this::onError);
+        } else {
+            // Pooled only if the listener is done with a message when it returns
+            this.decoder = new ServerMessageDecoder(this.objectMapper, this.listener.releasesMessages());
+            this.mailbox = null;
+        }
+    }
+
+    /**
+     * Records every round, the actions sent for it and the end of the game, or nothing when null.
+     * The recorder is not closed by this client.
+     */
+    public void setRecorder(RoundRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * @return the number of rounds that were dropped because a newer round arrived first
+     */
+    public long getDroppedRounds() {
+        RoundMailbox mailbox = this.mailbox;
+        return mailbox == null ? 0 : mailbox.getDropped();
+    }
+
+    /**
+     * @return the deadline hits, misses and matched warnings of this client
+     */
+    public DeadlineStats getDeadlineStats() {
+        return this.deadlineManager.getStats();
+    }
+
+    /**
+     * @return the latencies per stage and the message counters of this client
+     */
+    public ClientMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Sends the selected actions, unless the fallback actions were already sent for this round.
+     */
     public void send(SelectActionsClientMessage msg) {
+        if (this.deadlineManager.complete(msg.getRoundId())) {
+            long startNanos = this.recordDecision(msg.getRoundId());
+            this.sendNow(msg);
+            this.metrics.recordSend(System.nanoTime() - startNanos);
+            this.record(msg, false);
+            this.scheduleRttProbe();
+        }
+    }
+
+    /**
+     * Sends the selected actions, unless the fallback actions were already sent for this round.
+     * Unlike {@link #send(SelectActionsClientMessage)} this does not box the action ids, and it does not
+     * allocate unless a recorder is set.
+     *
+     * @param roundId   the id of the round
+     * @param actionIds the array holding the action ids
+     * @param count     the number of action ids, taken from the start of the array
+     */
+    public void send(UUID roundId, long[] actionIds, int count) {
+        if (this.deadlineManager.complete(roundId)) {
+            long startNanos = this.recordDecision(roundId);
+            this.sendNow(roundId, actionIds, count);
+            this.metrics.recordSend(System.nanoTime() - startNanos);
+            RoundRecorder recorder = this.recorder;
+            if (recorder != null) {
+                recorder.recordDecision(roundId, actionIds, count, false, System.nanoTime());
+            }
+            this.scheduleRttProbe();
+        }
+    }
+
+    /**
+     * Records the decision of the listener and the margin it left, for a reply that is about to be sent.
+     *
+     * @return the current {@link System#nanoTime()}
+     */
+    private long recordDecision(UUID roundId) {
+        long nowNanos = System.nanoTime();
+        RoundDeadline deadline = this.lastDeadline;
+        if (deadline != null && deadline.getRoundId().equals(roundId)) {
+            this.metrics.recordDecision(nowNanos - this.decisionStartNanos);
+            this.metrics.recordDeadlineMargin(deadline.getDeadlineNanos() - nowNanos);
+        }
+        return nowNanos;
+    }
+
+    private void sendFallback(SelectActionsClientMessage msg) {
+        this.sendNow(msg);
+        this.record(msg, true);
+    }
+
+    private void record(SelectActionsClientMessage msg, boolean fallback) {
+        RoundRecorder recorder = this.recorder;
+        if (recorder != null) {
+            recorder.recordDecision(msg, fallback, System.nanoTime());
+        }
+    }
+
+    /**
+     * Encodes straight into the payload of a reused text frame. The WebSocket layer copies the payload into the
+     * masked frame before sendFrame returns, so one send at a time is enough to reuse both.
+     */
+    private void sendNow(SelectActionsClientMessage msg) {
+        synchronized (this.encoder) {
+            this.frame.setPayload(this.encoder.encode(msg));
+            this.sendFrame(this.frame);
+        }
+    }
+
+    private void sendNow(UUID roundId, long[] actionIds, int count) {
+        synchronized (this.encoder) {
+            this.frame.setPayload(this.encoder.encode(roundId, actionIds, count));
+            this.sendFrame(this.frame);
+        }
+    }
+
+    @Override
+    public void onMessage(String messageStr) {
+        long arrivalNanos = System.nanoTime();
         try {
-            this.send(this.objectMapper.writeValueAsString(msg));
-        } catch (JsonProcessingException ex) {
+            this.handle(this.decoder.decode(messageStr), arrivalNanos, messageStr, null);
+        } catch (Exception ex) {
             this.onError(ex);
         }
     }
 
+    /**
+     * Decodes straight from the payload of a frame. Besides binary messages, the {@link HtfDraft} hands every
+     * complete text message to this method.
+     */
     @Override
-    public void onMessage(String messageStr) {
+    public void onMessage(ByteBuffer bytes) {
+        long arrivalNanos = System.nanoTime();
         try {
-            ServerMessage msg = this.objectMapper.readValue(messageStr, ServerMessage.class);
-
-            if (msg instanceof ErrorServerMessage) {
-                this.listener.onErrorServerMessage(this, (ErrorServerMessage) msg);
-            } else if (msg instanceof GameEndedServerMessage) {
-                this.listener.onGameEndedServerMessage(this, (GameEndedServerMessage) msg);
-            } else if (msg instanceof GameRoundServerMessage) {
-                this.listener.onGameRoundServerMessage(this, (GameRoundServerMessage) msg);
-            } else if (msg instanceof WarningServerMessage) {
-                this.listener.onWarningServerMessage(this, (WarningServerMessage) msg);
-            }
+            this.handle(this.decoder.decode(bytes), arrivalNanos, null, bytes);
         } catch (Exception ex) {
             this.onError(ex);
         }
     }
 
+    /**
+     * Handles a decoded message that arrived either as a String or as bytes, the other one is null.
+     * The message is recorded once it is handed to the listener, so recording never holds up the reply.
+     */
+    private void handle(ServerMessage msg, long arrivalNanos, String messageStr, ByteBuffer bytes) throws Exception {
+        long decodedNanos = System.nanoTime();
+        this.metrics.recordMessage(msg);
+        this.metrics.recordDecode(decodedNanos - arrivalNanos);
+
+        RoundDeadline deadline = null;
+        if (msg instanceof GameRoundServerMessage) {
+            GameRoundServerMessage round = (GameRoundServerMessage) msg;
+            deadline = this.deadlineManager.start(round.getRoundId(), round.getRound(), arrivalNanos);
+        } else if (msg instanceof WarningServerMessage) {
+            this.deadlineManager.onWarning((WarningServerMessage) msg);
+        }
+
+        RoundMailbox mailbox = this.mailbox;
+        if (mailbox == null) {
+            try {
+                this.dispatch(msg, deadline, decodedNanos);
+            } finally {
+                this.record(msg, arrivalNanos, messageStr, bytes);
+            }
+        } else {
+            RoundDeadline roundDeadline = deadline;
+            mailbox.post(() -> this.dispatch(msg, roundDeadline, decodedNanos), msg instanceof GameRoundServerMessage);
+            this.record(msg, arrivalNanos, messageStr, bytes);
+        }
+    }
+
+    private void record(ServerMessage msg, long arrivalNanos, String messageStr, ByteBuffer bytes) {
+        RoundRecorder recorder = this.recorder;
+        if (recorder == null) {
+            return;
+        }
+        if (msg instanceof GameRoundServerMessage) {
+            if (bytes != null) {
+                recorder.recordRound(bytes, arrivalNanos);
+            } else {
+                recorder.recordRound(messageStr, arrivalNanos);
+            }
+        } else if (msg instanceof GameEndedServerMessage) {
+            if (bytes != null) {
+                recorder.recordGameEnded(bytes, arrivalNanos);
+            } else {
+                recorder.recordGameEnded(messageStr, arrivalNanos);
+            }
+        }
+    }
+
+    private void dispatch(ServerMessage msg, RoundDeadline deadline, long decodedNanos) throws Exception {
+        long dispatchNanos = System.nanoTime();
+        this.metrics.recordDispatch(dispatchNanos - decodedNanos);
+        if (deadline != null) {
+            this.decisionStartNanos = dispatchNanos;
+            this.lastDeadline = deadline;
+        }
+        if (msg instanceof ErrorServerMessage) {
+            this.listener.onErrorServerMessage(this, (ErrorServerMessage) msg);
+        } else if (msg instanceof GameEndedServerMessage) {
+            this.listener.onGameEndedServerMessage(this, (GameEndedServerMessage) msg);
+        } else if (msg instanceof GameRoundServerMessage) {
+            this.listener.onGameRoundServerMessage(this, (GameRoundServerMessage) msg, deadline);
+        } else if (msg instanceof WarningServerMessage) {
+            this.listener.onWarningServerMessage(this, (WarningServerMessage) msg);
+        }
+    }
+
+    /**
+     * Right after a reply is the best time to measure, as the next round cannot be waiting yet.
+     * The ping is sent from the probe thread, so it does not hold up the thread that replied.
+     */
+    private void scheduleRttProbe() {
+        long intervalNanos = this.rttProbeIntervalNanos;
+        if (intervalNanos > 0 && System.nanoTime() - this.lastRttProbeNanos >= intervalNanos) {
+            RTT_PROBES.execute(this::probeRtt);
+        }
+    }
+
+    /**
+     * Sends a ping carrying its send time, unless a round is waiting for its reply: the ping would be written
+     * ahead of the reply, and the pong handled ahead of the next round.
+     */
+    private void probeRtt() {
+        long nowNanos = System.nanoTime();
+        if (!this.isOpen() || this.deadlineManager.hasPending() || nowNanos - this.lastRttProbeNanos < this.rttProbeIntervalNanos) {
+            return;
+        }
+        this.lastRttProbeNanos = nowNanos;
+        ByteBuffer payload = ByteBuffer.allocate(RTT_PROBE_PAYLOAD_LENGTH);
+        payload.putLong(0, nowNanos);
+        PingFrame ping = new PingFrame();
+        ping.setPayload(payload);
+        try {
+            this.sendFrame(ping);
+        } catch (WebsocketNotConnectedException ex) {
+            // Closed since the check, the probe is stopped by onClose
+        }
+    }
+
+    /**
+     * Measures the round-trip time of our pings. Pings without our payload, such as the ones of the
+     * connection lost timer, are ignored.
+     */
+    @Override
+    public void onWebsocketPong(WebSocket conn, Framedata f) {
+        ByteBuffer payload = f.getPayloadData();
+        if (payload.remaining() == RTT_PROBE_PAYLOAD_LENGTH) {
+            long rttNanos = System.nanoTime() - payload.getLong(payload.position());
+            this.rttEstimator.record(rttNanos);
+            this.metrics.recordRtt(rttNanos);
+        }
+    }
+
     @Override
     public void onOpen(ServerHandshake handshake) {
         System.out.println("You are connected to HtfServer: " + getURI());
+        long intervalNanos = this.rttProbeIntervalNanos;
+        if (intervalNanos > 0) {
+            this.rttProbe = RTT_PROBES.scheduleWithFixedDelay(this::probeRtt, 0, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+        this.restartDecisionExecutor();
     }
 
     @Override
     public void onClose(int code, String reason, boolean remote) {
         System.out.println("You have been disconnected from: " + getURI() + "; Code: " + code + " " + reason);
+        ScheduledFuture<?> rttProbe = this.rttProbe;
+        if (rttProbe != null) {
+            rttProbe.cancel(false);
+            this.rttProbe = null;
+        }
+        this.shutdownDecisionExecutor();
+    }
+
+    private static ExecutorService newDecisionExecutor() {
+        return TaskExecutors.newTaskExecutor("htf-decision", 1);
+    }
+
+    private void shutdownDecisionExecutor() {
+        ExecutorService executor = this.decisionExecutor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Replaces the executor of the mailbox when a closed connection shut it down, e.g. before a reconnect.
+     */
+    private void restartDecisionExecutor() {
+        ExecutorService executor = this.decisionExecutor;
+        if (executor != null && executor.isShutdown()) {
+            ExecutorService restarted = newDecisionExecutor();
+            this.mailbox = new RoundMailbox(restarted, this::onError);
+            this.decisionExecutor = restarted;
+        }
     }
 
     @Override
@@ -10,6 +10,24 @@ public interface HtfClientListener {
     void onErrorServerMessage(HtfClient client, ErrorServerMessage msg) throws Exception;
     void onGameEndedServerMessage(HtfClient client, GameEndedServerMessage msg) throws Exception;
     void onGameRoundServerMessage(HtfClient client, GameRoundServerMessage msg) throws Exception;
+
+    /**
+     * Called for every round with the deadline by which the reply must be sent.
+     * Implementations that do not need the deadline only implement the method without it.
+     */
+    default void onGameRoundServerMessage(HtfClient client, GameRoundServerMessage msg, RoundDeadline deadline) throws Exception {
+        onGameRoundServerMessage(client, msg);
+    }
+
     void onWarningServerMessage(HtfClient client, WarningServerMessage msg) throws Exception;
 
+    /**
+     * Promises that nothing of a message is used after the callback that received it returns, not even by tasks
+     * the listener started, so the {@link HtfClient} may decode the next message into the same objects in
+     * {@link DispatchMode#INLINE}. False by default.
+     */
+    default boolean releasesMessages() {
+        return false;
+    }
+
 }
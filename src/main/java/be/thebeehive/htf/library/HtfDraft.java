@@ -0,0 +1,96 @@
+package be.thebeehive.htf.library;
+
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The WebSocket draft of a {@link HtfClient}.
+ * <p>
+ * It offers the permessage-deflate extension, so a server that supports it can compress its messages. Replies
+ * are a few hundred bytes and are never compressed, which the extension allows.
+ * <p>
+ * Complete text messages are handed to {@link HtfClient#onMessage(java.nio.ByteBuffer)} as the UTF-8 payload of
+ * their frame, so they are parsed without decoding them to a String first. Fragmented text messages are
+ * reassembled by {@link Draft_6455} and still arrive as a String.
+ */
+class HtfDraft extends Draft_6455 {
+
+    private boolean fragmented;
+
+    HtfDraft() {
+        this(Collections.<IExtension>singletonList(new InflateOnlyExtension()),
+                Collections.<IProtocol>singletonList(new Protocol("")), Integer.MAX_VALUE);
+    }
+
+    private HtfDraft(List<IExtension> extensions, List<IProtocol> protocols, int maxFrameSize) {
+        super(extensions, protocols, maxFrameSize);
+    }
+
+    @Override
+    public void processFrame(WebSocketImpl webSocketImpl, Framedata frame) throws InvalidDataException {
+        Opcode opcode = frame.getOpcode();
+        if (opcode == Opcode.TEXT && frame.isFin() && !fragmented) {
+            try {
+                webSocketImpl.getWebSocketListener().onWebsocketMessage(webSocketImpl, frame.getPayloadData());
+            } catch (RuntimeException ex) {
+                webSocketImpl.getWebSocketListener().onWebsocketError(webSocketImpl, ex);
+            }
+            return;
+        }
+        if (opcode == Opcode.TEXT || opcode == Opcode.BINARY || opcode == Opcode.CONTINUOUS) {
+            fragmented = !frame.isFin();
+        }
+        super.processFrame(webSocketImpl, frame);
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        fragmented = false;
+    }
+
+    /**
+     * Every connection gets its own copy, which must be a HtfDraft as well.
+     */
+    @Override
+    public Draft copyInstance() {
+        List<IExtension> extensions = new ArrayList<>();
+        for (IExtension extension : getKnownExtensions()) {
+            extensions.add(extension.copyInstance());
+        }
+        List<IProtocol> protocols = new ArrayList<>();
+        for (IProtocol protocol : getKnownProtocols()) {
+            protocols.add(protocol.copyInstance());
+        }
+        return new HtfDraft(extensions, protocols, getMaxFrameSize());
+    }
+
+    /**
+     * Inflates what the server compressed, but sends every frame as it is. {@link PerMessageDeflateExtension}
+     * would compress the whole array behind a payload, while replies are encoded into part of a reused array.
+     */
+    private static class InflateOnlyExtension extends PerMessageDeflateExtension {
+
+        @Override
+        public void encodeFrame(Framedata inputFrame) {
+            // Sent uncompressed
+        }
+
+        @Override
+        public IExtension copyInstance() {
+            return new InflateOnlyExtension();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package be.thebeehive.htf.library;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The deadline of a single game round.
+ * <p>
+ * The deadline is computed from the moment the {@link be.thebeehive.htf.library.protocol.server.GameRoundServerMessage}
+ * arrived, the length of the reply window and a safety margin. When the listener has not replied by then,
+ * the {@link HtfClient} replies with the fallback actions of this deadline instead.
+ */
+public class RoundDeadline {
+
+    /**
+     * How a round was answered.
+     */
+    public enum Outcome {
+        /**
+         * No reply has been sent yet.
+         */
+        PENDING,
+        /**
+         * The listener replied before the deadline.
+         */
+        HIT,
+        /**
+         * The deadline passed and the fallback actions were sent.
+         */
+        MISSED
+    }
+
+    private final UUID roundId;
+    private final long round;
+    private final long arrivalNanos;
+    private final long deadlineNanos;
+    private final AtomicReference<Outcome> outcome = new AtomicReference<>(Outcome.PENDING);
+    private volatile List<Long> fallbackActionIds = Collections.emptyList();
+
+    public RoundDeadline(UUID roundId, long round, long arrivalNanos, long deadlineNanos) {
+        this.roundId = roundId;
+        this.round = round;
+        this.arrivalNanos = arrivalNanos;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Creates a deadline for a round that arrives now, without any watchdog behind it.
+     *
+     * @param roundId the unique identifier of the round
+     * @param round   the round number
+     * @param window  the time available to reply
+     * @param unit    the unit of the window
+     * @return a new RoundDeadline
+     */
+    public static RoundDeadline startingNow(UUID roundId, long round, long window, TimeUnit unit) {
+        long now = System.nanoTime();
+        return new RoundDeadline(roundId, round, now, now + unit.toNanos(window));
+    }
+
+    /**
+     * @return the unique identifier of the round
+     */
+    public UUID getRoundId() {
+        return roundId;
+    }
+
+    /**
+     * @return the round number
+     */
+    public long getRound() {
+        return round;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the round message arrived
+     */
+    public long getArrivalNanos() {
+        return arrivalNanos;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the fallback actions will be sent
+     */
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * @return the time left until the deadline in nanoseconds, negative when it has passed
+     */
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    /**
+     * @return true if the deadline has passed
+     */
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * @return how the round was answered so far
+     */
+    public Outcome getOutcome() {
+        return outcome.get();
+    }
+
+    /**
+     * Sets the actions that are sent when the listener misses the deadline.
+     * Strategies can call this as soon as they have a safe answer and again whenever they find a better one.
+     *
+     * @param actionIds the ids of the fallback actions
+     */
+    public void offerFallback(List<Long> actionIds) {
+        this.fallbackActionIds = Collections.unmodifiableList(actionIds);
+    }
+
+    /**
+     * @return the actions that are sent when the listener misses the deadline, no actions by default
+     */
+    public List<Long> getFallback() {
+        return fallbackActionIds;
+    }
+
+    /**
+     * Marks the round as answered, only the first call succeeds.
+     *
+     * @param result {@link Outcome#HIT} or {@link Outcome#MISSED}
+     * @return true if the round was still pending
+     */
+    boolean complete(Outcome result) {
+        return outcome.compareAndSet(Outcome.PENDING, result);
+    }
+
+    @Override
+    public String toString() {
+        return "RoundDeadline{" +
+                "roundId=" + roundId +
+                ", round=" + round +
+                ", remainingMillis=" + TimeUnit.NANOSECONDS.toMillis(remainingNanos()) +
+                ", outcome=" + outcome.get() +
+                '}';
+    }
+}
@@ -0,0 +1,166 @@
+package be.thebeehive.htf.library;
+
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hands out a {@link RoundDeadline} for every round and makes sure every round gets exactly one reply.
+ * <p>
+ * A watchdog fires at the deadline of each round. When the listener has not replied by then, the fallback
+ * actions of the deadline are sent instead and a late reply of the listener is dropped.
+ * <p>
+ * The deadline is the window minus the margin, minus the network reserve of the {@link RttEstimator} if there is
+ * one: the reply has to reach the server within the window, so the time it spends on the network is not
+ * available to the listener.
+ */
+public class RoundDeadlineManager {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 1000;
+    public static final long DEFAULT_MARGIN_MILLIS = 100;
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "htf-deadline-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Consumer<SelectActionsClientMessage> fallbackSender;
+    private final DeadlineStats stats = new DeadlineStats();
+    private final Map<UUID, Tracked> tracked = new ConcurrentHashMap<>();
+
+    private volatile long windowNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_WINDOW_MILLIS);
+    private volatile long marginNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MARGIN_MILLIS);
+    private volatile RoundDeadline lastCompleted;
+    private volatile RttEstimator rttEstimator;
+
+    public RoundDeadlineManager(Consumer<SelectActionsClientMessage> fallbackSender) {
+        this.fallbackSender = fallbackSender;
+    }
+
+    /**
+     * Sets the time the server allows for a reply.
+     */
+    public void setWindow(long window, TimeUnit unit) {
+        this.windowNanos = unit.toNanos(window);
+    }
+
+    /**
+     * Sets how long before the end of the window the fallback is sent.
+     */
+    public void setMargin(long margin, TimeUnit unit) {
+        this.marginNanos = unit.toNanos(margin);
+    }
+
+    /**
+     * Sets the estimator of which the reserve is kept free for the network, or null to keep none.
+     */
+    public void setRttEstimator(RttEstimator rttEstimator) {
+        this.rttEstimator = rttEstimator;
+    }
+
+    /**
+     * @return the counters of this manager
+     */
+    public DeadlineStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Starts tracking a round and schedules its watchdog.
+     *
+     * @param roundId      the unique identifier of the round
+     * @param round        the round number
+     * @param arrivalNanos the {@link System#nanoTime()} at which the round arrived
+     * @return the deadline of the round
+     */
+    public RoundDeadline start(UUID roundId, long round, long arrivalNanos) {
+        tracked.values().removeIf(t -> t.deadline.getOutcome() != RoundDeadline.Outcome.PENDING);
+
+        RttEstimator rttEstimator = this.rttEstimator;
+        long reserveNanos = rttEstimator == null ? 0 : rttEstimator.getReserveNanos();
+        RoundDeadline deadline = new RoundDeadline(roundId, round, arrivalNanos, arrivalNanos + windowNanos - marginNanos - reserveNanos);
+        Tracked entry = new Tracked(deadline);
+        tracked.put(roundId, entry);
+        entry.watchdog = WATCHDOG.schedule(() -> expire(deadline), deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        return deadline;
+    }
+
+    /**
+     * Marks a round as answered by the listener.
+     *
+     * @param roundId the unique identifier of the round
+     * @return true if the reply may be sent, false if the fallback was already sent
+     */
+    public boolean complete(UUID roundId) {
+        Tracked entry = roundId == null ? null : tracked.remove(roundId);
+        if (entry == null) {
+            return true;
+        }
+        if (entry.deadline.complete(RoundDeadline.Outcome.HIT)) {
+            ScheduledFuture<?> watchdog = entry.watchdog;
+            if (watchdog != null) {
+                watchdog.cancel(false);
+            }
+            stats.recordHit();
+            lastCompleted = entry.deadline;
+            return true;
+        }
+        stats.recordLateReply();
+        return false;
+    }
+
+    /**
+     * @return true if a round is waiting for its reply
+     */
+    public boolean hasPending() {
+        for (Tracked entry : tracked.values()) {
+            if (entry.deadline.getOutcome() == RoundDeadline.Outcome.PENDING) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches a warning of the server with the last answered round.
+     *
+     * @param msg the warning
+     */
+    public void onWarning(WarningServerMessage msg) {
+        RoundDeadline last = lastCompleted;
+        stats.recordWarning(last == null ? RoundDeadline.Outcome.PENDING : last.getOutcome());
+    }
+
+    private void expire(RoundDeadline deadline) {
+        if (!deadline.complete(RoundDeadline.Outcome.MISSED)) {
+            return;
+        }
+        stats.recordMiss();
+        lastCompleted = deadline;
+        try {
+            fallbackSender.accept(new SelectActionsClientMessage(deadline.getRoundId(), new ArrayList<>(deadline.getFallback())));
+        } catch (RuntimeException ex) {
+            System.err.println("Unable to send fallback for round " + deadline.getRound() + "\n" + ex);
+        }
+    }
+
+    private static class Tracked {
+
+        private final RoundDeadline deadline;
+        private volatile ScheduledFuture<?> watchdog;
+
+        Tracked(RoundDeadline deadline) {
+            this.deadline = deadline;
+        }
+    }
+}
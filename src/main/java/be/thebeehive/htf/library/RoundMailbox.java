@@ -0,0 +1,116 @@
+package be.thebeehive.htf.library;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs posted tasks one at a time and in order on an {@link Executor}.
+ * <p>
+ * A task can be posted as supersedable: when another supersedable task is posted before it started,
+ * it is dropped. This way only the latest round is handled, while messages such as the end of the game
+ * keep their place in the order.
+ * <p>
+ * Exceptions of tasks and an executor that rejects the mailbox go to the error handler. A task that throws an
+ * {@link Error} stops the current drain, the tasks after it run when the next task is posted.
+ */
+public class RoundMailbox {
+
+    private static final int WAITING = 0;
+    private static final int RUNNING = 1;
+    private static final int SUPERSEDED = 2;
+
+    private final Executor executor;
+    private final Consumer<Exception> errorHandler;
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Entry> latestSupersedable = new AtomicReference<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public RoundMailbox(Executor executor, Consumer<Exception> errorHandler) {
+        this.executor = executor;
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * @return the number of supersedable tasks that were dropped
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Posts a task.
+     *
+     * @param task         the task to run
+     * @param supersedable true if the task may be dropped when a newer supersedable task is posted
+     */
+    public void post(Task task, boolean supersedable) {
+        Entry entry = new Entry(task);
+        if (supersedable) {
+            Entry previous = latestSupersedable.getAndSet(entry);
+            if (previous != null && previous.state.compareAndSet(WAITING, SUPERSEDED)) {
+                dropped.incrementAndGet();
+            }
+        }
+        queue.add(entry);
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                // Left queued, the next post tries again
+                draining.set(false);
+                errorHandler.accept(ex);
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            try {
+                Entry entry;
+                while ((entry = queue.poll()) != null) {
+                    if (!entry.state.compareAndSet(WAITING, RUNNING)) {
+                        continue;
+                    }
+                    try {
+                        entry.task.run();
+                    } catch (Exception ex) {
+                        errorHandler.accept(ex);
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+            if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A task posted to the mailbox.
+     */
+    @FunctionalInterface
+    public interface Task {
+
+        void run() throws Exception;
+
+    }
+
+    private static class Entry {
+
+        private final Task task;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        Entry(Task task) {
+            this.task = task;
+        }
+    }
+}
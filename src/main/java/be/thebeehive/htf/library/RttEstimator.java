@@ -0,0 +1,114 @@
+package be.thebeehive.htf.library;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimates the round-trip time to the server from ping/pong samples.
+ * <p>
+ * The smoothed mean and mean deviation follow TCP (RFC 6298): every sample moves the mean by 1/8 and the
+ * deviation by 1/4 of the difference. The tail is the 99th percentile of the last {@value #WINDOW} samples. The
+ * {@link #getReserveNanos() reserve} is the time a reply should leave for the network: the larger of the tail and
+ * the mean plus four deviations, which is what TCP waits before it retransmits.
+ * <p>
+ * Samples are added by one thread at a time, the estimates can be read from any thread.
+ */
+public class RttEstimator {
+
+    public static final int WINDOW = 128;
+
+    /**
+     * The largest reserve, so that a stalled connection cannot take the whole decision time.
+     */
+    public static final long MAX_RESERVE_NANOS = TimeUnit.MILLISECONDS.toNanos(400);
+
+    private final long[] window = new long[WINDOW];
+    private final long[] sorted = new long[WINDOW];
+    private int next;
+    private int size;
+
+    private volatile long samples;
+    private volatile long lastNanos;
+    private volatile long smoothedNanos;
+    private volatile long deviationNanos;
+    private volatile long p99Nanos;
+    private volatile long maxNanos;
+
+    /**
+     * Adds a round-trip time.
+     */
+    public synchronized void record(long rttNanos) {
+        long rtt = Math.max(0, rttNanos);
+        if (samples == 0) {
+            smoothedNanos = rtt;
+            deviationNanos = rtt / 2;
+        } else {
+            long smoothed = smoothedNanos;
+            deviationNanos += (Math.abs(smoothed - rtt) - deviationNanos) / 4;
+            smoothedNanos = smoothed + (rtt - smoothed) / 8;
+        }
+
+        window[next] = rtt;
+        next = (next + 1) % WINDOW;
+        size = Math.min(size + 1, WINDOW);
+        System.arraycopy(window, 0, sorted, 0, size);
+        Arrays.sort(sorted, 0, size);
+        p99Nanos = sorted[Math.max(0, (int) Math.ceil(0.99 * size) - 1)];
+        maxNanos = Math.max(maxNanos, rtt);
+        lastNanos = rtt;
+        samples++;
+    }
+
+    /**
+     * @return the number of samples, 0 until the first pong
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+    public long getSmoothedNanos() {
+        return smoothedNanos;
+    }
+
+    /**
+     * @return the smoothed mean deviation of the samples from the smoothed mean
+     */
+    public long getDeviationNanos() {
+        return deviationNanos;
+    }
+
+    /**
+     * @return the 99th percentile of the last {@value #WINDOW} samples
+     */
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * @return the time to keep free for the reply to reach the server, 0 without samples
+     */
+    public long getReserveNanos() {
+        long reserve = Math.max(p99Nanos, smoothedNanos + 4 * deviationNanos);
+        return Math.min(reserve, MAX_RESERVE_NANOS);
+    }
+
+    @Override
+    public String toString() {
+        return "RttEstimator{" +
+                "samples=" + getSamples() +
+                ", smoothedMicros=" + TimeUnit.NANOSECONDS.toMicros(getSmoothedNanos()) +
+                ", deviationMicros=" + TimeUnit.NANOSECONDS.toMicros(getDeviationNanos()) +
+                ", p99Micros=" + TimeUnit.NANOSECONDS.toMicros(getP99Nanos()) +
+                ", maxMicros=" + TimeUnit.NANOSECONDS.toMicros(getMaxNanos()) +
+                ", reserveMicros=" + TimeUnit.NANOSECONDS.toMicros(getReserveNanos()) +
+                '}';
+    }
+}
@@ -0,0 +1,257 @@
+package be.thebeehive.htf.library;
+
+import be.thebeehive.htf.library.protocol.server.ErrorServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many game sessions in one JVM.
+ * <p>
+ * All sessions share one {@link ObjectMapper} and one bounded pool of decision threads: every client runs in
+ * {@link DispatchMode#MAILBOX} on that pool, so the number of threads making decisions does not grow with the
+ * number of sessions. A round that waits too long for a free thread is answered by its deadline fallback.
+ * On Java 21 the pool is replaced by a virtual thread per decision, see {@link TaskExecutors}.
+ * <p>
+ * Every WebSocket connection still has its own read and write thread, Java-WebSocket has no selector for clients.
+ * The connection lost checker, another thread per connection, is replaced by one shared keep-alive ping.
+ */
+public class SessionManager implements AutoCloseable {
+
+    public static final long DEFAULT_PING_INTERVAL_SECONDS = 30;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService decisionPool;
+    private final ScheduledExecutorService keepAlive;
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger sessionIds = new AtomicInteger();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * @param decisionThreads the number of platform threads shared by all sessions to make decisions,
+     *                        unused when {@link TaskExecutors} runs decisions on virtual threads
+     */
+    public SessionManager(int decisionThreads) {
+        this.decisionPool = TaskExecutors.newTaskExecutor("htf-session-decision", decisionThreads);
+        this.keepAlive = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "htf-session-keep-alive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.keepAlive.scheduleAtFixedRate(this::ping, DEFAULT_PING_INTERVAL_SECONDS, DEFAULT_PING_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a session and starts connecting it.
+     *
+     * @param uri             the URI of the server
+     * @param apiKey          the API key of the team
+     * @param environmentType the environment to play in
+     * @param listener        the listener playing the game of this session
+     * @return the session
+     */
+    public Session open(String uri, String apiKey, EnvironmentType environmentType, HtfClientListener listener) throws URISyntaxException {
+        Session session = new Session(sessionIds.incrementAndGet(), listener);
+        HtfClient client = new HtfClient(uri, apiKey, environmentType, session.counter, objectMapper);
+        client.setDispatchMode(DispatchMode.MAILBOX, decisionPool);
+        client.setConnectionLostTimeout(0);
+        client.getMetrics().register("session-" + session.getId());
+        session.client = client;
+        sessions.add(session);
+        client.connect();
+        return session;
+    }
+
+    public List<Session> getSessions() {
+        return Collections.unmodifiableList(new ArrayList<>(sessions));
+    }
+
+    /**
+     * @return true if every session has finished its game or was disconnected
+     */
+    public boolean isFinished() {
+        for (Session session : sessions) {
+            if (!session.isFinished()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of rounds handled by all sessions together
+     */
+    public long getRounds() {
+        long rounds = 0;
+        for (Session session : sessions) {
+            rounds += session.getRounds();
+        }
+        return rounds;
+    }
+
+    /**
+     * @return the number of rounds handled by all sessions together per second since this manager was created
+     */
+    public double getRoundsPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds == 0 ? 0 : getRounds() / seconds;
+    }
+
+    /**
+     * @return one line per session followed by the aggregate throughput
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        long dropped = 0;
+        for (Session session : sessions) {
+            report.append(session).append(System.lineSeparator());
+            dropped += session.getClient().getDroppedRounds();
+        }
+        report.append("Sessions: ").append(sessions.size())
+                .append(" | Rounds: ").append(getRounds())
+                .append(" | Rounds per second: ").append(Math.round(getRoundsPerSecond()))
+                .append(" | Dropped rounds: ").append(dropped);
+        return report.toString();
+    }
+
+    private void ping() {
+        for (Session session : sessions) {
+            HtfClient client = session.getClient();
+            if (client.isOpen()) {
+                try {
+                    client.sendPing();
+                } catch (RuntimeException ex) {
+                    System.err.println("Unable to ping session " + session.getId() + "\n" + ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes every session and stops the shared threads.
+     */
+    @Override
+    public void close() {
+        keepAlive.shutdown();
+        for (Session session : sessions) {
+            session.getClient().close();
+            session.getClient().getMetrics().unregister();
+        }
+        decisionPool.shutdown();
+    }
+
+    /**
+     * A single game connection hosted by a {@link SessionManager}.
+     */
+    public static class Session {
+
+        private final int id;
+        private final CountingListener counter;
+        private HtfClient client;
+
+        Session(int id, HtfClientListener listener) {
+            this.id = id;
+            this.counter = new CountingListener(listener);
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public HtfClient getClient() {
+            return client;
+        }
+
+        /**
+         * @return the number of rounds handed to the listener
+         */
+        public long getRounds() {
+            return counter.rounds.get();
+        }
+
+        /**
+         * @return true if the game ended or the connection was closed
+         */
+        public boolean isFinished() {
+            return counter.ended || client.isClosed();
+        }
+
+        /**
+         * @return the rounds per second between the first and the last round of this session
+         */
+        public double getRoundsPerSecond() {
+            long rounds = getRounds();
+            double seconds = (counter.lastRoundNanos.get() - counter.firstRoundNanos.get()) / 1e9;
+            return rounds < 2 || seconds <= 0 ? 0 : (rounds - 1) / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return "Session " + id +
+                    " | Rounds: " + getRounds() +
+                    " | Rounds per second: " + Math.round(getRoundsPerSecond()) +
+                    " | Finished: " + isFinished() +
+                    " | Dropped rounds: " + client.getDroppedRounds() +
+                    " | " + client.getDeadlineStats();
+        }
+    }
+
+    /**
+     * Counts the rounds of a session on their way to the listener of the session.
+     */
+    private static class CountingListener implements HtfClientListener {
+
+        private final HtfClientListener delegate;
+        private final AtomicLong rounds = new AtomicLong();
+        private final AtomicLong firstRoundNanos = new AtomicLong();
+        private final AtomicLong lastRoundNanos = new AtomicLong();
+        private volatile boolean ended;
+
+        CountingListener(HtfClientListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onErrorServerMessage(HtfClient client, ErrorServerMessage msg) throws Exception {
+            delegate.onErrorServerMessage(client, msg);
+        }
+
+        @Override
+        public void onGameEndedServerMessage(HtfClient client, GameEndedServerMessage msg) throws Exception {
+            ended = true;
+            delegate.onGameEndedServerMessage(client, msg);
+        }
+
+        @Override
+        public void onGameRoundServerMessage(HtfClient client, GameRoundServerMessage msg) throws Exception {
+            delegate.onGameRoundServerMessage(client, msg);
+        }
+
+        @Override
+        public void onGameRoundServerMessage(HtfClient client, GameRoundServerMessage msg, RoundDeadline deadline) throws Exception {
+            long now = System.nanoTime();
+            firstRoundNanos.compareAndSet(0, now);
+            lastRoundNanos.set(now);
+            rounds.incrementAndGet();
+            delegate.onGameRoundServerMessage(client, msg, deadline);
+        }
+
+        @Override
+        public void onWarningServerMessage(HtfClient client, WarningServerMessage msg) throws Exception {
+            delegate.onWarningServerMessage(client, msg);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package be.thebeehive.htf.library;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors for listener callbacks, recording I/O and strategy sub-tasks.
+ * <p>
+ * This is the Java 8 version, which only knows {@link ThreadMode#PLATFORM}. On Java 21 and up the
+ * multi-release JAR replaces it with a version that runs every task on its own virtual thread,
+ * unless the {@value #MODE_PROPERTY} system property is set to {@code PLATFORM}.
+ */
+public final class TaskExecutors {
+
+    public static final String MODE_PROPERTY = "htf.threads";
+
+    private TaskExecutors() {
+
+    }
+
+    /**
+     * @return the mode used by {@link #newTaskExecutor(String, int)}
+     */
+    public static ThreadMode getMode() {
+        return ThreadMode.PLATFORM;
+    }
+
+    /**
+     * @return true if executors of the given mode can be created on this JVM
+     */
+    public static boolean isSupported(ThreadMode mode) {
+        return mode == ThreadMode.PLATFORM;
+    }
+
+    /**
+     * Creates an executor in the mode of {@link #getMode()}.
+     *
+     * @param name            the prefix of the names of the threads
+     * @param platformThreads the number of threads when platform threads are used
+     */
+    public static ExecutorService newTaskExecutor(String name, int platformThreads) {
+        return newTaskExecutor(getMode(), name, platformThreads);
+    }
+
+    /**
+     * Creates an executor of daemon threads.
+     *
+     * @param mode            the kind of threads
+     * @param name            the prefix of the names of the threads
+     * @param platformThreads the number of threads when platform threads are used
+     * @throws UnsupportedOperationException if the mode is not supported on this JVM
+     */
+    public static ExecutorService newTaskExecutor(ThreadMode mode, String name, int platformThreads) {
+        if (mode != ThreadMode.PLATFORM) {
+            throw new UnsupportedOperationException(mode + " threads need Java 21 or later");
+        }
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(platformThreads, runnable -> {
+            Thread thread = new Thread(runnable, platformThreads == 1 ? name : name + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
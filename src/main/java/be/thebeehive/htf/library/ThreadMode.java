@@ -0,0 +1,15 @@
+package be.thebeehive.htf.library;
+
+/**
+ * The kind of threads {@link TaskExecutors} creates.
+ */
+public enum ThreadMode {
+    /**
+     * Operating system threads, in pools that are sized up front.
+     */
+    PLATFORM,
+    /**
+     * A new virtual thread for every task. Only available on Java 21 and up.
+     */
+    VIRTUAL
+}
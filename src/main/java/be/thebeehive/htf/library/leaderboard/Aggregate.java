@@ -0,0 +1,29 @@
+package be.thebeehive.htf.library.leaderboard;
+
+/**
+ * The running totals behind a {@link LeaderboardStats}, updated with every game.
+ */
+class Aggregate {
+
+    private final ValueHistogram lastRounds = new ValueHistogram();
+    private final ValueHistogram points = new ValueHistogram();
+    private long games;
+    private long wins;
+    private double lastRoundSum;
+    private double pointsSum;
+
+    void add(long lastRound, double points, boolean won) {
+        this.lastRounds.record(lastRound);
+        this.points.record((long) Math.floor(points));
+        this.games++;
+        if (won) {
+            this.wins++;
+        }
+        this.lastRoundSum += lastRound;
+        this.pointsSum += points;
+    }
+
+    LeaderboardStats stats() {
+        return new LeaderboardStats(games, wins, lastRoundSum, lastRounds, pointsSum, points);
+    }
+}
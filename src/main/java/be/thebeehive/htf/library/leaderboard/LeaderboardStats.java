@@ -0,0 +1,117 @@
+package be.thebeehive.htf.library.leaderboard;
+
+/**
+ * The results of a team or a strategy over all games in a {@link LeaderboardStore}, at one point in time.
+ * <p>
+ * Quantiles of the last round are exact up to round {@value ValueHistogram#SUB_BUCKETS}, quantiles of the points
+ * are whole points and accurate to about 1.6%. Means are exact.
+ */
+public class LeaderboardStats {
+
+    private final long games;
+    private final long wins;
+    private final double meanLastRound;
+    private final long p50LastRound;
+    private final long p90LastRound;
+    private final long p99LastRound;
+    private final long maxLastRound;
+    private final double meanPoints;
+    private final long p10Points;
+    private final long p50Points;
+    private final long p90Points;
+    private final long maxPoints;
+
+    LeaderboardStats(long games, long wins, double lastRoundSum, ValueHistogram lastRounds, double pointsSum, ValueHistogram points) {
+        this.games = games;
+        this.wins = wins;
+        this.meanLastRound = games == 0 ? 0 : lastRoundSum / games;
+        this.p50LastRound = lastRounds.getQuantile(0.5);
+        this.p90LastRound = lastRounds.getQuantile(0.9);
+        this.p99LastRound = lastRounds.getQuantile(0.99);
+        this.maxLastRound = lastRounds.getMax();
+        this.meanPoints = games == 0 ? 0 : pointsSum / games;
+        this.p10Points = points.getQuantile(0.1);
+        this.p50Points = points.getQuantile(0.5);
+        this.p90Points = points.getQuantile(0.9);
+        this.maxPoints = points.getMax();
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * @return the number of games that ended with the most points, ties included
+     */
+    public long getWins() {
+        return wins;
+    }
+
+    /**
+     * @return the share of the games that were won, 0 without games
+     */
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    public double getMeanLastRound() {
+        return meanLastRound;
+    }
+
+    public long getP50LastRound() {
+        return p50LastRound;
+    }
+
+    public long getP90LastRound() {
+        return p90LastRound;
+    }
+
+    public long getP99LastRound() {
+        return p99LastRound;
+    }
+
+    public long getMaxLastRound() {
+        return maxLastRound;
+    }
+
+    public double getMeanPoints() {
+        return meanPoints;
+    }
+
+    /**
+     * @return the points that 90% of the games ended above, the bad games
+     */
+    public long getP10Points() {
+        return p10Points;
+    }
+
+    public long getP50Points() {
+        return p50Points;
+    }
+
+    public long getP90Points() {
+        return p90Points;
+    }
+
+    public long getMaxPoints() {
+        return maxPoints;
+    }
+
+    @Override
+    public String toString() {
+        return "LeaderboardStats{" +
+                "games=" + games +
+                ", winRate=" + getWinRate() +
+                ", meanLastRound=" + meanLastRound +
+                ", p50LastRound=" + p50LastRound +
+                ", p90LastRound=" + p90LastRound +
+                ", p99LastRound=" + p99LastRound +
+                ", maxLastRound=" + maxLastRound +
+                ", meanPoints=" + meanPoints +
+                ", p10Points=" + p10Points +
+                ", p50Points=" + p50Points +
+                ", p90Points=" + p90Points +
+                ", maxPoints=" + maxPoints +
+                '}';
+    }
+}
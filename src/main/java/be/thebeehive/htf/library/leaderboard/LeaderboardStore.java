@@ -0,0 +1,333 @@
+package be.thebeehive.htf.library.leaderboard;
+
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage.LeaderboardTeam;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the leaderboard of every game that ended in an append-only file, with running results per team and per
+ * strategy version.
+ * <p>
+ * Every {@link GameEndedServerMessage} is appended as one record and added to the aggregates of the teams on its
+ * leaderboard, and of the strategy version our team played it with. Queries read the aggregates, so they take
+ * the same time after a hundred games as after a million. Opening a store replays its file once to rebuild the
+ * aggregates, which takes about a second for 300,000 games.
+ * <p>
+ * The file starts with {@code [int magic][int version]}, records follow as {@code [int length][int crc32][payload]}.
+ * A record that was cut off or does not match its checksum ends the file: it is truncated there when the store is
+ * opened. Records reach the operating system when they are appended and the disk when the store is closed.
+ * All methods are thread-safe, so one store can be shared by the clients of a JVM.
+ */
+public class LeaderboardStore implements Closeable {
+
+    /**
+     * The system property with the file {@link be.thebeehive.htf.client.Main} keeps the leaderboards in, if any.
+     */
+    public static final String FILE_PROPERTY = "htf.leaderboard.file";
+
+    /**
+     * The system property with the version of the strategy that is playing, to compare strategies by.
+     */
+    public static final String STRATEGY_PROPERTY = "htf.strategy";
+
+    public static final String DEFAULT_STRATEGY = "unversioned";
+
+    private static final int MAGIC = 0x4854464C;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 4 + 4;
+    private static final int RECORD_HEADER_SIZE = 4 + 4;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Map<String, Aggregate> teams = new HashMap<>();
+    private final Map<String, Aggregate> strategies = new HashMap<>();
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream(512);
+    private final DataOutputStream out = new DataOutputStream(payload);
+    private final CRC32 crc = new CRC32();
+    private long games;
+    private long dropped;
+    private boolean closed;
+    private boolean broken;
+
+    private LeaderboardStore(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the store in the given file, creating it if it does not exist.
+     */
+    public static LeaderboardStore open(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        LeaderboardStore store = new LeaderboardStore(file, channel);
+        try {
+            store.replay();
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+        return store;
+    }
+
+    private void replay() throws IOException {
+        long size = this.channel.size();
+        if (size == 0) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            while (header.hasRemaining()) {
+                this.channel.write(header);
+            }
+            return;
+        }
+
+        long valid = FILE_HEADER_SIZE;
+        try (InputStream stream = Files.newInputStream(this.file)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+            if (size < FILE_HEADER_SIZE || in.readInt() != MAGIC) {
+                throw new IOException("Not a leaderboard file: " + this.file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported leaderboard version " + version + ": " + this.file);
+            }
+
+            byte[] bytes = new byte[512];
+            while (valid + RECORD_HEADER_SIZE <= size) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || valid + RECORD_HEADER_SIZE + length > size) {
+                    break;
+                }
+                if (bytes.length < length) {
+                    bytes = new byte[Math.max(length, 2 * bytes.length)];
+                }
+                in.readFully(bytes, 0, length);
+                this.crc.reset();
+                this.crc.update(bytes, 0, length);
+                if ((int) this.crc.getValue() != checksum) {
+                    break;
+                }
+                this.apply(new DataInputStream(new ByteArrayInputStream(bytes, 0, length)));
+                valid += RECORD_HEADER_SIZE + length;
+            }
+        } catch (EOFException ex) {
+            // Cut off in the middle of a record header
+        }
+
+        if (valid < size) {
+            System.err.println("Truncating " + (size - valid) + " bytes of incomplete leaderboard records in " + this.file);
+            this.channel.truncate(valid);
+        }
+        this.channel.position(valid);
+    }
+
+    private void apply(DataInputStream in) throws IOException {
+        in.readLong(); // epochMillis
+        in.readLong(); // round
+        String strategy = in.readUTF();
+        String ourTeam = in.readUTF();
+        int count = in.readInt();
+        List<LeaderboardTeam> leaderboard = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LeaderboardTeam team = new LeaderboardTeam();
+            team.setName(in.readUTF());
+            team.setLastRound(in.readLong());
+            team.setPoints(new BigDecimal(in.readUTF()));
+            leaderboard.add(team);
+        }
+        this.add(leaderboard, ourTeam, strategy);
+    }
+
+    /**
+     * Appends the leaderboard of a game and adds it to the aggregates. A game that cannot be written is dropped
+     * and counted, and the part of it that was written is cut off again, so the aggregates always match the file.
+     *
+     * @param msg      the message that ended the game
+     * @param ourTeam  the name our team has on the leaderboard, or null if unknown
+     * @param strategy the version of the strategy our team played with
+     * @return true if the game was stored
+     */
+    public synchronized boolean append(GameEndedServerMessage msg, String ourTeam, String strategy) {
+        List<LeaderboardTeam> leaderboard = msg.getLeaderboard();
+        if (this.closed || this.broken || leaderboard == null) {
+            this.dropped++;
+            return false;
+        }
+        long start = -1;
+        try {
+            this.payload.reset();
+            this.out.writeLong(System.currentTimeMillis());
+            this.out.writeLong(msg.getRound());
+            this.out.writeUTF(strategy == null ? "" : strategy);
+            this.out.writeUTF(ourTeam == null ? "" : ourTeam);
+            this.out.writeInt(leaderboard.size());
+            for (LeaderboardTeam team : leaderboard) {
+                this.out.writeUTF(team.getName() == null ? "" : team.getName());
+                this.out.writeLong(team.getLastRound());
+                this.out.writeUTF(points(team).toString());
+            }
+            this.out.flush();
+
+            byte[] bytes = this.payload.toByteArray();
+            this.crc.reset();
+            this.crc.update(bytes, 0, bytes.length);
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bytes.length);
+            record.putInt(bytes.length).putInt((int) this.crc.getValue()).put(bytes).flip();
+            start = this.channel.position();
+            while (record.hasRemaining()) {
+                this.channel.write(record);
+            }
+        } catch (IOException ex) {
+            System.err.println("Unable to append to leaderboard " + this.file + "\n" + ex);
+            this.dropped++;
+            if (start >= 0) {
+                this.discardFrom(start);
+            }
+            return false;
+        }
+        this.add(leaderboard, ourTeam, strategy);
+        return true;
+    }
+
+    /**
+     * Cuts off a record that was partly written, so the next one does not end up behind it. When that fails the
+     * store stops appending, as every record after the partial one would be lost when the file is replayed.
+     */
+    private void discardFrom(long start) {
+        try {
+            this.channel.truncate(start);
+            this.channel.position(start);
+        } catch (IOException ex) {
+            System.err.println("Unable to discard a partial record in leaderboard " + this.file
+                    + ", no more games are appended\n" + ex);
+            this.broken = true;
+        }
+    }
+
+    private void add(List<LeaderboardTeam> leaderboard, String ourTeam, String strategy) {
+        BigDecimal best = null;
+        for (LeaderboardTeam team : leaderboard) {
+            BigDecimal points = points(team);
+            if (best == null || points.compareTo(best) > 0) {
+                best = points;
+            }
+        }
+        for (LeaderboardTeam team : leaderboard) {
+            String name = team.getName() == null ? "" : team.getName();
+            BigDecimal points = points(team);
+            boolean won = points.compareTo(best) == 0;
+            this.teams.computeIfAbsent(name, key -> new Aggregate()).add(team.getLastRound(), points.doubleValue(), won);
+            if (ourTeam != null && !ourTeam.isEmpty() && ourTeam.equals(name)) {
+                this.strategies.computeIfAbsent(strategy == null ? "" : strategy, key -> new Aggregate())
+                        .add(team.getLastRound(), points.doubleValue(), won);
+            }
+        }
+        this.games++;
+    }
+
+    private static BigDecimal points(LeaderboardTeam team) {
+        return team.getPoints() == null ? BigDecimal.ZERO : team.getPoints();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return the number of games in the store
+     */
+    public synchronized long getGames() {
+        return games;
+    }
+
+    /**
+     * @return the number of games that could not be written
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return the names of the teams on any leaderboard, sorted
+     */
+    public synchronized Set<String> getTeams() {
+        return new TreeSet<>(teams.keySet());
+    }
+
+    /**
+     * @return the strategy versions our team played with, sorted
+     */
+    public synchronized Set<String> getStrategies() {
+        return new TreeSet<>(strategies.keySet());
+    }
+
+    /**
+     * @return the results of the team over all games it played, or null if it never played
+     */
+    public synchronized LeaderboardStats getTeamStats(String team) {
+        Aggregate aggregate = teams.get(team);
+        return aggregate == null ? null : aggregate.stats();
+    }
+
+    /**
+     * @return the results of our team over all games played with the strategy version, or null if there are none
+     */
+    public synchronized LeaderboardStats getStrategyStats(String strategy) {
+        Aggregate aggregate = strategies.get(strategy);
+        return aggregate == null ? null : aggregate.stats();
+    }
+
+    /**
+     * Flushes the file to disk and closes it.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.channel.force(false);
+            this.channel.close();
+        } catch (IOException ex) {
+            System.err.println("Unable to close leaderboard " + this.file + "\n" + ex);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LeaderboardStore{" +
+                "file=" + file +
+                ", games=" + games +
+                ", teams=" + teams.size() +
+                ", strategies=" + strategies.size() +
+                ", dropped=" + dropped +
+                '}';
+    }
+}
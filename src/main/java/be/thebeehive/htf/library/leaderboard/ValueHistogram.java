@@ -0,0 +1,125 @@
+package be.thebeehive.htf.library.leaderboard;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of whole numbers, negative ones included, of which quantiles are read without visiting the values.
+ * <p>
+ * Numbers below {@value #SUB_BUCKETS} in magnitude get a bucket each, larger ones {@value #SUB_BUCKETS} buckets per
+ * power of two, so a quantile is accurate to about 1.6% of its value. The bucket arrays only grow up to the largest
+ * magnitude seen, which keeps a histogram of rounds or points to a few hundred longs however many games it holds.
+ * Instances are not thread-safe.
+ */
+class ValueHistogram {
+
+    static final int SUB_BUCKET_BITS = 6;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private long[] positive = new long[SUB_BUCKETS];
+    private long[] negative = new long[0];
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    void record(long value) {
+        if (value >= 0) {
+            positive = increment(positive, bucket(value));
+        } else {
+            negative = increment(negative, bucket(value == Long.MIN_VALUE ? Long.MAX_VALUE : -value));
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    private static long[] increment(long[] counts, int bucket) {
+        long[] result = counts;
+        if (bucket >= result.length) {
+            result = Arrays.copyOf(result, Math.max(bucket + 1, 2 * result.length));
+        }
+        result[bucket]++;
+        return result;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the smallest value recorded, 0 when empty
+     */
+    long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * @return the largest value recorded, 0 when empty
+     */
+    long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    /**
+     * @return the value below which the given share of the values is, 0 when empty
+     */
+    long getQuantile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int bucket = negative.length - 1; bucket >= 0; bucket--) {
+            seen += negative[bucket];
+            if (seen >= rank) {
+                return clamp(-lowerBound(bucket));
+            }
+        }
+        for (int bucket = 0; bucket < positive.length; bucket++) {
+            seen += positive[bucket];
+            if (seen >= rank) {
+                return clamp(upperBound(bucket));
+            }
+        }
+        return max;
+    }
+
+    private long clamp(long value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    static int bucket(long magnitude) {
+        if (magnitude < SUB_BUCKETS) {
+            return (int) magnitude;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(magnitude);
+        int sub = (int) (magnitude >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return the smallest magnitude that falls in the bucket
+     */
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = SUB_BUCKET_BITS + (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * @return the largest magnitude that falls in the bucket
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = SUB_BUCKET_BITS + (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        if (exponent == 62 && sub == SUB_BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
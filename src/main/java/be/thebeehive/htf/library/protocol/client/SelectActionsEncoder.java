@@ -0,0 +1,152 @@
+package be.thebeehive.htf.library.protocol.client;
+
+import com.fasterxml.jackson.core.io.NumberOutput;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes the JSON of a {@link SelectActionsClientMessage} straight into a reused {@link ByteBuffer}.
+ * <p>
+ * The output is the same as the one of the {@code ObjectMapper}:
+ * {@code {"_type":"SelectActionsClientMessage","roundId":"...","actionIds":[...]}}. It is plain ASCII, so it is
+ * also the UTF-8 payload of a WebSocket text frame. The action ids can be given as a {@code long[]}, so no
+ * {@link Long} is boxed, and numbers are written with the digit tables of Jackson's {@link NumberOutput}. Nothing
+ * is allocated once the buffer is large enough for the replies.
+ * <p>
+ * The returned buffer is reused by the next call, so an encoder is not thread-safe.
+ */
+public class SelectActionsEncoder {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_LONG_LENGTH = 20;
+
+    private static final byte[] PREFIX = ascii("{\"_type\":\"SelectActionsClientMessage\",\"roundId\":");
+    private static final byte[] ACTION_IDS = ascii(",\"actionIds\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX_DIGITS = ascii("0123456789abcdef");
+    private static final int UUID_LENGTH = 36;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    /**
+     * Encodes a message.
+     *
+     * @return the JSON between the position and the limit of a buffer that is reused by the next call
+     */
+    public ByteBuffer encode(SelectActionsClientMessage msg) {
+        List<Long> actionIds = msg.getActionIds();
+        int count = actionIds == null ? 0 : actionIds.size();
+        byte[] bytes = reserve(count);
+        int position = putPrefix(bytes, msg.getRoundId());
+        if (actionIds == null) {
+            position = put(bytes, position, NULL);
+        } else {
+            bytes[position++] = '[';
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    bytes[position++] = ',';
+                }
+                Long actionId = actionIds.get(i);
+                position = actionId == null ? put(bytes, position, NULL) : NumberOutput.outputLong(actionId, bytes, position);
+            }
+            bytes[position++] = ']';
+        }
+        return finish(bytes, position);
+    }
+
+    /**
+     * Encodes a message from primitive action ids.
+     *
+     * @param roundId   the id of the round
+     * @param actionIds the array holding the action ids
+     * @param count     the number of action ids, taken from the start of the array
+     * @return the JSON between the position and the limit of a buffer that is reused by the next call
+     */
+    public ByteBuffer encode(UUID roundId, long[] actionIds, int count) {
+        byte[] bytes = reserve(count);
+        int position = putPrefix(bytes, roundId);
+        bytes[position++] = '[';
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                bytes[position++] = ',';
+            }
+            position = NumberOutput.outputLong(actionIds[i], bytes, position);
+        }
+        bytes[position++] = ']';
+        return finish(bytes, position);
+    }
+
+    /**
+     * Grows the buffer if needed for the given number of action ids.
+     *
+     * @return the array backing the buffer
+     */
+    private byte[] reserve(int count) {
+        int capacity = PREFIX.length + UUID_LENGTH + 2 + ACTION_IDS.length + 2 + count * (MAX_LONG_LENGTH + 1) + 1;
+        if (buffer.capacity() < capacity) {
+            buffer = ByteBuffer.allocate(Math.max(capacity, buffer.capacity() * 2));
+        }
+        return buffer.array();
+    }
+
+    private static int putPrefix(byte[] bytes, UUID roundId) {
+        int position = put(bytes, 0, PREFIX);
+        if (roundId == null) {
+            position = put(bytes, position, NULL);
+        } else {
+            bytes[position++] = '"';
+            position = putUuid(bytes, position, roundId);
+            bytes[position++] = '"';
+        }
+        return put(bytes, position, ACTION_IDS);
+    }
+
+    private ByteBuffer finish(byte[] bytes, int position) {
+        bytes[position++] = '}';
+        // Called on Buffer, as the ByteBuffer overrides of Java 9 do not exist on Java 8
+        ((Buffer) buffer).limit(position);
+        ((Buffer) buffer).position(0);
+        return buffer;
+    }
+
+    private static int put(byte[] bytes, int position, byte[] text) {
+        System.arraycopy(text, 0, bytes, position, text.length);
+        return position + text.length;
+    }
+
+    private static int putUuid(byte[] bytes, int position, UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        putHex(bytes, position, msb >>> 32, 8);
+        bytes[position + 8] = '-';
+        putHex(bytes, position + 9, msb >>> 16, 4);
+        bytes[position + 13] = '-';
+        putHex(bytes, position + 14, msb, 4);
+        bytes[position + 18] = '-';
+        putHex(bytes, position + 19, lsb >>> 48, 4);
+        bytes[position + 23] = '-';
+        putHex(bytes, position + 24, lsb, 12);
+        return position + UUID_LENGTH;
+    }
+
+    /**
+     * Writes the lowest digits of a value as lowercase hexadecimal, most significant first.
+     */
+    private static void putHex(byte[] bytes, int position, long value, int digits) {
+        for (int i = position + digits - 1; i >= position; i--) {
+            bytes[i] = HEX_DIGITS[(int) value & 0xF];
+            value >>>= 4;
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) text.charAt(i);
+        }
+        return bytes;
+    }
+}
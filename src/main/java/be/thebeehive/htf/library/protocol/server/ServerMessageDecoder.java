@@ -0,0 +1,485 @@
+package be.thebeehive.htf.library.protocol.server;
+
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage.LeaderboardTeam;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Checkpoint;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Spaceship;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Decodes {@link ServerMessage}s token by token with a {@link JsonParser}.
+ * <p>
+ * The server writes the {@code _type} property first, so the decoder can dispatch on it without
+ * buffering the rest of the message. Should another property come first, the message is handed
+ * to the {@link ObjectMapper} instead.
+ * <p>
+ * In pooled mode the decoder fills the same message instances, lists, effects, actions, spaceships
+ * and values on every call. A decoded message is then only valid until the next call to
+ * {@code decode}: listeners must copy whatever they want to keep. A pooled decoder is
+ * therefore not thread-safe, while a decoder that is not pooled can be shared.
+ */
+public class ServerMessageDecoder {
+
+    private static final String TYPE_PROPERTY = "_type";
+    private static final int CACHED_NUMBER_LIMIT = 1024;
+    private static final BigDecimal[] CACHED_NUMBERS = new BigDecimal[2 * CACHED_NUMBER_LIMIT + 1];
+
+    static {
+        for (int i = 0; i < CACHED_NUMBERS.length; i++) {
+            CACHED_NUMBERS[i] = BigDecimal.valueOf(i - CACHED_NUMBER_LIMIT);
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+    private final boolean pooled;
+
+    private final ErrorServerMessage errorMessage = new ErrorServerMessage();
+    private final WarningServerMessage warningMessage = new WarningServerMessage();
+    private final GameEndedServerMessage gameEndedMessage = new GameEndedServerMessage();
+    private final GameRoundServerMessage gameRoundMessage = new GameRoundServerMessage();
+
+    private final Checkpoint checkpoint = new Checkpoint();
+    private final Spaceship ourSpaceship = new Spaceship();
+    private final List<Effect> effects = new ArrayList<>();
+    private final List<Action> actions = new ArrayList<>();
+    private final List<Spaceship> competingSpaceships = new ArrayList<>();
+    private final List<LeaderboardTeam> leaderboard = new ArrayList<>();
+
+    private final List<Effect> effectPool = new ArrayList<>();
+    private final List<Action> actionPool = new ArrayList<>();
+    private final List<Spaceship> spaceshipPool = new ArrayList<>();
+    private final List<LeaderboardTeam> leaderboardTeamPool = new ArrayList<>();
+
+    public ServerMessageDecoder(ObjectMapper objectMapper, boolean pooled) {
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        this.pooled = pooled;
+    }
+
+    /**
+     * Returns whether this decoder reuses its message instances.
+     *
+     * @return true if decoded messages are only valid until the next call
+     */
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    /**
+     * Decodes a message received from the server.
+     *
+     * @param json the message as received from the server
+     * @return the decoded message
+     * @throws IOException if the message is not a valid ServerMessage
+     */
+    public ServerMessage decode(String json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (!startsWithType(parser)) {
+                return objectMapper.readValue(json, ServerMessage.class);
+            }
+            return decodeBody(parser, parser.getText());
+        }
+    }
+
+    /**
+     * Decodes a message received from the server straight from its UTF-8 bytes, without decoding them to a String.
+     *
+     * @param utf8 the message as received from the server, its position is left unchanged
+     * @return the decoded message
+     * @throws IOException if the message is not a valid ServerMessage
+     */
+    public ServerMessage decode(ByteBuffer utf8) throws IOException {
+        int length = utf8.remaining();
+        byte[] bytes;
+        int offset;
+        if (utf8.hasArray()) {
+            bytes = utf8.array();
+            offset = utf8.arrayOffset() + utf8.position();
+        } else {
+            bytes = new byte[length];
+            utf8.duplicate().get(bytes);
+            offset = 0;
+        }
+        try (JsonParser parser = jsonFactory.createParser(bytes, offset, length)) {
+            if (!startsWithType(parser)) {
+                return objectMapper.readValue(bytes, offset, length, ServerMessage.class);
+            }
+            return decodeBody(parser, parser.getText());
+        }
+    }
+
+    /**
+     * Moves the parser to the value of the {@code _type} property, if that is the first property.
+     *
+     * @return false if another property comes first
+     */
+    private static boolean startsWithType(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object");
+        }
+        if (parser.nextToken() != JsonToken.FIELD_NAME || !TYPE_PROPERTY.equals(parser.getCurrentName())) {
+            return false;
+        }
+        parser.nextToken();
+        return true;
+    }
+
+    private ServerMessage decodeBody(JsonParser parser, String type) throws IOException {
+        switch (type) {
+            case "ErrorServerMessage":
+                return decodeError(parser);
+            case "GameEndedServerMessage":
+                return decodeGameEnded(parser);
+            case "GameRoundServerMessage":
+                return decodeGameRound(parser);
+            case "WarningServerMessage":
+                return decodeWarning(parser);
+            default:
+                throw new JsonParseException(parser, "Unknown ServerMessage type: " + type);
+        }
+    }
+
+    private ErrorServerMessage decodeError(JsonParser parser) throws IOException {
+        ErrorServerMessage msg = pooled ? errorMessage : new ErrorServerMessage();
+        msg.setMsg(null);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("msg".equals(field)) {
+                msg.setMsg(parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return msg;
+    }
+
+    private WarningServerMessage decodeWarning(JsonParser parser) throws IOException {
+        WarningServerMessage msg = pooled ? warningMessage : new WarningServerMessage();
+        msg.setMsg(null);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("msg".equals(field)) {
+                msg.setMsg(parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return msg;
+    }
+
+    private GameEndedServerMessage decodeGameEnded(JsonParser parser) throws IOException {
+        GameEndedServerMessage msg = pooled ? gameEndedMessage : new GameEndedServerMessage();
+        msg.setRound(0);
+        msg.setLeaderboard(null);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "round":
+                    msg.setRound(parser.getLongValue());
+                    break;
+                case "leaderboard":
+                    msg.setLeaderboard(token == JsonToken.VALUE_NULL ? null : decodeLeaderboard(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return msg;
+    }
+
+    private List<LeaderboardTeam> decodeLeaderboard(JsonParser parser) throws IOException {
+        List<LeaderboardTeam> teams = list(leaderboard);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            LeaderboardTeam team = element(leaderboardTeamPool, teams.size(), LeaderboardTeam::new);
+            team.setLastRound(0);
+            team.setPoints(null);
+            String previousName = team.getName();
+            team.setName(null);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "name":
+                        team.setName(text(parser, previousName));
+                        break;
+                    case "lastRound":
+                        team.setLastRound(parser.getLongValue());
+                        break;
+                    case "points":
+                        team.setPoints(decimal(parser));
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            teams.add(team);
+        }
+        return teams;
+    }
+
+    private GameRoundServerMessage decodeGameRound(JsonParser parser) throws IOException {
+        GameRoundServerMessage msg = pooled ? gameRoundMessage : new GameRoundServerMessage();
+        msg.setRound(0);
+        msg.setRoundId(null);
+        msg.setNextCheckpoint(null);
+        msg.setEffects(null);
+        msg.setActions(null);
+        msg.setOurSpaceship(null);
+        msg.setCompetingSpaceships(null);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "round":
+                    msg.setRound(parser.getLongValue());
+                    break;
+                case "roundId":
+                    msg.setRoundId(UUID.fromString(parser.getText()));
+                    break;
+                case "nextCheckpoint":
+                    msg.setNextCheckpoint(decodeCheckpoint(parser));
+                    break;
+                case "effects":
+                    msg.setEffects(decodeEffects(parser));
+                    break;
+                case "actions":
+                    msg.setActions(decodeActions(parser));
+                    break;
+                case "ourSpaceship":
+                    msg.setOurSpaceship(decodeSpaceship(parser, pooled ? ourSpaceship : new Spaceship()));
+                    break;
+                case "competingSpaceships":
+                    msg.setCompetingSpaceships(decodeSpaceships(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return msg;
+    }
+
+    private Checkpoint decodeCheckpoint(JsonParser parser) throws IOException {
+        Checkpoint result = pooled ? checkpoint : new Checkpoint();
+        result.setRound(0);
+        Values values = result.getValues();
+        result.setValues(null);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("round".equals(field)) {
+                result.setRound(parser.getLongValue());
+            } else if ("values".equals(field) && token != JsonToken.VALUE_NULL) {
+                result.setValues(decodeValues(parser, values));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return result;
+    }
+
+    private List<Effect> decodeEffects(JsonParser parser) throws IOException {
+        List<Effect> result = list(effects);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Effect effect = element(effectPool, result.size(), Effect::new);
+            effect.setId(0);
+            effect.setStep(0);
+            Values values = effect.getValues();
+            effect.setValues(null);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "id":
+                        effect.setId(parser.getLongValue());
+                        break;
+                    case "step":
+                        effect.setStep(parser.getIntValue());
+                        break;
+                    case "values":
+                        effect.setValues(token == JsonToken.VALUE_NULL ? null : decodeValues(parser, values));
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            result.add(effect);
+        }
+        return result;
+    }
+
+    private List<Action> decodeActions(JsonParser parser) throws IOException {
+        List<Action> result = list(actions);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Action action = element(actionPool, result.size(), Action::new);
+            action.setId(0);
+            action.setEffectId(0);
+            Values values = action.getValues();
+            action.setValues(null);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "id":
+                        action.setId(parser.getLongValue());
+                        break;
+                    case "effectId":
+                        action.setEffectId(parser.getLongValue());
+                        break;
+                    case "values":
+                        action.setValues(token == JsonToken.VALUE_NULL ? null : decodeValues(parser, values));
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            result.add(action);
+        }
+        return result;
+    }
+
+    private List<Spaceship> decodeSpaceships(JsonParser parser) throws IOException {
+        List<Spaceship> result = list(competingSpaceships);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            result.add(decodeSpaceship(parser, element(spaceshipPool, result.size(), Spaceship::new)));
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the fields of a spaceship. The parser must be positioned on its START_OBJECT.
+     */
+    private Spaceship decodeSpaceship(JsonParser parser, Spaceship spaceship) throws IOException {
+        String previousName = spaceship.getName();
+        Values values = spaceship.getValues();
+        spaceship.setName(null);
+        spaceship.setValues(null);
+        spaceship.setAlive(false);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "name":
+                    spaceship.setName(text(parser, previousName));
+                    break;
+                case "values":
+                    spaceship.setValues(token == JsonToken.VALUE_NULL ? null : decodeValues(parser, values));
+                    break;
+                case "alive":
+                    spaceship.setAlive(parser.getBooleanValue());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return spaceship;
+    }
+
+    /**
+     * Decodes the fields of a Values object into the given instance, or a new one when not pooled.
+     */
+    private Values decodeValues(JsonParser parser, Values previous) throws IOException {
+        Values values = pooled && previous != null ? previous : new Values();
+        values.setHealth(null);
+        values.setMaxHealth(null);
+        values.setCrew(null);
+        values.setMaxCrew(null);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "health":
+                    values.setHealth(decimal(parser));
+                    break;
+                case "maxHealth":
+                    values.setMaxHealth(decimal(parser));
+                    break;
+                case "crew":
+                    values.setCrew(decimal(parser));
+                    break;
+                case "maxCrew":
+                    values.setMaxCrew(decimal(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads a decimal value, reusing cached instances for small integers.
+     */
+    private static BigDecimal decimal(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT) {
+            int value = parser.getIntValue();
+            if (value >= -CACHED_NUMBER_LIMIT && value <= CACHED_NUMBER_LIMIT) {
+                return CACHED_NUMBERS[value + CACHED_NUMBER_LIMIT];
+            }
+        }
+        return parser.getDecimalValue();
+    }
+
+    /**
+     * Reads a text value, reusing the previous String when the characters are the same.
+     */
+    private static String text(JsonParser parser, String previous) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (previous != null && parser.getTextLength() == previous.length()) {
+            char[] chars = parser.getTextCharacters();
+            int offset = parser.getTextOffset();
+            boolean same = true;
+            for (int i = 0; i < previous.length() && same; i++) {
+                same = chars[offset + i] == previous.charAt(i);
+            }
+            if (same) {
+                return previous;
+            }
+        }
+        return parser.getText();
+    }
+
+    private <T> List<T> list(List<T> pooledList) {
+        if (!pooled) {
+            return new ArrayList<>();
+        }
+        pooledList.clear();
+        return pooledList;
+    }
+
+    private <T> T element(List<T> pool, int index, Supplier<T> factory) {
+        if (!pooled) {
+            return factory.get();
+        }
+        while (pool.size() <= index) {
+            pool.add(factory.get());
+        }
+        return pool.get(index);
+    }
+}
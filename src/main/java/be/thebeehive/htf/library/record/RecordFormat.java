@@ -0,0 +1,65 @@
+package be.thebeehive.htf.library.record;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The layout of the segment files shared by {@link RoundRecorder} and {@link RecordReader}.
+ * <p>
+ * A segment starts with a header of {@code [int magic][int version][long epochMillis][long nanoTime]}, the wall clock
+ * and {@link System#nanoTime()} at which the segment was created. Records follow back to back as
+ * {@code [int length][byte type][long nanoTime][payload]}, where length is the size of the payload.
+ * A length of zero marks the end of the written part of a segment.
+ */
+final class RecordFormat {
+
+    static final int MAGIC = 0x48544652;
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 4 + 4 + 8 + 8;
+    static final int RECORD_HEADER_SIZE = 4 + 1 + 8;
+
+    static final int OFFSET_LENGTH = 0;
+    static final int OFFSET_TYPE = 4;
+    static final int OFFSET_NANOS = 5;
+
+    static final byte SOURCE_LISTENER = 0;
+    static final byte SOURCE_FALLBACK = 1;
+
+    private static final String PREFIX = "rounds-";
+    private static final String SUFFIX = ".log";
+
+    private RecordFormat() {
+
+    }
+
+    static Path segmentPath(Path directory, long index) {
+        return directory.resolve(String.format("%s%012d%s", PREFIX, index, SUFFIX));
+    }
+
+    static long segmentIndex(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * @return the segments in the directory, oldest first
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+}
@@ -0,0 +1,210 @@
+package be.thebeehive.htf.library.record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Scans the records written by a {@link RoundRecorder}, oldest first.
+ * <p>
+ * Call {@link #next()} to move to the next record and use the getters to read the current one:
+ * <pre>{@code
+ * try (RecordReader reader = RecordReader.open(directory)) {
+ *     while (reader.next()) {
+ *         if (reader.getType() == RecordType.ROUND) {
+ *             decoder.decode(reader.getText());
+ *         }
+ *     }
+ * }
+ * }</pre>
+ */
+public class RecordReader implements Closeable {
+
+    private final List<Path> segments;
+    private int segment = -1;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long epochMillis;
+    private long baseNanos;
+    private int position;
+
+    private RecordType type;
+    private long nanos;
+    private int payloadOffset;
+    private int payloadLength;
+    private byte[] bytes = new byte[8192];
+
+    private RecordReader(List<Path> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Opens a reader over all segments currently in the directory.
+     */
+    public static RecordReader open(Path directory) throws IOException {
+        return new RecordReader(RecordFormat.segments(directory));
+    }
+
+    /**
+     * Moves to the next record.
+     *
+     * @return true if there is a next record, false at the end of the log
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            if (this.buffer != null && this.readRecord()) {
+                if (this.type != null) {
+                    return true;
+                }
+                continue;
+            }
+            if (!this.openNextSegment()) {
+                return false;
+            }
+        }
+    }
+
+    private boolean readRecord() {
+        int start = this.position;
+        if (start + RecordFormat.RECORD_HEADER_SIZE > this.buffer.limit()) {
+            return false;
+        }
+        int length = this.buffer.getInt(start + RecordFormat.OFFSET_LENGTH);
+        if (length <= 0 || start + RecordFormat.RECORD_HEADER_SIZE + length > this.buffer.limit()) {
+            return false;
+        }
+        this.type = RecordType.fromCode(this.buffer.get(start + RecordFormat.OFFSET_TYPE));
+        this.nanos = this.buffer.getLong(start + RecordFormat.OFFSET_NANOS);
+        this.payloadOffset = start + RecordFormat.RECORD_HEADER_SIZE;
+        this.payloadLength = length;
+        this.position = this.payloadOffset + length;
+        return true;
+    }
+
+    private boolean openNextSegment() throws IOException {
+        this.closeSegment();
+        if (++this.segment >= this.segments.size()) {
+            return false;
+        }
+
+        Path path = this.segments.get(this.segment);
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel.size());
+        if (this.buffer.limit() < RecordFormat.SEGMENT_HEADER_SIZE || this.buffer.getInt(0) != RecordFormat.MAGIC) {
+            throw new IOException("Not a round log segment: " + path);
+        }
+        if (this.buffer.getInt(4) != RecordFormat.VERSION) {
+            throw new IOException("Unsupported round log version " + this.buffer.getInt(4) + ": " + path);
+        }
+        this.epochMillis = this.buffer.getLong(8);
+        this.baseNanos = this.buffer.getLong(16);
+        this.position = RecordFormat.SEGMENT_HEADER_SIZE;
+        return true;
+    }
+
+    public RecordType getType() {
+        return type;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} of the current record, only comparable within one recording
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return the wall clock time of the current record, in milliseconds since the epoch
+     */
+    public long getEpochMillis() {
+        return epochMillis + (nanos - baseNanos) / 1_000_000;
+    }
+
+    /**
+     * @return the raw JSON of a {@link RecordType#ROUND} or {@link RecordType#GAME_ENDED} record
+     */
+    public String getText() {
+        if (type == RecordType.DECISION) {
+            throw new IllegalStateException("A decision record has no text");
+        }
+        if (bytes.length < payloadLength) {
+            bytes = new byte[Math.max(payloadLength, 2 * bytes.length)];
+        }
+        buffer.position(payloadOffset);
+        buffer.get(bytes, 0, payloadLength);
+        return new String(bytes, 0, payloadLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the round of a {@link RecordType#DECISION} record
+     */
+    public UUID getRoundId() {
+        checkDecision();
+        return new UUID(buffer.getLong(payloadOffset), buffer.getLong(payloadOffset + 8));
+    }
+
+    /**
+     * @return true if the actions of a {@link RecordType#DECISION} record were sent by the deadline watchdog
+     */
+    public boolean isFallback() {
+        checkDecision();
+        return buffer.get(payloadOffset + 16) == RecordFormat.SOURCE_FALLBACK;
+    }
+
+    /**
+     * @return the number of actions of a {@link RecordType#DECISION} record
+     */
+    public int getActionCount() {
+        checkDecision();
+        return buffer.getInt(payloadOffset + 17);
+    }
+
+    /**
+     * @return the action at the given index of a {@link RecordType#DECISION} record
+     */
+    public long getActionId(int index) {
+        if (index < 0 || index >= getActionCount()) {
+            throw new IndexOutOfBoundsException("Action " + index + " of " + getActionCount());
+        }
+        return buffer.getLong(payloadOffset + 21 + 8 * index);
+    }
+
+    /**
+     * @return the actions of a {@link RecordType#DECISION} record
+     */
+    public List<Long> getActionIds() {
+        int count = getActionCount();
+        List<Long> actionIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            actionIds.add(buffer.getLong(payloadOffset + 21 + 8 * i));
+        }
+        return actionIds;
+    }
+
+    private void checkDecision() {
+        if (type != RecordType.DECISION) {
+            throw new IllegalStateException("Not a decision record: " + type);
+        }
+    }
+
+    private void closeSegment() throws IOException {
+        this.buffer = null;
+        if (this.channel != null) {
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.closeSegment();
+        this.segment = this.segments.size();
+    }
+}
@@ -0,0 +1,41 @@
+package be.thebeehive.htf.library.record;
+
+/**
+ * The kind of a record in a round log.
+ */
+public enum RecordType {
+    /**
+     * The raw JSON of a GameRoundServerMessage, timestamped at its arrival.
+     */
+    ROUND((byte) 1),
+    /**
+     * The actions that were sent for a round, timestamped when they were sent.
+     */
+    DECISION((byte) 2),
+    /**
+     * The raw JSON of a GameEndedServerMessage, timestamped at its arrival.
+     */
+    GAME_ENDED((byte) 3);
+
+    private final byte code;
+
+    RecordType(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * @return the type with the given code, or null if there is none
+     */
+    public static RecordType fromCode(byte code) {
+        for (RecordType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
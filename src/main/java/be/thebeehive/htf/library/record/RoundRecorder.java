@@ -0,0 +1,391 @@
+package be.thebeehive.htf.library.record;
+
+import be.thebeehive.htf.library.TaskExecutors;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Appends rounds, the actions sent for them and the end of the game to memory-mapped segment files.
+ * <p>
+ * A record is copied straight into the mapped segment, so appending costs little more than copying its bytes.
+ * The next segment is created, mapped and touched by a background thread while the current one fills up,
+ * and full segments are flushed to disk by that same thread, so the thread that records never waits on the disk.
+ * A record that cannot be written, or that does not fit while the next segment is not mapped yet, is dropped and
+ * counted instead of holding up the round.
+ * <p>
+ * Existing segments in the directory are never overwritten: a new recorder continues after the last segment.
+ * Use {@link RecordReader} to scan the recorded segments.
+ */
+public class RoundRecorder implements Closeable {
+
+    /**
+     * The system property with the directory {@link be.thebeehive.htf.client.Main} records to, if any.
+     */
+    public static final String DIRECTORY_PROPERTY = "htf.record.dir";
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final int PAGE_SIZE = 4096;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ExecutorService mapper;
+
+    private Segment current;
+    private Future<Segment> next;
+    private long nextIndex;
+    private boolean closed;
+
+    private char[] chars = new char[4096];
+    private byte[] bytes = new byte[3 * 4096];
+    private long records;
+    private long dropped;
+
+    public RoundRecorder(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < RecordFormat.SEGMENT_HEADER_SIZE + RecordFormat.RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        Files.createDirectories(directory);
+        List<Path> existing = RecordFormat.segments(directory);
+        this.nextIndex = existing.isEmpty() ? 0 : RecordFormat.segmentIndex(existing.get(existing.size() - 1)) + 1;
+
+        this.mapper = TaskExecutors.newTaskExecutor("htf-recorder", 1);
+        this.current = Segment.create(RecordFormat.segmentPath(directory, nextIndex++), segmentSize);
+        this.prepareNext();
+    }
+
+    /**
+     * Opens a recorder with segments of {@link #DEFAULT_SEGMENT_SIZE} bytes.
+     */
+    public static RoundRecorder open(Path directory) throws IOException {
+        return new RoundRecorder(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the number of records written
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    /**
+     * @return the number of records dropped because they could not be written
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Records a round as it was received.
+     *
+     * @param json         the raw GameRoundServerMessage
+     * @param arrivalNanos the {@link System#nanoTime()} at which the round arrived
+     */
+    public synchronized void recordRound(String json, long arrivalNanos) {
+        this.appendText(RecordType.ROUND, json, arrivalNanos);
+    }
+
+    /**
+     * Records a round as it was received, copying its UTF-8 bytes straight into the segment.
+     *
+     * @param utf8         the raw GameRoundServerMessage, from its position to its limit, which are left unchanged
+     * @param arrivalNanos the {@link System#nanoTime()} at which the round arrived
+     */
+    public synchronized void recordRound(ByteBuffer utf8, long arrivalNanos) {
+        this.appendBytes(RecordType.ROUND, utf8, arrivalNanos);
+    }
+
+    /**
+     * Records the end of the game as it was received.
+     *
+     * @param json         the raw GameEndedServerMessage
+     * @param arrivalNanos the {@link System#nanoTime()} at which the message arrived
+     */
+    public synchronized void recordGameEnded(String json, long arrivalNanos) {
+        this.appendText(RecordType.GAME_ENDED, json, arrivalNanos);
+    }
+
+    /**
+     * Records the end of the game as it was received, copying its UTF-8 bytes straight into the segment.
+     *
+     * @param utf8         the raw GameEndedServerMessage, from its position to its limit, which are left unchanged
+     * @param arrivalNanos the {@link System#nanoTime()} at which the message arrived
+     */
+    public synchronized void recordGameEnded(ByteBuffer utf8, long arrivalNanos) {
+        this.appendBytes(RecordType.GAME_ENDED, utf8, arrivalNanos);
+    }
+
+    /**
+     * Records the actions sent for a round.
+     *
+     * @param msg       the message that was sent
+     * @param fallback  true if the message was sent by the deadline watchdog instead of the listener
+     * @param sentNanos the {@link System#nanoTime()} at which the message was sent
+     */
+    public synchronized void recordDecision(SelectActionsClientMessage msg, boolean fallback, long sentNanos) {
+        List<Long> actionIds = msg.getActionIds();
+        int count = actionIds == null ? 0 : actionIds.size();
+        int length = 8 + 8 + 1 + 4 + 8 * count;
+        if (!this.reserve(length)) {
+            return;
+        }
+
+        MappedByteBuffer buffer = this.current.buffer;
+        int offset = this.current.position + RecordFormat.RECORD_HEADER_SIZE;
+        UUID roundId = msg.getRoundId();
+        buffer.putLong(offset, roundId == null ? 0 : roundId.getMostSignificantBits());
+        buffer.putLong(offset + 8, roundId == null ? 0 : roundId.getLeastSignificantBits());
+        buffer.put(offset + 16, fallback ? RecordFormat.SOURCE_FALLBACK : RecordFormat.SOURCE_LISTENER);
+        buffer.putInt(offset + 17, count);
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(offset + 21 + 8 * i, actionIds.get(i));
+        }
+        this.commit(RecordType.DECISION, sentNanos, length);
+    }
+
+    /**
+     * Records the actions sent for a round, given as primitive action ids.
+     *
+     * @param roundId   the id of the round
+     * @param actionIds the array holding the action ids
+     * @param count     the number of action ids, taken from the start of the array
+     * @param fallback  true if the actions were sent by the deadline watchdog instead of the listener
+     * @param sentNanos the {@link System#nanoTime()} at which the actions were sent
+     */
+    public synchronized void recordDecision(UUID roundId, long[] actionIds, int count, boolean fallback, long sentNanos) {
+        int length = 8 + 8 + 1 + 4 + 8 * count;
+        if (!this.reserve(length)) {
+            return;
+        }
+
+        MappedByteBuffer buffer = this.current.buffer;
+        int offset = this.current.position + RecordFormat.RECORD_HEADER_SIZE;
+        buffer.putLong(offset, roundId == null ? 0 : roundId.getMostSignificantBits());
+        buffer.putLong(offset + 8, roundId == null ? 0 : roundId.getLeastSignificantBits());
+        buffer.put(offset + 16, fallback ? RecordFormat.SOURCE_FALLBACK : RecordFormat.SOURCE_LISTENER);
+        buffer.putInt(offset + 17, count);
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(offset + 21 + 8 * i, actionIds[i]);
+        }
+        this.commit(RecordType.DECISION, sentNanos, length);
+    }
+
+    private void appendText(RecordType type, String text, long nanos) {
+        int length = this.encode(text);
+        if (!this.reserve(length)) {
+            return;
+        }
+
+        MappedByteBuffer buffer = this.current.buffer;
+        buffer.position(this.current.position + RecordFormat.RECORD_HEADER_SIZE);
+        buffer.put(this.bytes, 0, length);
+        this.commit(type, nanos, length);
+    }
+
+    private void appendBytes(RecordType type, ByteBuffer utf8, long nanos) {
+        int length = utf8.remaining();
+        if (!this.reserve(length)) {
+            return;
+        }
+
+        MappedByteBuffer buffer = this.current.buffer;
+        buffer.position(this.current.position + RecordFormat.RECORD_HEADER_SIZE);
+        buffer.put(utf8.duplicate());
+        this.commit(type, nanos, length);
+    }
+
+    /**
+     * Makes sure the current segment has room for a record with the given payload length.
+     */
+    private boolean reserve(int length) {
+        int size = RecordFormat.RECORD_HEADER_SIZE + length;
+        if (this.closed || size > this.segmentSize - RecordFormat.SEGMENT_HEADER_SIZE) {
+            this.dropped++;
+            return false;
+        }
+        if (this.segmentSize - this.current.position >= size) {
+            return true;
+        }
+        if (!this.next.isDone()) {
+            this.dropped++;
+            return false;
+        }
+        try {
+            this.rotate();
+            return true;
+        } catch (IOException ex) {
+            System.err.println("Unable to rotate round log in " + this.directory + "\n" + ex);
+            this.dropped++;
+            return false;
+        }
+    }
+
+    /**
+     * Writes the header of the record of which the payload was just written, the length goes last
+     * so a reader never sees a partially written record.
+     */
+    private void commit(RecordType type, long nanos, int length) {
+        MappedByteBuffer buffer = this.current.buffer;
+        int position = this.current.position;
+        buffer.put(position + RecordFormat.OFFSET_TYPE, type.getCode());
+        buffer.putLong(position + RecordFormat.OFFSET_NANOS, nanos);
+        buffer.putInt(position + RecordFormat.OFFSET_LENGTH, length);
+        this.current.position = position + RecordFormat.RECORD_HEADER_SIZE + length;
+        this.records++;
+    }
+
+    /**
+     * Moves on to the next segment, which must be done.
+     */
+    private void rotate() throws IOException {
+        Segment full = this.current;
+        Segment segment;
+        try {
+            segment = this.next.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the next segment", ex);
+        } catch (ExecutionException ex) {
+            this.prepareNext();
+            throw new IOException("Unable to create the next segment", ex.getCause());
+        }
+        this.current = segment;
+        this.prepareNext();
+        this.mapper.execute(() -> full.close());
+    }
+
+    private void prepareNext() {
+        Path path = RecordFormat.segmentPath(this.directory, this.nextIndex++);
+        int size = this.segmentSize;
+        this.next = this.mapper.submit(() -> Segment.create(path, size));
+    }
+
+    /**
+     * Encodes the text as UTF-8 into the scratch bytes.
+     *
+     * @return the number of bytes
+     */
+    private int encode(String text) {
+        int length = text.length();
+        if (this.chars.length < length) {
+            this.chars = new char[Math.max(length, 2 * this.chars.length)];
+            this.bytes = new byte[3 * this.chars.length];
+        }
+        char[] chars = this.chars;
+        byte[] bytes = this.bytes;
+        text.getChars(0, length, chars, 0);
+
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                bytes[size++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[size++] = (byte) (0xC0 | (c >> 6));
+                bytes[size++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars[i + 1])) {
+                int codePoint = Character.toCodePoint(c, chars[++i]);
+                bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                bytes[size++] = '?';
+            } else {
+                bytes[size++] = (byte) (0xE0 | (c >> 12));
+                bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Flushes the current segment and removes the segment that was prepared but never used.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.current.close();
+        try {
+            Segment unused = this.next.get();
+            unused.close();
+            Files.deleteIfExists(unused.path);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | IOException ex) {
+            // The unused segment is empty, readers skip it
+        }
+        this.mapper.shutdown();
+    }
+
+    private static class Segment {
+
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path path, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException ex) {
+                channel.close();
+                throw ex;
+            }
+
+            // Take the page faults now rather than while recording
+            for (int i = RecordFormat.SEGMENT_HEADER_SIZE; i < size; i += PAGE_SIZE) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.putInt(0, RecordFormat.MAGIC);
+            buffer.putInt(4, RecordFormat.VERSION);
+            buffer.putLong(8, System.currentTimeMillis());
+            buffer.putLong(16, System.nanoTime());
+
+            Segment segment = new Segment(path, channel, buffer);
+            segment.position = RecordFormat.SEGMENT_HEADER_SIZE;
+            return segment;
+        }
+
+        void close() {
+            try {
+                buffer.force();
+                channel.close();
+            } catch (IOException ex) {
+                System.err.println("Unable to close round log segment " + path + "\n" + ex);
+            }
+        }
+    }
+}
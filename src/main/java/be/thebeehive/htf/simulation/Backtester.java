@@ -0,0 +1,420 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.client.ActionKind;
+import be.thebeehive.htf.client.ClientUtils;
+import be.thebeehive.htf.client.EffectModel;
+import be.thebeehive.htf.client.EffectStatistics;
+import be.thebeehive.htf.client.MyClient;
+import be.thebeehive.htf.library.HtfClientListener;
+import be.thebeehive.htf.library.RoundDeadline;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Checkpoint;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Spaceship;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Replays recorded games through listeners to compare strategies without playing live.
+ * <p>
+ * Every recorded round is played again with the effects and actions that were recorded, but with our spaceship
+ * as it would be after the choices of the replayed strategy, resolved with {@link GameRules}. A game ends when the
+ * spaceship dies or when the recorded rounds run out. Games run in parallel on a fork-join pool, every game gets
+ * a new listener from the supplier of its strategy.
+ * <p>
+ * The recorded rounds themselves are summarised by {@link #statistics(List)}, which does not depend on the
+ * strategies.
+ */
+public class Backtester implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+    private final long replyTimeoutMillis;
+
+    public Backtester(int parallelism, long replyTimeoutMillis) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.replyTimeoutMillis = replyTimeoutMillis;
+    }
+
+    /**
+     * Replays every game with every strategy.
+     *
+     * @param strategies the strategies by name, each supplying a new listener per game
+     * @param games      the recorded games
+     * @return a report per strategy, in the order of the strategies
+     * @throws ExecutionException if a listener failed
+     */
+    public Map<String, Report> run(Map<String, Supplier<? extends HtfClientListener>> strategies, List<RecordedGame> games)
+            throws InterruptedException, ExecutionException {
+        List<Callable<GameResult>> tasks = new ArrayList<>();
+        for (Map.Entry<String, Supplier<? extends HtfClientListener>> strategy : strategies.entrySet()) {
+            for (RecordedGame game : games) {
+                tasks.add(() -> replay(strategy.getKey(), strategy.getValue().get(), game));
+            }
+        }
+
+        Map<String, List<GameResult>> resultsByStrategy = new LinkedHashMap<>();
+        for (String strategy : strategies.keySet()) {
+            resultsByStrategy.put(strategy, new ArrayList<>());
+        }
+        for (Future<GameResult> future : pool.invokeAll(tasks)) {
+            GameResult result = future.get();
+            resultsByStrategy.get(result.getStrategy()).add(result);
+        }
+
+        Map<String, Report> reports = new LinkedHashMap<>();
+        for (Map.Entry<String, List<GameResult>> results : resultsByStrategy.entrySet()) {
+            reports.put(results.getKey(), new Report(results.getKey(), results.getValue()));
+        }
+        return reports;
+    }
+
+    /**
+     * Feeds the effects and actions of every recorded round to new statistics. The recorded rounds are what the
+     * server sent, so the statistics are the same whatever strategy is replayed.
+     *
+     * @param games the recorded games
+     * @return the statistics of all rounds of the games
+     */
+    public static EffectStatistics statistics(List<RecordedGame> games) {
+        EffectStatistics statistics = new EffectStatistics();
+        for (RecordedGame game : games) {
+            for (GameRoundServerMessage round : game.getRounds()) {
+                statistics.observe(round);
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Replays a single game.
+     *
+     * @param strategy the name of the strategy, used in the result
+     * @param listener the listener playing the game
+     * @param game     the recorded game
+     * @return the result of the game
+     * @throws Exception if the listener failed
+     */
+    public GameResult replay(String strategy, HtfClientListener listener, RecordedGame game) throws Exception {
+        List<GameRoundServerMessage> rounds = game.getRounds();
+        AtomicReference<SelectActionsClientMessage> reply = new AtomicReference<>();
+        // Lateness is judged by when the reply is sent, not by when the listener returns
+        AtomicLong sentNanos = new AtomicLong();
+        LoopbackHtfClient client = new LoopbackHtfClient(listener, sent -> {
+            sentNanos.set(System.nanoTime());
+            reply.set(sent);
+        });
+
+        Values ship = GameRules.copy(rounds.get(0).getOurSpaceship().getValues());
+        long[] latencies = new long[rounds.size()];
+        int decisions = 0;
+        int missed = 0;
+        long lastRound = 0;
+        boolean alive = ClientUtils.isAlive(ship);
+
+        for (GameRoundServerMessage recorded : rounds) {
+            if (!alive) {
+                break;
+            }
+            GameRoundServerMessage msg = replayMessage(recorded, ship);
+            reply.set(null);
+            RoundDeadline deadline = RoundDeadline.startingNow(
+                    msg.getRoundId(), msg.getRound(), replyTimeoutMillis, TimeUnit.MILLISECONDS);
+
+            long start = System.nanoTime();
+            listener.onGameRoundServerMessage(client, msg, deadline);
+            latencies[decisions++] = System.nanoTime() - start;
+
+            List<String> warnings = new ArrayList<>();
+            List<Action> selected = Collections.emptyList();
+            SelectActionsClientMessage sent = reply.get();
+            if (sent != null && sentNanos.get() - deadline.getDeadlineNanos() < 0) {
+                selected = GameRules.select(recorded.getActions(), sent.getActionIds(), warnings);
+            } else {
+                missed++;
+                warnings.add("No actions received in time for round " + recorded.getRound());
+            }
+            for (String warning : warnings) {
+                WarningServerMessage warningMsg = new WarningServerMessage();
+                warningMsg.setMsg(warning);
+                listener.onWarningServerMessage(client, warningMsg);
+            }
+
+            ship = GameRules.resolve(ship, selected, recorded.getEffects());
+            alive = ClientUtils.isAlive(ship);
+            if (!alive) {
+                break;
+            }
+            lastRound = recorded.getRound();
+
+            Checkpoint checkpoint = recorded.getNextCheckpoint();
+            if (checkpoint != null && recorded.getRound() + 1 == checkpoint.getRound()) {
+                ship = ClientUtils.sumValues(ship, checkpoint.getValues());
+                alive = ClientUtils.isAlive(ship);
+            }
+        }
+
+        if (game.getEnded() != null) {
+            listener.onGameEndedServerMessage(client, game.getEnded());
+        }
+        return new GameResult(strategy, lastRound, alive, ship, Arrays.copyOf(latencies, decisions), missed);
+    }
+
+    /**
+     * Builds the message the strategy would have received, with our spaceship replaced by the replayed one.
+     */
+    private static GameRoundServerMessage replayMessage(GameRoundServerMessage recorded, Values ship) {
+        GameRoundServerMessage msg = new GameRoundServerMessage();
+        msg.setRound(recorded.getRound());
+        msg.setRoundId(recorded.getRoundId());
+        msg.setNextCheckpoint(recorded.getNextCheckpoint());
+        msg.setEffects(new ArrayList<>(recorded.getEffects()));
+        msg.setActions(new ArrayList<>(recorded.getActions()));
+        msg.setCompetingSpaceships(recorded.getCompetingSpaceships() == null
+                ? new ArrayList<>()
+                : new ArrayList<>(recorded.getCompetingSpaceships()));
+
+        Spaceship ours = new Spaceship();
+        ours.setName(recorded.getOurSpaceship().getName());
+        ours.setValues(GameRules.copy(ship));
+        ours.setAlive(true);
+        msg.setOurSpaceship(ours);
+        return msg;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * The outcome of one replayed game.
+     */
+    public static class GameResult {
+
+        private final String strategy;
+        private final long lastRound;
+        private final boolean alive;
+        private final Values finalValues;
+        private final long[] latencyNanos;
+        private final int missedDeadlines;
+
+        public GameResult(String strategy, long lastRound, boolean alive, Values finalValues, long[] latencyNanos, int missedDeadlines) {
+            this.strategy = strategy;
+            this.lastRound = lastRound;
+            this.alive = alive;
+            this.finalValues = finalValues;
+            this.latencyNanos = latencyNanos;
+            this.missedDeadlines = missedDeadlines;
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        /**
+         * @return the last round the spaceship survived
+         */
+        public long getLastRound() {
+            return lastRound;
+        }
+
+        /**
+         * @return true if the spaceship survived every recorded round
+         */
+        public boolean isAlive() {
+            return alive;
+        }
+
+        public Values getFinalValues() {
+            return finalValues;
+        }
+
+        /**
+         * @return the time the listener took for each round
+         */
+        public long[] getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        public int getMissedDeadlines() {
+            return missedDeadlines;
+        }
+    }
+
+    /**
+     * The results of one strategy over all replayed games.
+     */
+    public static class Report {
+
+        private final String strategy;
+        private final List<GameResult> results;
+        private final long[] latencyNanos;
+
+        public Report(String strategy, List<GameResult> results) {
+            this.strategy = strategy;
+            this.results = Collections.unmodifiableList(new ArrayList<>(results));
+
+            int decisions = 0;
+            for (GameResult result : results) {
+                decisions += result.getLatencyNanos().length;
+            }
+            this.latencyNanos = new long[decisions];
+            int offset = 0;
+            for (GameResult result : results) {
+                System.arraycopy(result.getLatencyNanos(), 0, this.latencyNanos, offset, result.getLatencyNanos().length);
+                offset += result.getLatencyNanos().length;
+            }
+            Arrays.sort(this.latencyNanos);
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        public List<GameResult> getResults() {
+            return results;
+        }
+
+        public double getAverageLastRound() {
+            return results.stream().mapToLong(GameResult::getLastRound).average().orElse(0);
+        }
+
+        /**
+         * @return the number of games in which the spaceship survived every recorded round
+         */
+        public long getSurvivedGames() {
+            return results.stream().filter(GameResult::isAlive).count();
+        }
+
+        public long getMissedDeadlines() {
+            return results.stream().mapToLong(GameResult::getMissedDeadlines).sum();
+        }
+
+        /**
+         * @return the average values of the spaceship at the end of the games
+         */
+        public Values getAverageFinalValues() {
+            BigDecimal health = BigDecimal.ZERO;
+            BigDecimal maxHealth = BigDecimal.ZERO;
+            BigDecimal crew = BigDecimal.ZERO;
+            BigDecimal maxCrew = BigDecimal.ZERO;
+            for (GameResult result : results) {
+                health = health.add(result.getFinalValues().getHealth());
+                maxHealth = maxHealth.add(result.getFinalValues().getMaxHealth());
+                crew = crew.add(result.getFinalValues().getCrew());
+                maxCrew = maxCrew.add(result.getFinalValues().getMaxCrew());
+            }
+            BigDecimal games = BigDecimal.valueOf(Math.max(1, results.size()));
+            Values average = new Values();
+            average.setHealth(health.divide(games, 2, RoundingMode.HALF_EVEN));
+            average.setMaxHealth(maxHealth.divide(games, 2, RoundingMode.HALF_EVEN));
+            average.setCrew(crew.divide(games, 2, RoundingMode.HALF_EVEN));
+            average.setMaxCrew(maxCrew.divide(games, 2, RoundingMode.HALF_EVEN));
+            return average;
+        }
+
+        /**
+         * @param percentile a percentile between 0 and 100
+         * @return the decision latency at the given percentile over all rounds, using the nearest rank
+         */
+        public long getLatencyNanos(double percentile) {
+            if (latencyNanos.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * latencyNanos.length);
+            return latencyNanos[Math.max(0, Math.min(latencyNanos.length - 1, rank - 1))];
+        }
+
+        @Override
+        public String toString() {
+            Values average = getAverageFinalValues();
+            return strategy +
+                    " | Games: " + results.size() +
+                    " | Average last round: " + getAverageLastRound() +
+                    " | Survived: " + getSurvivedGames() +
+                    " | Average final health: " + average.getHealth() + "/" + average.getMaxHealth() +
+                    " | Average final crew: " + average.getCrew() + "/" + average.getMaxCrew() +
+                    " | Missed deadlines: " + getMissedDeadlines() +
+                    " | Latency p50/p90/p99: " + TimeUnit.NANOSECONDS.toMicros(getLatencyNanos(50)) +
+                    "/" + TimeUnit.NANOSECONDS.toMicros(getLatencyNanos(90)) +
+                    "/" + TimeUnit.NANOSECONDS.toMicros(getLatencyNanos(99)) + " micros";
+        }
+    }
+
+    /**
+     * Replays the games recorded in a directory with {@link MyClient} and prints the report and the statistics of the recorded rounds.
+     * Arguments: the directory of the recorder, number of threads (default the number of processors).
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: Backtester <record directory> [threads]");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        List<RecordedGame> games = RecordedGame.load(Paths.get(args[0]));
+
+        Map<String, Supplier<? extends HtfClientListener>> strategies = new LinkedHashMap<>();
+        strategies.put("MyClient", MyClient::new);
+
+        long start = System.nanoTime();
+        try (Backtester backtester = new Backtester(threads, new GameSettings().getReplyTimeoutMillis())) {
+            for (Report report : backtester.run(strategies, games).values()) {
+                System.out.println(report);
+            }
+        }
+        double minutes = (System.nanoTime() - start) / 60e9;
+        System.out.println("Games: " + games.size() + " | Threads: " + threads +
+                " | Games per minute: " + Math.round(games.size() * strategies.size() / minutes));
+        printStatistics(statistics(games));
+    }
+
+    /**
+     * Prints the effects per round and the net change of a round per round bucket, and the payoff of every kind
+     * of action that was offered.
+     */
+    private static void printStatistics(EffectStatistics statistics) {
+        System.out.println("Recorded rounds: " + statistics.getRounds());
+        for (int bucket = 0; bucket < EffectStatistics.ROUND_BUCKETS; bucket++) {
+            long round = (long) bucket * EffectStatistics.ROUND_BUCKET_SIZE;
+            if (statistics.getEffectsPerRound(round).getCount() == 0) {
+                continue;
+            }
+            String rounds = bucket == EffectStatistics.ROUND_BUCKETS - 1
+                    ? round + "+"
+                    : round + "-" + (round + EffectStatistics.ROUND_BUCKET_SIZE - 1);
+            System.out.println("Rounds " + rounds +
+                    " | Effects: " + statistics.getEffectsPerRound(round) +
+                    " | Health: " + statistics.getRoundTotal(round, EffectModel.HEALTH) +
+                    " | Crew: " + statistics.getRoundTotal(round, EffectModel.CREW));
+        }
+        for (ActionKind kind : ActionKind.values()) {
+            if (statistics.getPayoff(kind, EffectModel.HEALTH).getCount() == 0) {
+                continue;
+            }
+            System.out.println(kind +
+                    " | Health: " + statistics.getPayoff(kind, EffectModel.HEALTH) +
+                    " | Max health: " + statistics.getPayoff(kind, EffectModel.MAX_HEALTH) +
+                    " | Crew: " + statistics.getPayoff(kind, EffectModel.CREW) +
+                    " | Max crew: " + statistics.getPayoff(kind, EffectModel.MAX_CREW));
+        }
+    }
+}
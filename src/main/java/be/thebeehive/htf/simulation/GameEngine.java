@@ -0,0 +1,279 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.client.ClientUtils;
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage.LeaderboardTeam;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Checkpoint;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Spaceship;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * The state of a single simulated game.
+ * <p>
+ * Every round all spaceships get the same effects and actions. Players submit their actions with
+ * {@link #submit(String, UUID, List, List)}, bots choose theirs when the round is resolved with {@link #advance()}.
+ * The game ends when every spaceship is dead or the maximum number of rounds is reached.
+ * An engine is not thread-safe.
+ */
+public class GameEngine {
+
+    private final GameSettings settings;
+    private final Random random;
+    private final RoundGenerator generator;
+    private final Map<String, Player> players = new LinkedHashMap<>();
+
+    private long round;
+    private UUID roundId;
+    private Checkpoint nextCheckpoint;
+    private List<Effect> effects;
+    private List<Action> actions;
+    private boolean over;
+
+    public GameEngine(GameSettings settings, long seed, List<String> playerNames) {
+        this.settings = settings;
+        this.random = new Random(seed);
+        this.generator = new RoundGenerator(random, settings.getCheckpointInterval());
+        for (String name : playerNames) {
+            players.put(name, new Player(name, false));
+        }
+        for (int i = 1; i <= settings.getBots(); i++) {
+            players.put("bot-" + i, new Player("bot-" + i, true));
+        }
+        this.nextCheckpoint = generator.checkpointAfter(0);
+        startRound(1);
+    }
+
+    /**
+     * @return true if the game has ended
+     */
+    public boolean isOver() {
+        return over;
+    }
+
+    /**
+     * @return the current round number
+     */
+    public long getRound() {
+        return round;
+    }
+
+    /**
+     * @param name the name of a player
+     * @return true if the spaceship of the player is still alive
+     */
+    public boolean isAlive(String name) {
+        Player player = players.get(name);
+        return player != null && player.alive;
+    }
+
+    /**
+     * @return the unique identifier of the current round
+     */
+    public UUID getRoundId() {
+        return roundId;
+    }
+
+    /**
+     * Builds the message of the current round as seen by the given player.
+     *
+     * @param name the name of the player
+     * @return a new message, the lists of which the player is free to modify
+     */
+    public GameRoundServerMessage roundMessageFor(String name) {
+        GameRoundServerMessage msg = new GameRoundServerMessage();
+        msg.setRound(round);
+        msg.setRoundId(roundId);
+        msg.setNextCheckpoint(nextCheckpoint);
+        msg.setEffects(new ArrayList<>(effects));
+        msg.setActions(new ArrayList<>(actions));
+        List<Spaceship> competing = new ArrayList<>();
+        for (Player player : players.values()) {
+            if (player.name.equals(name)) {
+                msg.setOurSpaceship(player.toSpaceship());
+            } else {
+                competing.add(player.toSpaceship());
+            }
+        }
+        msg.setCompetingSpaceships(competing);
+        return msg;
+    }
+
+    /**
+     * Submits the actions of a player for the current round.
+     *
+     * @param name      the name of the player
+     * @param roundId   the round the actions are meant for
+     * @param actionIds the selected actions
+     * @param warnings  receives a message for everything that was ignored
+     * @return true if the actions were accepted for the current round
+     */
+    public boolean submit(String name, UUID roundId, List<Long> actionIds, List<String> warnings) {
+        Player player = players.get(name);
+        if (player == null || !player.alive) {
+            warnings.add("Spaceship " + name + " is not playing");
+            return false;
+        }
+        if (!this.roundId.equals(roundId)) {
+            warnings.add("Actions received for round " + roundId + " but the current round is " + this.roundId);
+            return false;
+        }
+        if (player.selected != null) {
+            warnings.add("Actions for round " + round + " were already received");
+            return false;
+        }
+        player.selected = GameRules.select(actions, actionIds, warnings);
+        return true;
+    }
+
+    /**
+     * Resolves the current round for every spaceship and starts the next one.
+     */
+    public void advance() {
+        if (over) {
+            return;
+        }
+        for (Player player : players.values()) {
+            if (!player.alive) {
+                continue;
+            }
+            List<Action> selected = player.selected;
+            if (player.bot) {
+                selected = botActions(player.values);
+            } else if (selected == null) {
+                selected = Collections.emptyList();
+            }
+            player.values = GameRules.resolve(player.values, selected, effects);
+            player.selected = null;
+            if (ClientUtils.isDead(player.values)) {
+                player.alive = false;
+            } else {
+                player.lastRound = round;
+            }
+        }
+
+        long next = round + 1;
+        if (next == nextCheckpoint.getRound()) {
+            for (Player player : players.values()) {
+                if (player.alive) {
+                    player.values = ClientUtils.sumValues(player.values, nextCheckpoint.getValues());
+                    player.alive = ClientUtils.isAlive(player.values);
+                }
+            }
+            nextCheckpoint = generator.checkpointAfter(next);
+        }
+
+        boolean anyAlive = false;
+        for (Player player : players.values()) {
+            anyAlive |= player.alive;
+        }
+        if (!anyAlive || round >= settings.getMaxRounds()) {
+            over = true;
+            return;
+        }
+        startRound(next);
+    }
+
+    /**
+     * Builds the leaderboard of the game, ordered by points.
+     * Points are awarded for every survived round and for the remaining health and crew.
+     *
+     * @return the message that ends the game
+     */
+    public GameEndedServerMessage gameEndedMessage() {
+        List<LeaderboardTeam> leaderboard = new ArrayList<>();
+        for (Player player : players.values()) {
+            LeaderboardTeam team = new LeaderboardTeam();
+            team.setName(player.name);
+            team.setLastRound(player.lastRound);
+            team.setPoints(BigDecimal.valueOf(player.lastRound * 10)
+                    .add(player.values.getHealth())
+                    .add(player.values.getCrew()));
+            leaderboard.add(team);
+        }
+        leaderboard.sort(Comparator.comparing(LeaderboardTeam::getPoints).reversed());
+
+        GameEndedServerMessage msg = new GameEndedServerMessage();
+        msg.setRound(round);
+        msg.setLeaderboard(leaderboard);
+        return msg;
+    }
+
+    private void startRound(long number) {
+        round = number;
+        roundId = new UUID(random.nextLong(), random.nextLong());
+        effects = generator.effects(round);
+        actions = generator.actions(round, effects);
+    }
+
+    /**
+     * Bots remove an effect when that costs less than the damage it does, and heal when health is low.
+     */
+    private List<Action> botActions(Values ship) {
+        Map<Long, Effect> effectsById = new LinkedHashMap<>();
+        for (Effect effect : effects) {
+            effectsById.put(effect.getId(), effect);
+        }
+        boolean lowHealth = ship.getHealth().compareTo(ship.getMaxHealth().divide(BigDecimal.valueOf(2))) < 0;
+        List<Action> selected = new ArrayList<>();
+        for (Action action : actions) {
+            Effect effect = effectsById.get(action.getEffectId());
+            if (effect != null) {
+                if (magnitude(action.getValues()) < magnitude(effect.getValues())) {
+                    selected.add(action);
+                }
+            } else if (lowHealth && action.getValues().getHealth().signum() > 0) {
+                selected.add(action);
+            }
+        }
+        return selected;
+    }
+
+    private static double magnitude(Values values) {
+        return Math.abs(values.getHealth().doubleValue())
+                + Math.abs(values.getMaxHealth().doubleValue())
+                + Math.abs(values.getCrew().doubleValue())
+                + Math.abs(values.getMaxCrew().doubleValue());
+    }
+
+    private class Player {
+
+        private final String name;
+        private final boolean bot;
+        private Values values;
+        private boolean alive = true;
+        private long lastRound;
+        private List<Action> selected;
+
+        Player(String name, boolean bot) {
+            this.name = name;
+            this.bot = bot;
+            this.values = RoundGenerator.values(
+                    settings.getStartHealth(),
+                    settings.getStartHealth(),
+                    settings.getStartCrew(),
+                    settings.getStartCrew()
+            );
+        }
+
+        Spaceship toSpaceship() {
+            Spaceship spaceship = new Spaceship();
+            spaceship.setName(name);
+            spaceship.setValues(GameRules.copy(values));
+            spaceship.setAlive(alive);
+            return spaceship;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.client.ClientUtils;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The rules used to resolve a round, shared by everything that simulates games.
+ * <p>
+ * The selected actions are applied first, in the order they were selected, followed by every effect
+ * that was not removed by a selected action in order of their step. All values are added with
+ * {@link ClientUtils#sumValues(Values, Values)}. A spaceship that is dead at any point stays dead.
+ */
+public final class GameRules {
+
+    private GameRules() {
+
+    }
+
+    /**
+     * Looks up the selected actions, ignoring unknown and duplicate ids.
+     *
+     * @param available the actions of the round
+     * @param actionIds the ids selected by the player
+     * @param warnings  receives a message for every ignored id
+     * @return the selected actions in order of selection
+     */
+    public static List<Action> select(List<Action> available, List<Long> actionIds, List<String> warnings) {
+        List<Action> selected = new ArrayList<>();
+        if (actionIds == null) {
+            return selected;
+        }
+        Map<Long, Action> byId = new HashMap<>();
+        for (Action action : available) {
+            byId.put(action.getId(), action);
+        }
+        Set<Long> seen = new HashSet<>();
+        for (Long id : actionIds) {
+            Action action = id == null ? null : byId.get(id);
+            if (action == null) {
+                warnings.add("Unknown action " + id);
+            } else if (!seen.add(id)) {
+                warnings.add("Duplicate action " + id);
+            } else {
+                selected.add(action);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Resolves a round for one spaceship.
+     *
+     * @param ship     the values of the spaceship at the start of the round
+     * @param selected the selected actions
+     * @param effects  the effects of the round
+     * @return the values at the end of the round
+     */
+    public static Values resolve(Values ship, List<Action> selected, List<Effect> effects) {
+        Set<Long> removed = new HashSet<>();
+        Values values = ship;
+        for (Action action : selected) {
+            if (action.getEffectId() != -1) {
+                removed.add(action.getEffectId());
+            }
+            values = ClientUtils.sumValues(values, action.getValues());
+            if (ClientUtils.isDead(values)) {
+                return values;
+            }
+        }
+        List<Effect> ordered = new ArrayList<>(effects);
+        ordered.sort(Comparator.comparingInt(Effect::getStep));
+        for (Effect effect : ordered) {
+            if (!removed.contains(effect.getId())) {
+                values = ClientUtils.sumValues(values, effect.getValues());
+                if (ClientUtils.isDead(values)) {
+                    return values;
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Creates a copy of the given values, so the state of a game cannot be changed by a player.
+     */
+    public static Values copy(Values values) {
+        Values copy = new Values();
+        copy.setHealth(values.getHealth());
+        copy.setMaxHealth(values.getMaxHealth());
+        copy.setCrew(values.getCrew());
+        copy.setMaxCrew(values.getMaxCrew());
+        return copy;
+    }
+}
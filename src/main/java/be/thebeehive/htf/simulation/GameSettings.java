@@ -0,0 +1,84 @@
+package be.thebeehive.htf.simulation;
+
+/**
+ * The settings of a simulated game.
+ */
+public class GameSettings {
+
+    private long maxRounds = 100;
+    private int bots = 4;
+    private long checkpointInterval = 10;
+    private long startHealth = 100;
+    private long startCrew = 100;
+    private long replyTimeoutMillis = 1000;
+
+    public GameSettings() {
+
+    }
+
+    /**
+     * @return the round after which the game ends, even when spaceships are still alive
+     */
+    public long getMaxRounds() {
+        return maxRounds;
+    }
+
+    public void setMaxRounds(long maxRounds) {
+        this.maxRounds = maxRounds;
+    }
+
+    /**
+     * @return the number of competing spaceships controlled by the simulation
+     */
+    public int getBots() {
+        return bots;
+    }
+
+    public void setBots(int bots) {
+        this.bots = bots;
+    }
+
+    /**
+     * @return the number of rounds between two checkpoints
+     */
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public void setCheckpointInterval(long checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * @return the health and maximum health every spaceship starts with
+     */
+    public long getStartHealth() {
+        return startHealth;
+    }
+
+    public void setStartHealth(long startHealth) {
+        this.startHealth = startHealth;
+    }
+
+    /**
+     * @return the crew and maximum crew every spaceship starts with
+     */
+    public long getStartCrew() {
+        return startCrew;
+    }
+
+    public void setStartCrew(long startCrew) {
+        this.startCrew = startCrew;
+    }
+
+    /**
+     * @return the time a player has to reply to a round
+     */
+    public long getReplyTimeoutMillis() {
+        return replyTimeoutMillis;
+    }
+
+    public void setReplyTimeoutMillis(long replyTimeoutMillis) {
+        this.replyTimeoutMillis = replyTimeoutMillis;
+    }
+}
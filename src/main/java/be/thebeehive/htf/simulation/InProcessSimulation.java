@@ -0,0 +1,130 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.client.MyClient;
+import be.thebeehive.htf.library.HtfClientListener;
+import be.thebeehive.htf.library.RoundDeadline;
+import be.thebeehive.htf.library.leaderboard.LeaderboardStore;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Plays simulated games by calling a listener directly, without any socket or serialization in between.
+ * Replies that arrive after the deadline are ignored, just like the server would.
+ */
+public class InProcessSimulation {
+
+    public static final String PLAYER_NAME = "player";
+
+    private final GameSettings settings;
+
+    public InProcessSimulation(GameSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Plays a single game.
+     *
+     * @param listener the listener playing the game
+     * @param seed     the seed of the game, the same seed always generates the same game
+     * @return the message that ended the game
+     * @throws Exception if the listener failed
+     */
+    public GameEndedServerMessage play(HtfClientListener listener, long seed) throws Exception {
+        GameEngine engine = new GameEngine(settings, seed, Collections.singletonList(PLAYER_NAME));
+        AtomicReference<SelectActionsClientMessage> reply = new AtomicReference<>();
+        LoopbackHtfClient client = new LoopbackHtfClient(listener, reply::set);
+
+        while (!engine.isOver()) {
+            GameRoundServerMessage msg = engine.roundMessageFor(PLAYER_NAME);
+            reply.set(null);
+            RoundDeadline deadline = RoundDeadline.startingNow(
+                    msg.getRoundId(), msg.getRound(), settings.getReplyTimeoutMillis(), TimeUnit.MILLISECONDS);
+            if (msg.getOurSpaceship().isAlive()) {
+                listener.onGameRoundServerMessage(client, msg, deadline);
+            }
+
+            List<String> warnings = new ArrayList<>();
+            SelectActionsClientMessage selected = reply.get();
+            if (selected != null && !deadline.isExpired()) {
+                engine.submit(PLAYER_NAME, selected.getRoundId(), selected.getActionIds(), warnings);
+            } else if (msg.getOurSpaceship().isAlive()) {
+                warnings.add("No actions received in time for round " + msg.getRound());
+            }
+            for (String warning : warnings) {
+                WarningServerMessage warningMsg = new WarningServerMessage();
+                warningMsg.setMsg(warning);
+                listener.onWarningServerMessage(client, warningMsg);
+            }
+            engine.advance();
+        }
+
+        GameEndedServerMessage ended = engine.gameEndedMessage();
+        listener.onGameEndedServerMessage(client, ended);
+        return ended;
+    }
+
+    /**
+     * Plays many games with {@link MyClient} in parallel and reports the throughput.
+     * Arguments: number of games (default 1000), number of threads (default the number of processors).
+     * Set the {@value LeaderboardStore#FILE_PROPERTY} system property to add the games to that leaderboard store,
+     * under the strategy version in the {@value LeaderboardStore#STRATEGY_PROPERTY} system property.
+     */
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        InProcessSimulation simulation = new InProcessSimulation(new GameSettings());
+        String leaderboardFile = System.getProperty(LeaderboardStore.FILE_PROPERTY);
+        String strategy = System.getProperty(LeaderboardStore.STRATEGY_PROPERTY, LeaderboardStore.DEFAULT_STRATEGY);
+        LeaderboardStore leaderboard = leaderboardFile == null ? null : LeaderboardStore.open(Paths.get(leaderboardFile));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<GameEndedServerMessage>> results = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            long seed = i;
+            results.add(executor.submit(() -> simulation.play(new MyClient(), seed)));
+        }
+
+        long totalLastRound = 0;
+        int wins = 0;
+        for (Future<GameEndedServerMessage> result : results) {
+            GameEndedServerMessage ended = result.get();
+            if (leaderboard != null) {
+                leaderboard.append(ended, PLAYER_NAME, strategy);
+            }
+            for (GameEndedServerMessage.LeaderboardTeam team : ended.getLeaderboard()) {
+                if (PLAYER_NAME.equals(team.getName())) {
+                    totalLastRound += team.getLastRound();
+                }
+            }
+            if (PLAYER_NAME.equals(ended.getLeaderboard().get(0).getName())) {
+                wins++;
+            }
+        }
+        executor.shutdown();
+
+        double minutes = (System.nanoTime() - start) / 60e9;
+        System.out.println("Games: " + games + " | Threads: " + threads +
+                " | Games per minute: " + Math.round(games / minutes) +
+                " | Average last round: " + (double) totalLastRound / games +
+                " | Wins: " + wins);
+        if (leaderboard != null) {
+            for (String version : leaderboard.getStrategies()) {
+                System.out.println("Strategy " + version + ": " + leaderboard.getStrategyStats(version));
+            }
+            leaderboard.close();
+        }
+    }
+}
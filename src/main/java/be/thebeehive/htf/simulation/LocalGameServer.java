@@ -0,0 +1,193 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.library.protocol.client.ClientMessage;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.server.ServerMessage;
+import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for the game server that speaks the same protocol as {@code wss://htf.b9s.dev/ws}.
+ * <p>
+ * Every connection plays its own game against the bots of the {@link GameSettings}. The next round
+ * starts as soon as the player replies, or when the reply timeout passes. Clients that offer permessage-deflate
+ * get their messages compressed.
+ */
+public class LocalGameServer extends WebSocketServer {
+
+    public static final int DEFAULT_PORT = 8025;
+
+    private static final String API_KEY_HEADER = "apiKey";
+
+    private final GameSettings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectWriter serverMessageWriter = objectMapper.writerFor(ServerMessage.class);
+    private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "local-game-server-timeouts");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong seeds = new AtomicLong();
+
+    public LocalGameServer(int port, GameSettings settings) {
+        super(new InetSocketAddress(port), Collections.<Draft>singletonList(new Draft_6455(new PerMessageDeflateExtension())));
+        this.settings = settings;
+    }
+
+    @Override
+    public void onStart() {
+        System.out.println("Local game server started on port " + getPort());
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        String name = handshake.hasFieldValue(API_KEY_HEADER) ? handshake.getFieldValue(API_KEY_HEADER) : "player";
+        GameSession session = new GameSession(conn, name, new GameEngine(settings, seeds.getAndIncrement(), Collections.singletonList(name)));
+        conn.setAttachment(session);
+        session.sendRound();
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        GameSession session = conn.getAttachment();
+        if (session != null) {
+            session.onClientMessage(message);
+        }
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        GameSession session = conn.getAttachment();
+        if (session != null) {
+            session.stop();
+        }
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        System.err.println("Exception occurred ...\n" + ex);
+    }
+
+    /**
+     * Starts a local game server.
+     * Arguments: port (default {@value #DEFAULT_PORT}).
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        LocalGameServer server = new LocalGameServer(port, new GameSettings());
+        server.setReuseAddr(true);
+        server.start();
+    }
+
+    /**
+     * A game played over a single connection.
+     */
+    private class GameSession {
+
+        private final WebSocket conn;
+        private final String name;
+        private final GameEngine engine;
+        private ScheduledFuture<?> timeout;
+        private boolean stopped;
+
+        GameSession(WebSocket conn, String name, GameEngine engine) {
+            this.conn = conn;
+            this.name = name;
+            this.engine = engine;
+        }
+
+        synchronized void sendRound() {
+            if (stopped) {
+                return;
+            }
+            long round = engine.getRound();
+            timeout = timeouts.schedule(() -> onTimeout(round), settings.getReplyTimeoutMillis(), TimeUnit.MILLISECONDS);
+            send(engine.roundMessageFor(name));
+        }
+
+        synchronized void onClientMessage(String message) {
+            List<String> warnings = new ArrayList<>();
+            boolean accepted = false;
+            try {
+                ClientMessage msg = objectMapper.readValue(message, ClientMessage.class);
+                if (msg instanceof SelectActionsClientMessage) {
+                    SelectActionsClientMessage select = (SelectActionsClientMessage) msg;
+                    accepted = engine.submit(name, select.getRoundId(), select.getActionIds(), warnings);
+                }
+            } catch (JsonProcessingException ex) {
+                warnings.add("Invalid message: " + ex.getOriginalMessage());
+            }
+            sendWarnings(warnings);
+            if (accepted) {
+                timeout.cancel(false);
+                nextRound();
+            }
+        }
+
+        synchronized void stop() {
+            stopped = true;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+
+        private synchronized void onTimeout(long round) {
+            if (stopped || engine.getRound() != round) {
+                return;
+            }
+            sendWarnings(Collections.singletonList("No actions received in time for round " + round));
+            nextRound();
+        }
+
+        private void nextRound() {
+            engine.advance();
+            while (!engine.isOver() && !engine.isAlive(name)) {
+                engine.advance();
+            }
+            if (engine.isOver()) {
+                send(engine.gameEndedMessage());
+                stop();
+                conn.close();
+            } else {
+                sendRound();
+            }
+        }
+
+        private void sendWarnings(List<String> warnings) {
+            for (String warning : warnings) {
+                WarningServerMessage msg = new WarningServerMessage();
+                msg.setMsg(warning);
+                send(msg);
+            }
+        }
+
+        private void send(ServerMessage msg) {
+            if (!conn.isOpen()) {
+                return;
+            }
+            try {
+                conn.send(serverMessageWriter.writeValueAsString(msg));
+            } catch (JsonProcessingException ex) {
+                onError(conn, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.library.EnvironmentType;
+import be.thebeehive.htf.library.HtfClient;
+import be.thebeehive.htf.library.HtfClientListener;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * A {@link HtfClient} that never connects and hands every sent message to a consumer instead,
+ * so listeners can be driven without a network connection.
+ */
+public class LoopbackHtfClient extends HtfClient {
+
+    private static final String LOOPBACK_URI = "ws://localhost";
+
+    private final Consumer<SelectActionsClientMessage> sink;
+
+    public LoopbackHtfClient(HtfClientListener listener, Consumer<SelectActionsClientMessage> sink) throws URISyntaxException {
+        super(LOOPBACK_URI, "loopback", EnvironmentType.SIMULATION, listener);
+        this.sink = sink;
+    }
+
+    @Override
+    public void send(SelectActionsClientMessage msg) {
+        this.sink.accept(msg);
+    }
+
+    @Override
+    public void send(UUID roundId, long[] actionIds, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(actionIds[i]);
+        }
+        this.sink.accept(new SelectActionsClientMessage(roundId, ids));
+    }
+}
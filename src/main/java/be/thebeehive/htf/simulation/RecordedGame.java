@@ -0,0 +1,81 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.ServerMessage;
+import be.thebeehive.htf.library.protocol.server.ServerMessageDecoder;
+import be.thebeehive.htf.library.record.RecordReader;
+import be.thebeehive.htf.library.record.RecordType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The rounds of one game as they were recorded by a {@link be.thebeehive.htf.library.record.RoundRecorder}.
+ * The messages are shared by everything replaying the game and must not be modified.
+ */
+public class RecordedGame {
+
+    private final List<GameRoundServerMessage> rounds;
+    private final GameEndedServerMessage ended;
+
+    public RecordedGame(List<GameRoundServerMessage> rounds, GameEndedServerMessage ended) {
+        this.rounds = Collections.unmodifiableList(new ArrayList<>(rounds));
+        this.ended = ended;
+    }
+
+    /**
+     * @return the rounds in the order they were played
+     */
+    public List<GameRoundServerMessage> getRounds() {
+        return rounds;
+    }
+
+    /**
+     * @return the end of the game, or null if the recording stopped before the game ended
+     */
+    public GameEndedServerMessage getEnded() {
+        return ended;
+    }
+
+    /**
+     * Loads every game recorded in a directory. A game ends at its GameEndedServerMessage,
+     * or when the round number goes back because the recording continued with a new game.
+     *
+     * @param directory the directory of the recorder
+     * @return the games with at least one round, oldest first
+     */
+    public static List<RecordedGame> load(Path directory) throws IOException {
+        ServerMessageDecoder decoder = new ServerMessageDecoder(new ObjectMapper(), false);
+        List<RecordedGame> games = new ArrayList<>();
+        List<GameRoundServerMessage> rounds = new ArrayList<>();
+
+        try (RecordReader reader = RecordReader.open(directory)) {
+            while (reader.next()) {
+                if (reader.getType() == RecordType.DECISION) {
+                    continue;
+                }
+                ServerMessage msg = decoder.decode(reader.getText());
+                if (msg instanceof GameRoundServerMessage) {
+                    GameRoundServerMessage round = (GameRoundServerMessage) msg;
+                    if (!rounds.isEmpty() && round.getRound() <= rounds.get(rounds.size() - 1).getRound()) {
+                        games.add(new RecordedGame(rounds, null));
+                        rounds.clear();
+                    }
+                    rounds.add(round);
+                } else if (msg instanceof GameEndedServerMessage && !rounds.isEmpty()) {
+                    games.add(new RecordedGame(rounds, (GameEndedServerMessage) msg));
+                    rounds.clear();
+                }
+            }
+        }
+        if (!rounds.isEmpty()) {
+            games.add(new RecordedGame(rounds, null));
+        }
+        return games;
+    }
+}
@@ -0,0 +1,150 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Checkpoint;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the effects, actions and checkpoints of a simulated game.
+ * <p>
+ * Effects mostly damage health or crew and grow stronger as the game goes on. Most effects come with an
+ * action that removes them at a smaller cost, and every round offers a few standalone actions that trade
+ * one value for another.
+ */
+public class RoundGenerator {
+
+    private final Random random;
+    private final long checkpointInterval;
+    private long nextId = 1;
+
+    public RoundGenerator(Random random, long checkpointInterval) {
+        this.random = random;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Generates the effects of a round.
+     *
+     * @param round the round number
+     * @return the effects
+     */
+    public List<Effect> effects(long round) {
+        double intensity = intensity(round);
+        int count = 2 + random.nextInt(4);
+        List<Effect> effects = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Effect effect = new Effect();
+            effect.setId(nextId++);
+            effect.setStep(1 + random.nextInt(5));
+            int kind = random.nextInt(10);
+            if (kind < 6) {
+                effect.setValues(values(-scaled(5, 15, intensity), 0, 0, 0));
+            } else if (kind < 9) {
+                effect.setValues(values(0, 0, -scaled(3, 10, intensity), 0));
+            } else {
+                effect.setValues(values(-scaled(2, 6, intensity), -scaled(2, 6, 1), -scaled(1, 4, intensity), 0));
+            }
+            effects.add(effect);
+        }
+        return effects;
+    }
+
+    /**
+     * Generates the actions of a round: an optional action per effect that removes it, and a few standalone actions.
+     *
+     * @param round   the round number
+     * @param effects the effects of the round
+     * @return the actions
+     */
+    public List<Action> actions(long round, List<Effect> effects) {
+        List<Action> actions = new ArrayList<>();
+        for (Effect effect : effects) {
+            if (random.nextInt(10) < 8) {
+                actions.add(action(effect.getId(), removalCost(effect.getValues())));
+            }
+        }
+        int standalone = 2 + random.nextInt(4);
+        double intensity = intensity(round);
+        for (int i = 0; i < standalone; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    actions.add(action(-1, values(scaled(10, 30, intensity), 0, -scaled(2, 8, 1), 0)));
+                    break;
+                case 1:
+                    actions.add(action(-1, values(-scaled(5, 15, 1), 0, scaled(5, 20, intensity), 0)));
+                    break;
+                case 2:
+                    actions.add(action(-1, values(-scaled(5, 15, 1), scaled(5, 15, 1), 0, 0)));
+                    break;
+                default:
+                    actions.add(action(-1, values(0, 0, -scaled(3, 8, 1), scaled(3, 10, 1))));
+                    break;
+            }
+        }
+        Collections.shuffle(actions, random);
+        return actions;
+    }
+
+    /**
+     * Generates the checkpoint that follows the given round.
+     *
+     * @param round the current round number
+     * @return the next checkpoint
+     */
+    public Checkpoint checkpointAfter(long round) {
+        long index = round / checkpointInterval + 1;
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setRound(index * checkpointInterval);
+        checkpoint.setValues(values(-15 * index, 0, -8 * index, 0));
+        return checkpoint;
+    }
+
+    private Values removalCost(Values damage) {
+        long magnitude = -(damage.getHealth().longValue() + damage.getCrew().longValue());
+        long cost = Math.max(1, Math.round(magnitude * (0.2 + random.nextDouble() * 0.5)));
+        switch (random.nextInt(5)) {
+            case 0:
+                return values(0, 0, 0, 0);
+            case 1:
+                return values(0, 0, -cost, 0);
+            case 2:
+                return values(-cost, 0, 0, 0);
+            case 3:
+                return values(0, 0, 0, -Math.max(1, cost / 2));
+            default:
+                return values(0, -Math.max(1, cost / 2), 0, 0);
+        }
+    }
+
+    private Action action(long effectId, Values values) {
+        Action action = new Action();
+        action.setId(nextId++);
+        action.setEffectId(effectId);
+        action.setValues(values);
+        return action;
+    }
+
+    private long scaled(int min, int max, double intensity) {
+        return Math.round((min + random.nextInt(max - min + 1)) * intensity);
+    }
+
+    private static double intensity(long round) {
+        return 1 + round / 25.0;
+    }
+
+    static Values values(long health, long maxHealth, long crew, long maxCrew) {
+        Values values = new Values();
+        values.setHealth(BigDecimal.valueOf(health));
+        values.setMaxHealth(BigDecimal.valueOf(maxHealth));
+        values.setCrew(BigDecimal.valueOf(crew));
+        values.setMaxCrew(BigDecimal.valueOf(maxCrew));
+        return values;
+    }
+}
@@ -0,0 +1,233 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.library.ClientMetrics;
+import be.thebeehive.htf.library.EnvironmentType;
+import be.thebeehive.htf.library.HtfClient;
+import be.thebeehive.htf.library.HtfClientListener;
+import be.thebeehive.htf.library.LatencySnapshot;
+import be.thebeehive.htf.library.TaskExecutors;
+import be.thebeehive.htf.library.protocol.server.ServerMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.java_websocket.framing.Framedata;
+
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs synthetic rounds through the same path as live rounds, so the JIT has compiled it before the first live
+ * round arrives: every round is serialized to UTF-8 JSON, decoded from the bytes by a {@link HtfClient}, decided by
+ * a listener and encoded again, only the frame is never sent.
+ * <p>
+ * The rounds come from {@link GameEngine}s that nobody replies to, a new game starts when the spaceship is dead.
+ * Rounds get a short window, so about a thousand of them fit in a few seconds; the listener should shorten its
+ * search to the deadline it is given. Run it while the WebSocket handshake of the live client is in progress and
+ * stop it when the first live round arrives: the round in flight is then interrupted, so the listener should stop
+ * searching when its thread is interrupted, and run its strategies on threads of its own.
+ */
+public class WarmUp {
+
+    /**
+     * Set to false to connect without warming up.
+     */
+    public static final String ENABLED_PROPERTY = "htf.warmup";
+
+    public static final int DEFAULT_ROUNDS = 1000;
+    public static final long DEFAULT_MAX_MILLIS = 5000;
+    public static final long DEFAULT_WINDOW_MILLIS = 30;
+    public static final long DEFAULT_MARGIN_MILLIS = 5;
+
+    private static final String PLAYER_NAME = "warm-up";
+    private static final long STOP_POLL_MILLIS = 1;
+
+    private final GameSettings settings = new GameSettings();
+    private final ObjectWriter serverMessageWriter = new ObjectMapper().writerFor(ServerMessage.class);
+    private int rounds = DEFAULT_ROUNDS;
+    private long maxNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_MILLIS);
+    private long windowMillis = DEFAULT_WINDOW_MILLIS;
+    private long marginMillis = DEFAULT_MARGIN_MILLIS;
+
+    /**
+     * @return true unless the {@value #ENABLED_PROPERTY} system property is false
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+    }
+
+    /**
+     * Sets the largest number of rounds to run.
+     */
+    public void setRounds(int rounds) {
+        this.rounds = rounds;
+    }
+
+    /**
+     * Sets how long the warm-up may take, it stops after the round that exceeds it.
+     */
+    public void setMaxDuration(long duration, TimeUnit unit) {
+        this.maxNanos = unit.toNanos(duration);
+    }
+
+    /**
+     * Sets the reply window and safety margin of the synthetic rounds.
+     */
+    public void setRoundWindow(long windowMillis, long marginMillis) {
+        this.windowMillis = windowMillis;
+        this.marginMillis = marginMillis;
+    }
+
+    /**
+     * Runs synthetic rounds on a thread of the warm-up and waits until they are done or stopped.
+     *
+     * @param listener the listener to warm up, it should not share state or threads with the live listener
+     * @param stop     checked every millisecond, the round in flight is interrupted as soon as it returns true
+     * @return what was run and how long it took
+     */
+    public Result run(HtfClientListener listener, BooleanSupplier stop) throws URISyntaxException, InterruptedException {
+        WarmUpHtfClient client = new WarmUpHtfClient(listener);
+        client.setRoundWindow(windowMillis, TimeUnit.MILLISECONDS);
+        client.setDeadlineMargin(marginMillis, TimeUnit.MILLISECONDS);
+
+        long startNanos = System.nanoTime();
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService runner = TaskExecutors.newTaskExecutor("htf-warm-up", 1);
+        Future<?> rounds = runner.submit(() -> runRounds(client, startNanos, count));
+        boolean stopped = false;
+        try {
+            while (!rounds.isDone()) {
+                if (stop.getAsBoolean()) {
+                    stopped = true;
+                    rounds.cancel(true);
+                    break;
+                }
+                try {
+                    rounds.get(STOP_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException ex) {
+                    // Not done, check stop again
+                } catch (ExecutionException ex) {
+                    System.err.println("Warm-up failed\n" + ex.getCause());
+                }
+            }
+        } finally {
+            runner.shutdownNow();
+            runner.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        return new Result(count.get(), System.nanoTime() - startNanos, stopped, client.getMetrics());
+    }
+
+    private void runRounds(WarmUpHtfClient client, long startNanos, AtomicInteger count) {
+        long seed = 0;
+        GameEngine engine = null;
+        while (count.get() < rounds && System.nanoTime() - startNanos < maxNanos && !Thread.currentThread().isInterrupted()) {
+            if (engine == null || engine.isOver() || !engine.isAlive(PLAYER_NAME)) {
+                engine = new GameEngine(settings, seed++, Collections.singletonList(PLAYER_NAME));
+            }
+            try {
+                client.onMessage(ByteBuffer.wrap(serverMessageWriter.writeValueAsBytes(engine.roundMessageFor(PLAYER_NAME))));
+            } catch (JsonProcessingException ex) {
+                System.err.println("Unable to write a warm-up round\n" + ex);
+                return;
+            }
+            engine.advance();
+            count.incrementAndGet();
+        }
+    }
+
+    /**
+     * A client that is never connected and drops the frames it sends.
+     */
+    private static class WarmUpHtfClient extends HtfClient {
+
+        WarmUpHtfClient(HtfClientListener listener) throws URISyntaxException {
+            super("ws://localhost", "warm-up", EnvironmentType.SIMULATION, listener);
+            setRttProbeInterval(0, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void sendFrame(Framedata framedata) {
+            // Encoded, but never sent
+        }
+
+        @Override
+        public void sendFrame(Collection<Framedata> frames) {
+            // Encoded, but never sent
+        }
+    }
+
+    /**
+     * The outcome of a warm-up.
+     */
+    public static class Result {
+
+        private final int rounds;
+        private final long nanos;
+        private final boolean stopped;
+        private final LatencySnapshot decode;
+        private final LatencySnapshot decision;
+        private final LatencySnapshot send;
+
+        Result(int rounds, long nanos, boolean stopped, ClientMetrics metrics) {
+            this.rounds = rounds;
+            this.nanos = nanos;
+            this.stopped = stopped;
+            this.decode = metrics.getDecode();
+            this.decision = metrics.getDecision();
+            this.send = metrics.getSend();
+        }
+
+        public int getRounds() {
+            return rounds;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return true if the warm-up was stopped before it ran all rounds, the last one may be cut short
+         */
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        /**
+         * @return the decode latencies of the synthetic rounds
+         */
+        public LatencySnapshot getDecode() {
+            return decode;
+        }
+
+        /**
+         * @return the decision latencies of the synthetic rounds, bound by their short window
+         */
+        public LatencySnapshot getDecision() {
+            return decision;
+        }
+
+        public LatencySnapshot getSend() {
+            return send;
+        }
+
+        @Override
+        public String toString() {
+            return "WarmUp.Result{" +
+                    "rounds=" + rounds +
+                    ", millis=" + TimeUnit.NANOSECONDS.toMillis(nanos) +
+                    ", stopped=" + stopped +
+                    ", decode=" + decode +
+                    ", decision=" + decision +
+                    ", send=" + send +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package be.thebeehive.htf.client;
+
+/**
+ * The scoring loop of {@link ActionTable}.
+ * <p>
+ * This is the Java 21 version of the multi-release JAR. When the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}, the columns are scored a vector of lanes at a time, with the
+ * same operations in the same order as the scalar loop, so the scores are the same. Set the
+ * {@value #VECTOR_PROPERTY} system property to {@code false} to always use the scalar loop.
+ */
+final class ActionScoring {
+
+    static final String VECTOR_PROPERTY = "htf.vector";
+
+    private static final boolean VECTORIZED = Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private ActionScoring() {
+
+    }
+
+    static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    static void score(double[] health, double[] maxHealth, double[] crew, double[] maxCrew, double[] traded,
+                      int length, double[] target) {
+        if (VECTORIZED) {
+            // Only loaded here, so the incubator module is not needed when it is not added
+            VectorActionScoring.score(health, maxHealth, crew, maxCrew, traded, length, target);
+        } else {
+            scoreScalar(health, maxHealth, crew, maxCrew, traded, 0, length, target);
+        }
+    }
+
+    static void scoreScalar(double[] health, double[] maxHealth, double[] crew, double[] maxCrew, double[] traded,
+                            int from, int to, double[] target) {
+        for (int i = from; i < to; i++) {
+            double h = health[i];
+            double mh = maxHealth[i];
+            double c = crew[i];
+            double mc = maxCrew[i];
+            double score = 0.0;
+            score += h * 1.2;
+            score += c * 1.2;
+            score += Math.min(mh, 0.0) * 3;
+            score += Math.min(mc, 0.0) * 3;
+            score += Math.min(h, 0.0) * 2.0;
+            score += Math.min(c, 0.0) * 2.0;
+            score += traded[i] * 1.5;
+            score += Math.max(mh, 0.0) * 1.8;
+            score += Math.max(mc, 0.0) * 1.8;
+            target[i] = score;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package be.thebeehive.htf.client;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The scoring loop of {@link ActionScoring} with the Vector API, only used when its module is present.
+ */
+final class VectorActionScoring {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorActionScoring() {
+
+    }
+
+    static void score(double[] health, double[] maxHealth, double[] crew, double[] maxCrew, double[] traded,
+                      int length, double[] target) {
+        int i = 0;
+        for (int upper = SPECIES.loopBound(length); i < upper; i += SPECIES.length()) {
+            DoubleVector h = DoubleVector.fromArray(SPECIES, health, i);
+            DoubleVector mh = DoubleVector.fromArray(SPECIES, maxHealth, i);
+            DoubleVector c = DoubleVector.fromArray(SPECIES, crew, i);
+            DoubleVector mc = DoubleVector.fromArray(SPECIES, maxCrew, i);
+            DoubleVector score = DoubleVector.zero(SPECIES)
+                    .add(h.mul(1.2))
+                    .add(c.mul(1.2))
+                    .add(mh.min(0.0).mul(3))
+                    .add(mc.min(0.0).mul(3))
+                    .add(h.min(0.0).mul(2.0))
+                    .add(c.min(0.0).mul(2.0))
+                    .add(DoubleVector.fromArray(SPECIES, traded, i).mul(1.5))
+                    .add(mh.max(0.0).mul(1.8))
+                    .add(mc.max(0.0).mul(1.8));
+            score.intoArray(target, i);
+        }
+        ActionScoring.scoreScalar(health, maxHealth, crew, maxCrew, traded, i, length, target);
+    }
+}
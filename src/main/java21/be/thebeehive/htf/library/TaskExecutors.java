@@ -0,0 +1,66 @@
+package be.thebeehive.htf.library;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors for listener callbacks, recording I/O and strategy sub-tasks.
+ * <p>
+ * This is the Java 21 version of the multi-release JAR. Every task runs on its own virtual thread, so blocking
+ * is cheap and pools do not have to be sized. Set the {@value #MODE_PROPERTY} system property to {@code PLATFORM}
+ * to use the pools of platform threads of the Java 8 version instead.
+ */
+public final class TaskExecutors {
+
+    public static final String MODE_PROPERTY = "htf.threads";
+
+    private static final ThreadMode MODE = ThreadMode.valueOf(System.getProperty(MODE_PROPERTY, ThreadMode.VIRTUAL.name()));
+
+    private TaskExecutors() {
+
+    }
+
+    /**
+     * @return the mode used by {@link #newTaskExecutor(String, int)}
+     */
+    public static ThreadMode getMode() {
+        return MODE;
+    }
+
+    /**
+     * @return true if executors of the given mode can be created on this JVM
+     */
+    public static boolean isSupported(ThreadMode mode) {
+        return true;
+    }
+
+    /**
+     * Creates an executor in the mode of {@link #getMode()}.
+     *
+     * @param name            the prefix of the names of the threads
+     * @param platformThreads the number of threads when platform threads are used
+     */
+    public static ExecutorService newTaskExecutor(String name, int platformThreads) {
+        return newTaskExecutor(getMode(), name, platformThreads);
+    }
+
+    /**
+     * Creates an executor of daemon threads.
+     *
+     * @param mode            the kind of threads
+     * @param name            the prefix of the names of the threads
+     * @param platformThreads the number of threads when platform threads are used
+     */
+    public static ExecutorService newTaskExecutor(ThreadMode mode, String name, int platformThreads) {
+        if (mode == ThreadMode.VIRTUAL) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+        }
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(platformThreads, runnable -> {
+            Thread thread = new Thread(runnable, platformThreads == 1 ? name : name + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}